@@ -0,0 +1,106 @@
+package com.ecommerce.catalog.benchmarks;
+
+import com.ecommerce.catalog.auth.OAuth2AuthFilter;
+import com.ecommerce.catalog.auth.OAuth2Authenticator;
+import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.SecurityContext;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request authentication cost: JWT verification in {@link OAuth2Authenticator} alone and
+ * the full {@link OAuth2AuthFilter} including header parsing and security context setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmark {
+
+    // HS256 needs a key of at least 256 bits
+    private static final String SECRET = "benchmark-secret-0123456789abcdef";
+    private static final URI BASE_URI = URI.create("http://localhost:8080/");
+    private static final URI REQUEST_URI = URI.create("http://localhost:8080/catalog/v2/products");
+
+    private OAuth2Authenticator authenticator;
+    private OAuth2AuthFilter<Principal> filter;
+    private String validToken;
+    private String invalidToken;
+
+    @Setup
+    public void setUp() throws JOSEException {
+        EcommerceCatalogConfiguration.OAuth2Config config = new EcommerceCatalogConfiguration.OAuth2Config();
+        config.setClientSecret(SECRET);
+        authenticator = new OAuth2Authenticator(config);
+        filter = new OAuth2AuthFilter.Builder<Principal>()
+            .setAuthenticator(authenticator)
+            .setPrefix("Bearer")
+            .buildAuthFilter();
+
+        validToken = sign("catalog:read catalog:write");
+        invalidToken = validToken.substring(0, validToken.length() - 4) + "AAAA";
+    }
+
+    @Benchmark
+    public Optional<Principal> authenticateValidToken() {
+        return authenticator.authenticate(validToken);
+    }
+
+    @Benchmark
+    public Optional<Principal> authenticateInvalidToken() {
+        return authenticator.authenticate(invalidToken);
+    }
+
+    @Benchmark
+    public SecurityContext filterValidRequest() throws IOException {
+        ContainerRequest request = newRequest(validToken);
+        filter.filter(request);
+        return request.getSecurityContext();
+    }
+
+    private static ContainerRequest newRequest(String token) {
+        ContainerRequest request = new ContainerRequest(BASE_URI, REQUEST_URI, "GET", null,
+            new MapPropertiesDelegate(), null);
+        request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return request;
+    }
+
+    private static String sign(String scope) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+            .subject("benchmark-user")
+            .claim("scope", scope)
+            .issueTime(new Date())
+            .expirationTime(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(12)))
+            .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(SECRET.getBytes(StandardCharsets.UTF_8)));
+        return jwt.serialize();
+    }
+}
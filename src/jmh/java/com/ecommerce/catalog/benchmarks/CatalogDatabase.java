@@ -0,0 +1,93 @@
+package com.ecommerce.catalog.benchmarks;
+
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.model.Category;
+import com.ecommerce.catalog.model.Product;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Embedded H2 database in MySQL compatibility mode, created from the entity mappings and
+ * seeded with a synthetic catalog. Seeding uses a fixed random seed so runs are comparable.
+ */
+final class CatalogDatabase implements AutoCloseable {
+    private static final String[] ADJECTIVES = {"Compact", "Wireless", "Premium", "Portable", "Smart", "Classic", "Pro", "Ultra"};
+    private static final String[] NOUNS = {"Laptop", "Phone", "Headphones", "Camera", "Speaker", "Monitor", "Keyboard", "Tablet"};
+    private static final int SEED_CHUNK = 1000;
+
+    private final SessionFactory sessionFactory;
+    private final List<Long> categoryIds = new ArrayList<>();
+
+    private CatalogDatabase(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    static CatalogDatabase create(String name, int categories, int products) {
+        SessionFactory sessionFactory = new Configuration()
+            .addAnnotatedClass(Category.class)
+            .addAnnotatedClass(Product.class)
+            .setProperty("hibernate.connection.driver_class", "org.h2.Driver")
+            .setProperty("hibernate.connection.url", "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+            .setProperty("hibernate.hbm2ddl.auto", "create")
+            .setProperty("hibernate.jdbc.time_zone", "UTC")
+            .buildSessionFactory();
+
+        CatalogDatabase database = new CatalogDatabase(sessionFactory);
+        database.seed(categories, products);
+        return database;
+    }
+
+    SessionFactory sessionFactory() {
+        return sessionFactory;
+    }
+
+    List<Long> categoryIds() {
+        return categoryIds;
+    }
+
+    private void seed(int categories, int products) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < categories; i++) {
+                Category category = new Category("Category " + i, "Synthetic category " + i);
+                session.save(category);
+                categoryIds.add(category.getId());
+            }
+            transaction.commit();
+        }
+
+        ProductDAO productDAO = new ProductDAO(sessionFactory);
+        Random random = new Random(42);
+        List<Product> chunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < products; i++) {
+            Category category = new Category();
+            category.setId(categoryIds.get(random.nextInt(categoryIds.size())));
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + i;
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(500_000), 2);
+            chunk.add(new Product(name, "Synthetic " + name.toLowerCase() + " for benchmarking", price,
+                random.nextInt(1000), category));
+            if (chunk.size() == SEED_CHUNK) {
+                productDAO.saveBatch(chunk);
+                chunk = new ArrayList<>(SEED_CHUNK);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            productDAO.saveBatch(chunk);
+        }
+    }
+
+    @Override
+    public void close() {
+        sessionFactory.close();
+    }
+}
@@ -0,0 +1,108 @@
+package com.ecommerce.catalog.benchmarks;
+
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.db.ProductCursor;
+import com.ecommerce.catalog.db.ProductDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of {@link ProductDAO} against an embedded H2 catalog. The DAO is built without a
+ * cache so every invocation reaches the database. MySQL FULLTEXT search has no H2 equivalent
+ * and is not covered here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductDAOBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100000"})
+    public int productCount;
+
+    @Param({"50"})
+    public int categoryCount;
+
+    private CatalogDatabase database;
+    private ProductDAO productDAO;
+    private ProductCursor deepCursor;
+    private int deepOffset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = CatalogDatabase.create("dao", categoryCount, productCount);
+        productDAO = new ProductDAO(database.sessionFactory());
+
+        deepOffset = productCount - PAGE_SIZE * 5;
+        List<ProductView> beforeDeepPage = productDAO.findAll(deepOffset - 1, 1);
+        deepCursor = ProductCursor.after(beforeDeepPage.get(0), ProductCursor.SortKey.ID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<ProductView> findById() {
+        return productDAO.findById(ThreadLocalRandom.current().nextLong(1, productCount + 1));
+    }
+
+    @Benchmark
+    public List<ProductView> findAllFirstPage() {
+        return productDAO.findAll(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ProductView> findAllDeepOffset() {
+        return productDAO.findAll(deepOffset, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ProductView> findAllDeepCursor() {
+        return productDAO.findAll(deepCursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ProductView> findByCategoryId() {
+        List<Long> categoryIds = database.categoryIds();
+        Long categoryId = categoryIds.get(ThreadLocalRandom.current().nextInt(categoryIds.size()));
+        return productDAO.findByCategoryId(categoryId, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ProductView> findByPriceRange() {
+        return productDAO.findByPriceRange(new BigDecimal("100.00"), new BigDecimal("500.00"), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ProductView> searchLike() {
+        return productDAO.search("camera", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public long count() {
+        return productDAO.count();
+    }
+}
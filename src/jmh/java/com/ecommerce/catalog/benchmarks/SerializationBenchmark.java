@@ -0,0 +1,100 @@
+package com.ecommerce.catalog.benchmarks;
+
+import com.ecommerce.catalog.api.CategoryView;
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.model.Category;
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a response page, using the same {@code ObjectMapper} setup as the
+ * application. Entity and view variants are measured side by side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private ObjectWriter writer;
+    private List<Product> products;
+    private List<ProductView> productViews;
+    private List<Category> categories;
+    private List<CategoryView> categoryViews;
+
+    @Setup
+    public void setUp() {
+        writer = Jackson.newObjectMapper().writer();
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+        Category parent = new Category("Electronics", "Electronic devices and accessories");
+        parent.setId(1L);
+        products = new ArrayList<>(pageSize);
+        productViews = new ArrayList<>(pageSize);
+        categories = new ArrayList<>(pageSize);
+        categoryViews = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            long id = i + 2;
+            Category category = new Category("Category " + id, "Synthetic category " + id);
+            category.setId(id);
+            category.setParent(parent);
+            category.setCreatedAt(now);
+            category.setUpdatedAt(now);
+            categories.add(category);
+            categoryViews.add(CategoryView.of(category));
+
+            Product product = new Product("Wireless Headphones " + id, "Noise-cancelling over-ear headphones",
+                new BigDecimal("249.99"), 100, category);
+            product.setId(id);
+            product.setCreatedAt(now);
+            product.setUpdatedAt(now);
+            products.add(product);
+            productViews.add(new ProductView(id, product.getName(), product.getDescription(), product.getPrice(),
+                product.getStockQuantity(), product.getStatus(), id, category.getName(), now, now, 0L));
+        }
+    }
+
+    @Benchmark
+    public byte[] productEntities() throws JsonProcessingException {
+        return writer.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] productViews() throws JsonProcessingException {
+        return writer.writeValueAsBytes(productViews);
+    }
+
+    @Benchmark
+    public byte[] categoryEntities() throws JsonProcessingException {
+        return writer.writeValueAsBytes(categories);
+    }
+
+    @Benchmark
+    public byte[] categoryViews() throws JsonProcessingException {
+        return writer.writeValueAsBytes(categoryViews);
+    }
+}
@@ -1,9 +1,31 @@
 package com.ecommerce.catalog;
 
+import com.ecommerce.catalog.cache.ProductCache;
+import com.ecommerce.catalog.changes.ChangeFeed;
+import com.ecommerce.catalog.columnar.ProductColumnStore;
 import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import com.ecommerce.catalog.db.CatalogChangeDAO;
+import com.ecommerce.catalog.db.CategoryDAO;
+import com.ecommerce.catalog.db.HibernateStatisticsMetrics;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.ReadReplicaRouter;
+import com.ecommerce.catalog.export.ProductExporter;
 import com.ecommerce.catalog.health.DatabaseHealthCheck;
+import com.ecommerce.catalog.ingest.ProductBatchIngester;
+import com.ecommerce.catalog.inventory.HotStockLedger;
+import com.ecommerce.catalog.invalidation.CatalogInvalidator;
+import com.ecommerce.catalog.invalidation.DatabaseInvalidationBus;
+import com.ecommerce.catalog.invalidation.InvalidationBus;
+import com.ecommerce.catalog.invalidation.InvalidationListener;
+import com.ecommerce.catalog.invalidation.MulticastInvalidationBus;
+import com.ecommerce.catalog.inventory.StockReservations;
 import com.ecommerce.catalog.resources.ProductResource;
 import com.ecommerce.catalog.resources.CategoryResource;
+import com.ecommerce.catalog.resources.ChangeResource;
+import com.ecommerce.catalog.resources.PrimaryReadFilter;
+import com.ecommerce.catalog.resources.ResourceExecutor;
+import com.ecommerce.catalog.search.ProductSearchIndex;
+import com.ecommerce.catalog.stats.ProductCounts;
 import com.ecommerce.catalog.auth.OAuth2AuthFilter;
 import com.ecommerce.catalog.model.Product;
 import com.ecommerce.catalog.model.Category;
@@ -12,6 +34,7 @@ import io.dropwizard.auth.AuthDynamicFeature;
 import io.dropwizard.auth.AuthValueFactoryProvider;
 import io.dropwizard.db.DataSourceFactory;
 import io.dropwizard.hibernate.HibernateBundle;
+import io.dropwizard.hibernate.SessionFactoryFactory;
 import io.dropwizard.migrations.MigrationsBundle;
 import io.dropwizard.core.setup.Bootstrap;
 import io.dropwizard.core.setup.Environment;
@@ -21,7 +44,12 @@ import io.swagger.jaxrs.listing.SwaggerSerializers;
 import org.hibernate.SessionFactory;
 
 import javax.ws.rs.container.ContainerRequestFilter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
 import java.security.Principal;
+import java.util.Arrays;
 
 public class EcommerceCatalogApplication extends Application<EcommerceCatalogConfiguration> {
     
@@ -54,21 +82,124 @@ public class EcommerceCatalogApplication extends Application<EcommerceCatalogCon
     }
 
     @Override
-    public void run(EcommerceCatalogConfiguration configuration, Environment environment) {
+    public void run(EcommerceCatalogConfiguration configuration, Environment environment) throws Exception {
         final SessionFactory sessionFactory = hibernateBundle.getSessionFactory();
         
         // Configure OAuth2 authentication (simplified)
         final ContainerRequestFilter oauth2Filter = new OAuth2AuthFilter.Builder<Principal>()
-            .setAuthenticator(new com.ecommerce.catalog.auth.OAuth2Authenticator(configuration.getOAuth2Config()))
+            .setAuthenticator(new com.ecommerce.catalog.auth.OAuth2Authenticator(configuration.getOAuth2Config(), environment.metrics()))
             .setPrefix("Bearer")
             .buildAuthFilter();
             
         environment.jersey().register(new AuthDynamicFeature(oauth2Filter));
         environment.jersey().register(new AuthValueFactoryProvider.Binder<>(Principal.class));
         
+        // Product detail cache, invalidated by ProductDAO writes
+        final EcommerceCatalogConfiguration.CatalogSettings catalogSettings = configuration.getCatalogSettings();
+        final ProductCache productCache = new ProductCache(
+            catalogSettings.getProductCacheMaxWeight(), catalogSettings.getProductCacheTtl());
+        productCache.registerMetrics(environment.metrics());
+        
+        // Optional read replica for listings and search, guarded by a heartbeat lag probe
+        ReadReplicaRouter replicaRouter = null;
+        if (configuration.getReadReplica() != null) {
+            final SessionFactory replicaSessionFactory = new SessionFactoryFactory().build(hibernateBundle, environment,
+                configuration.getReadReplica(), Arrays.<Class<?>>asList(Product.class, Category.class), "hibernate-replica");
+            replicaRouter = new ReadReplicaRouter(sessionFactory, replicaSessionFactory,
+                environment.lifecycle().scheduledExecutorService("replica-lag").build(),
+                catalogSettings.getReplicaMaxLag(), catalogSettings.getReplicaLagCheckInterval());
+            replicaRouter.registerMetrics(environment.metrics());
+            environment.lifecycle().manage(replicaRouter);
+            environment.jersey().register(new PrimaryReadFilter(catalogSettings.getPrimaryStickiness()));
+            environment.healthChecks().register("database-replica", new DatabaseHealthCheck(replicaSessionFactory));
+            environment.metrics().registerAll(new HibernateStatisticsMetrics("hibernate-replica", replicaSessionFactory));
+        }
+        
+        // Outbox of every catalog write, read by the change feed and the database invalidation bus
+        final CatalogChangeDAO changeDAO = new CatalogChangeDAO(sessionFactory, catalogSettings.getChangeFeedSettleTime());
+        changeDAO.registerMetrics(environment.metrics());
+        
+        // Carries cache invalidations to the other replicas
+        final InvalidationBus invalidationBus = invalidationBus(catalogSettings, changeDAO, environment);
+        
+        final ProductDAO productDAO = new ProductDAO(sessionFactory, productCache, replicaRouter, invalidationBus);
+        final CategoryDAO categoryDAO = new CategoryDAO(sessionFactory, productDAO, invalidationBus);
+        productDAO.registerMetrics(environment.metrics());
+        categoryDAO.registerMetrics(environment.metrics());
+        environment.metrics().registerAll(new HibernateStatisticsMetrics("hibernate", sessionFactory));
+        if (invalidationBus != null) {
+            invalidationBus.subscribe(new CatalogInvalidator(productCache, categoryDAO));
+            invalidationBus.registerMetrics(environment.metrics());
+            environment.lifecycle().manage(invalidationBus);
+        }
+        
+        // In-memory search index, loaded in the background and updated on product writes
+        final ProductSearchIndex searchIndex = new ProductSearchIndex(productDAO);
+        if (catalogSettings.isInMemorySearchEnabled()) {
+            productDAO.addListener(searchIndex);
+            subscribe(invalidationBus, searchIndex);
+            environment.lifecycle().manage(searchIndex);
+        }
+        
+        // Columnar snapshot for the category and price-range listings, refreshed from updated_at
+        final ProductColumnStore columnStore = new ProductColumnStore(productDAO,
+            environment.lifecycle().scheduledExecutorService("product-columns").build(),
+            catalogSettings.getColumnStoreRefreshInterval(), catalogSettings.getColumnStoreRebuildInterval(),
+            catalogSettings.getColumnStoreRefreshOverlap());
+        if (catalogSettings.isColumnStoreEnabled()) {
+            productDAO.addListener(columnStore);
+            subscribe(invalidationBus, columnStore);
+            columnStore.registerMetrics(environment.metrics());
+            environment.lifecycle().manage(columnStore);
+        }
+        
+        // Change feed over the catalog_changes outbox
+        final ChangeFeed changeFeed = new ChangeFeed(changeDAO,
+            environment.lifecycle().scheduledExecutorService("change-feed").build(),
+            catalogSettings.getChangeFeedPollInterval(), catalogSettings.getChangeFeedRetention());
+        changeFeed.registerMetrics(environment.metrics());
+        environment.lifecycle().manage(changeFeed);
+        
+        // Product counts for X-Total-Count, reconciled with the database in the background
+        final ProductCounts productCounts = new ProductCounts(productDAO,
+            environment.lifecycle().scheduledExecutorService("product-counts").build(),
+            catalogSettings.getCountReconcileInterval());
+        productDAO.addListener(productCounts);
+        subscribe(invalidationBus, productCounts);
+        environment.lifecycle().manage(productCounts);
+        
+        final ProductBatchIngester batchIngester = new ProductBatchIngester(productDAO,
+            environment.getObjectMapper(), environment.getValidator(), catalogSettings.getBatchChunkSize());
+        
+        // Flash-sale stock ledger; products are only routed to it once flagged hot
+        final HotStockLedger hotStockLedger = new HotStockLedger(productDAO,
+            environment.lifecycle().scheduledExecutorService("hot-stock").threads(2).build(),
+            Paths.get(catalogSettings.getHotStockJournalDir()), hotStockLedgerName(catalogSettings),
+            catalogSettings.getHotStockFlushInterval(), catalogSettings.getHotStockSyncInterval());
+        if (catalogSettings.isHotStockEnabled()) {
+            hotStockLedger.registerMetrics(environment.metrics());
+            environment.lifecycle().manage(hotStockLedger);
+        }
+        
+        // Database-bound resource methods run on virtual threads, at most one per pooled connection
+        // and per carrier thread (the MySQL driver pins carriers while it does I/O)
+        final ResourceExecutor resourceExecutor;
+        if (catalogSettings.isAsyncResourcesEnabled()) {
+            resourceExecutor = ResourceExecutor.virtualThreads(configuration.getDataSourceFactory().getMaxSize(),
+                catalogSettings.getAsyncPermitTimeout());
+            resourceExecutor.registerMetrics(environment.metrics());
+            environment.lifecycle().manage(resourceExecutor);
+        } else {
+            resourceExecutor = ResourceExecutor.inline();
+        }
+        
         // Register resources
-        environment.jersey().register(new ProductResource(sessionFactory));
-        environment.jersey().register(new CategoryResource(sessionFactory));
+        environment.jersey().register(new ProductResource(productDAO, productCounts, searchIndex, columnStore,
+            batchIngester, new ProductExporter(productDAO), new StockReservations(productDAO, hotStockLedger),
+            hotStockLedger, resourceExecutor, catalogSettings));
+        environment.jersey().register(new CategoryResource(categoryDAO, productDAO, productCounts, columnStore,
+            resourceExecutor, catalogSettings));
+        environment.jersey().register(new ChangeResource(changeFeed, resourceExecutor, catalogSettings));
         
         // Register health checks
         environment.healthChecks().register("database", new DatabaseHealthCheck(sessionFactory));
@@ -77,6 +208,39 @@ public class EcommerceCatalogApplication extends Application<EcommerceCatalogCon
         configureSwagger(environment);
     }
     
+    private static InvalidationBus invalidationBus(EcommerceCatalogConfiguration.CatalogSettings catalogSettings,
+                                                   CatalogChangeDAO changeDAO, Environment environment)
+            throws IOException {
+        switch (catalogSettings.getInvalidationBus()) {
+            case "none":
+                return null;
+            case "database":
+                return new DatabaseInvalidationBus(changeDAO,
+                    environment.lifecycle().scheduledExecutorService("invalidation-poll").build(),
+                    catalogSettings.getInvalidationPollInterval());
+            case "multicast":
+                return new MulticastInvalidationBus(catalogSettings.getInvalidationMulticastGroup(),
+                    catalogSettings.getInvalidationMulticastPort(), catalogSettings.getInvalidationMulticastInterface(),
+                    catalogSettings.getInvalidationMulticastTtl(),
+                    environment.lifecycle().executorService("invalidation-multicast").minThreads(1).maxThreads(1).build());
+            default:
+                throw new IllegalArgumentException("Unknown invalidationBus: " + catalogSettings.getInvalidationBus()
+                    + " (expected none, database or multicast)");
+        }
+    }
+    
+    private static void subscribe(InvalidationBus invalidationBus, InvalidationListener listener) {
+        if (invalidationBus != null) {
+            invalidationBus.subscribe(listener);
+        }
+    }
+    
+    private static String hotStockLedgerName(EcommerceCatalogConfiguration.CatalogSettings catalogSettings)
+            throws UnknownHostException {
+        String name = catalogSettings.getHotStockLedgerName();
+        return name == null || name.trim().isEmpty() ? InetAddress.getLocalHost().getHostName() : name.trim();
+    }
+    
     private void configureSwagger(Environment environment) {
         BeanConfig config = new BeanConfig();
         config.setTitle("E-commerce Catalog API");
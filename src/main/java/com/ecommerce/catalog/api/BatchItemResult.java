@@ -0,0 +1,52 @@
+package com.ecommerce.catalog.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Outcome of one line of a batch ingest request, streamed back as one NDJSON line.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED, UPSERTED, INVALID, FAILED
+    }
+
+    @JsonProperty
+    private final long line;
+
+    @JsonProperty
+    private final Status status;
+
+    @JsonProperty
+    private final Long id;
+
+    @JsonProperty
+    private final List<String> errors;
+
+    private BatchItemResult(long line, Status status, Long id, List<String> errors) {
+        this.line = line;
+        this.status = status;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    public static BatchItemResult saved(long line, Status status, Long id) {
+        return new BatchItemResult(line, status, id, null);
+    }
+
+    public static BatchItemResult rejected(long line, Status status, List<String> errors) {
+        return new BatchItemResult(line, status, null, errors);
+    }
+
+    public long getLine() { return line; }
+
+    public Status getStatus() { return status; }
+
+    public Long getId() { return id; }
+
+    public List<String> getErrors() { return errors; }
+}
@@ -0,0 +1,26 @@
+package com.ecommerce.catalog.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the change feed: a product or category was inserted or updated ({@code UPSERT})
+ * or deleted. Entries carry no payload; consumers fetch the current state by id. A category
+ * upsert also changes the {@code categoryName} of its products, which are not listed separately.
+ */
+public record CatalogChange(
+    @JsonProperty long sequence,
+    @JsonProperty Entity entity,
+    @JsonProperty Long id,
+    @JsonProperty Operation operation,
+    @JsonProperty LocalDateTime changedAt) {
+
+    public enum Entity {
+        PRODUCT, CATEGORY
+    }
+
+    public enum Operation {
+        UPSERT, DELETE
+    }
+}
@@ -0,0 +1,27 @@
+package com.ecommerce.catalog.api;
+
+import com.ecommerce.catalog.model.Category;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat, read-only view of a category row. The parent is referenced by id only, so serializing
+ * a view never walks the {@code parent}, {@code children} or {@code products} associations.
+ */
+public record CategoryView(
+    @JsonProperty Long id,
+    @JsonProperty String name,
+    @JsonProperty String description,
+    @JsonProperty Long parentId,
+    @JsonProperty LocalDateTime createdAt,
+    @JsonProperty LocalDateTime updatedAt,
+    @JsonProperty Long version) {
+
+    public static CategoryView of(Category category) {
+        Category parent = category.getParent();
+        return new CategoryView(category.getId(), category.getName(), category.getDescription(),
+            parent == null ? null : parent.getId(), category.getCreatedAt(), category.getUpdatedAt(),
+            category.getVersion());
+    }
+}
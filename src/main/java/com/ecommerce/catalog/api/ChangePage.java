@@ -0,0 +1,32 @@
+package com.ecommerce.catalog.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of the change feed. {@code next} is the cursor to send as {@code since} for the
+ * following page; it equals the request's {@code since} when nothing has changed.
+ */
+public record ChangePage(
+    @JsonProperty List<CatalogChange> changes,
+    @JsonProperty long next) {
+
+    /**
+     * Keeps only the last change per entity within the page, in commit order. A consumer
+     * applying the page ends in the same state either way.
+     */
+    public static ChangePage collapse(List<CatalogChange> rows, long since) {
+        Map<String, CatalogChange> latest = new LinkedHashMap<>();
+        for (CatalogChange change : rows) {
+            String key = change.entity() + "-" + change.id();
+            latest.remove(key);
+            latest.put(key, change);
+        }
+        long next = rows.isEmpty() ? since : rows.get(rows.size() - 1).sequence();
+        return new ChangePage(new ArrayList<>(latest.values()), next);
+    }
+}
@@ -0,0 +1,165 @@
+package com.ecommerce.catalog.api;
+
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An RFC 7396 JSON Merge Patch against a product or category view, translated into the entity
+ * properties it changes. Members that are absent are left alone and {@code null} clears a
+ * nullable column; read-only or unknown members are rejected, as is any value the full
+ * entity's validation constraints would reject. Association ids ({@code categoryId},
+ * {@code parentId}) are kept as ids under the association's property name.
+ */
+public final class MergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private static final BigDecimal MIN_PRICE = new BigDecimal("0.01");
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    private final Map<String, Object> changes;
+
+    private MergePatch(Map<String, Object> changes) {
+        this.changes = Collections.unmodifiableMap(changes);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the patch is not an object or names a member that cannot be changed
+     */
+    public static MergePatch forProduct(JsonNode patch) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = fields(patch); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "name":
+                    changes.put("name", text(field.getKey(), value, false, 255));
+                    break;
+                case "description":
+                    changes.put("description", text(field.getKey(), value, true, Integer.MAX_VALUE));
+                    break;
+                case "price":
+                    changes.put("price", price(value));
+                    break;
+                case "stockQuantity":
+                    if (!value.canConvertToInt() || !value.isIntegralNumber()) {
+                        throw new IllegalArgumentException("stockQuantity must be an integer");
+                    }
+                    changes.put("stockQuantity", value.intValue());
+                    break;
+                case "status":
+                    changes.put("status", status(value));
+                    break;
+                case "categoryId":
+                    changes.put("category", id(field.getKey(), value));
+                    break;
+                default:
+                    throw notPatchable(field.getKey());
+            }
+        }
+        return new MergePatch(changes);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the patch is not an object or names a member that cannot be changed
+     */
+    public static MergePatch forCategory(JsonNode patch) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = fields(patch); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "name":
+                    changes.put("name", text(field.getKey(), value, false, 100));
+                    break;
+                case "description":
+                    changes.put("description", text(field.getKey(), value, true, Integer.MAX_VALUE));
+                    break;
+                case "parentId":
+                    changes.put("parent", id(field.getKey(), value));
+                    break;
+                default:
+                    throw notPatchable(field.getKey());
+            }
+        }
+        return new MergePatch(changes);
+    }
+
+    /**
+     * @return entity property to new value, in the order the patch named them
+     */
+    public Map<String, Object> changes() {
+        return changes;
+    }
+
+    public boolean touches(String property) {
+        return changes.containsKey(property);
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    private static Iterator<Map.Entry<String, JsonNode>> fields(JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("Merge patch must be a JSON object");
+        }
+        return patch.fields();
+    }
+
+    private static String text(String field, JsonNode value, boolean nullable, int maxLength) {
+        if (value.isNull() && nullable) {
+            return null;
+        }
+        if (!value.isTextual() || value.textValue().isEmpty() || value.textValue().length() > maxLength) {
+            throw new IllegalArgumentException(field + " must be a string of 1 to " + maxLength + " characters");
+        }
+        return value.textValue();
+    }
+
+    /**
+     * Mirrors the {@code DECIMAL(10,2)} column: MySQL would otherwise round extra fraction digits
+     * silently, or fail the update with a data truncation error.
+     */
+    private static BigDecimal price(JsonNode value) {
+        if (!value.isNumber()) {
+            throw new IllegalArgumentException("price must be a number");
+        }
+        BigDecimal price = value.decimalValue();
+        if (price.compareTo(MIN_PRICE) < 0 || price.compareTo(MAX_PRICE) > 0) {
+            throw new IllegalArgumentException("price must be between " + MIN_PRICE + " and " + MAX_PRICE);
+        }
+        if (price.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("price must have at most 2 decimal places");
+        }
+        return price;
+    }
+
+    private static Product.ProductStatus status(JsonNode value) {
+        try {
+            return Product.ProductStatus.valueOf(value.textValue());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("status must be one of ACTIVE, INACTIVE, DISCONTINUED");
+        }
+    }
+
+    private static Long id(String field, JsonNode value) {
+        if (value.isNull()) {
+            return null;
+        }
+        if (!value.isIntegralNumber() || !value.canConvertToLong()) {
+            throw new IllegalArgumentException(field + " must be an id or null");
+        }
+        return value.longValue();
+    }
+
+    private static IllegalArgumentException notPatchable(String field) {
+        return new IllegalArgumentException("Field cannot be patched: " + field);
+    }
+}
@@ -0,0 +1,97 @@
+package com.ecommerce.catalog.api;
+
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filter sidebar counts for a product listing: per category, per price band and per status.
+ * <p>
+ * Built from the rows of one grouped query ({@link Bucket}, one per category, band and
+ * status combination). The category and status filters are applied while rolling those rows
+ * up, and each facet ignores its own filter, so the category facet still shows how many
+ * products the other categories would have. The search term and price range narrow every facet.
+ */
+public record ProductFacets(
+    @JsonProperty long total,
+    @JsonProperty List<CategoryCount> categories,
+    @JsonProperty List<PriceBandCount> priceBands,
+    @JsonProperty Map<Product.ProductStatus, Long> statuses) {
+
+    /**
+     * Products in one category, price band and status. {@code priceBand} indexes the bands
+     * delimited by the configured boundaries: band {@code i} holds prices below boundary
+     * {@code i} and at or above boundary {@code i - 1}.
+     */
+    public record Bucket(Long categoryId, String categoryName, int priceBand, Product.ProductStatus status, long count) {
+    }
+
+    public record CategoryCount(
+        @JsonProperty Long categoryId,
+        @JsonProperty String categoryName,
+        @JsonProperty long count) {
+    }
+
+    /**
+     * Products priced from {@code from} (inclusive) up to {@code to} (exclusive); {@code to} is
+     * {@code null} for the top band.
+     */
+    public record PriceBandCount(
+        @JsonProperty BigDecimal from,
+        @JsonProperty BigDecimal to,
+        @JsonProperty long count) {
+    }
+
+    /**
+     * @param boundaries ascending price band boundaries the buckets were grouped by
+     * @param categoryId the selected category, or {@code null}
+     * @param status the selected status, or {@code null}
+     */
+    public static ProductFacets rollUp(List<Bucket> buckets, List<BigDecimal> boundaries,
+                                       Long categoryId, Product.ProductStatus status) {
+        long total = 0;
+        Map<Long, CategoryCount> categories = new LinkedHashMap<>();
+        long[] bands = new long[boundaries.size() + 1];
+        Map<Product.ProductStatus, Long> statuses = new EnumMap<>(Product.ProductStatus.class);
+        for (Product.ProductStatus value : Product.ProductStatus.values()) {
+            statuses.put(value, 0L);
+        }
+
+        for (Bucket bucket : buckets) {
+            boolean inCategory = categoryId == null || categoryId.equals(bucket.categoryId());
+            boolean inStatus = status == null || status == bucket.status();
+            if (inStatus) {
+                categories.merge(bucket.categoryId(),
+                    new CategoryCount(bucket.categoryId(), bucket.categoryName(), bucket.count()),
+                    (a, b) -> new CategoryCount(a.categoryId(), a.categoryName(), a.count() + b.count()));
+            }
+            if (inCategory) {
+                statuses.merge(bucket.status(), bucket.count(), Long::sum);
+            }
+            if (inCategory && inStatus) {
+                bands[bucket.priceBand()] += bucket.count();
+                total += bucket.count();
+            }
+        }
+
+        List<CategoryCount> categoryCounts = new ArrayList<>(categories.values());
+        categoryCounts.sort(Comparator.comparingLong(CategoryCount::count).reversed()
+            .thenComparing(CategoryCount::categoryName, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        List<PriceBandCount> bandCounts = new ArrayList<>(bands.length);
+        for (int i = 0; i < bands.length; i++) {
+            BigDecimal from = i == 0 ? BigDecimal.ZERO : boundaries.get(i - 1);
+            BigDecimal to = i < boundaries.size() ? boundaries.get(i) : null;
+            bandCounts.add(new PriceBandCount(from, to, bands[i]));
+        }
+
+        return new ProductFacets(total, categoryCounts, bandCounts, statuses);
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.catalog.api;
+
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat, read-only view of a product row with its category id and name inlined, populated
+ * directly by a constructor-expression query rather than by loading the entity graph.
+ */
+public record ProductView(
+    @JsonProperty Long id,
+    @JsonProperty String name,
+    @JsonProperty String description,
+    @JsonProperty BigDecimal price,
+    @JsonProperty Integer stockQuantity,
+    @JsonProperty Product.ProductStatus status,
+    @JsonProperty Long categoryId,
+    @JsonProperty String categoryName,
+    @JsonProperty LocalDateTime createdAt,
+    @JsonProperty LocalDateTime updatedAt,
+    @JsonProperty Long version) {
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.catalog.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Quantity to reserve or release. {@code productId} is only read by the batch endpoints;
+ * the single-product endpoints take it from the path. One line moves at most a million units.
+ */
+public record StockAdjustment(
+    @JsonProperty Long productId,
+    @JsonProperty @NotNull @Min(1) @Max(1_000_000) Integer quantity) {
+}
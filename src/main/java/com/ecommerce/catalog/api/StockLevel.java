@@ -0,0 +1,11 @@
+package com.ecommerce.catalog.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Stock remaining for a product after a reservation or release.
+ */
+public record StockLevel(
+    @JsonProperty Long productId,
+    @JsonProperty Integer stockQuantity) {
+}
@@ -1,22 +1,51 @@
 package com.ecommerce.catalog.auth;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import io.dropwizard.auth.Authenticator;
-import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Verifies HS256 bearer tokens. Successful verifications are cached by a SHA-256 digest of the
+ * token until the token expires, and rejected tokens are remembered for a short while, so a
+ * token reused across many requests is only parsed and MAC-checked once.
+ */
 public class OAuth2Authenticator implements Authenticator<String, Principal> {
+    private static final Set<String> ACCEPTED_SCOPES = new HashSet<>(Arrays.asList("catalog:read", "catalog:write"));
+    // Upper bound for entries whose token carries no usable expiry
+    private static final long MAX_CACHE_SECONDS = TimeUnit.HOURS.toSeconds(1);
+
     private final EcommerceCatalogConfiguration.OAuth2Config oauth2Config;
     private final JwtDecoder jwtDecoder;
+    private final Cache<HashCode, VerifiedToken> verified;
+    private final Cache<HashCode, Boolean> rejected;
+    private final Timer verification;
 
     public OAuth2Authenticator(EcommerceCatalogConfiguration.OAuth2Config oauth2Config) {
+        this(oauth2Config, new MetricRegistry());
+    }
+
+    public OAuth2Authenticator(EcommerceCatalogConfiguration.OAuth2Config oauth2Config, MetricRegistry metrics) {
         this.oauth2Config = oauth2Config;
         
         // Create JWT decoder with client secret (simplified implementation)
@@ -27,28 +56,87 @@ public class OAuth2Authenticator implements Authenticator<String, Principal> {
         this.jwtDecoder = NimbusJwtDecoder.withSecretKey(secretKey)
             .macAlgorithm(MacAlgorithm.HS256)
             .build();
+        
+        this.verified = CacheBuilder.newBuilder()
+            .maximumSize(oauth2Config.getTokenCacheSize())
+            .expireAfterWrite(MAX_CACHE_SECONDS, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+        this.rejected = CacheBuilder.newBuilder()
+            .maximumSize(oauth2Config.getTokenCacheSize())
+            .expireAfterWrite(oauth2Config.getRejectedTokenTtl().toMilliseconds(), TimeUnit.MILLISECONDS)
+            .build();
+        this.verification = metrics.timer(MetricRegistry.name(OAuth2Authenticator.class, "verification"));
+        metrics.register(MetricRegistry.name(OAuth2Authenticator.class, "tokenCache", "hitRate"),
+            (Gauge<Double>) () -> verified.stats().hitRate());
+        metrics.register(MetricRegistry.name(OAuth2Authenticator.class, "tokenCache", "size"),
+            (Gauge<Long>) verified::size);
+        metrics.register(MetricRegistry.name(OAuth2Authenticator.class, "rejectedCache", "size"),
+            (Gauge<Long>) rejected::size);
     }
 
     @Override
     public Optional<Principal> authenticate(String token) {
-        try {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        HashCode key = Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+        VerifiedToken cached = verified.getIfPresent(key);
+        if (cached != null) {
+            if (Instant.now().isBefore(cached.expiresAt)) {
+                return Optional.of(cached.principal);
+            }
+            verified.invalidate(key);
+        }
+        if (rejected.getIfPresent(key) != null) {
+            return Optional.empty();
+        }
+        
+        Optional<VerifiedToken> result = verify(token);
+        if (result.isPresent()) {
+            verified.put(key, result.get());
+            return Optional.of(result.get().principal);
+        }
+        rejected.put(key, Boolean.TRUE);
+        return Optional.empty();
+    }
+
+    private Optional<VerifiedToken> verify(String token) {
+        try (Timer.Context ignored = verification.time()) {
             Jwt jwt = jwtDecoder.decode(token);
             String subject = jwt.getSubject();
-            String scope = jwt.getClaimAsString("scope");
+            Set<String> scopes = parseScopes(jwt.getClaimAsString("scope"));
             
             // Validate scope contains required permissions
-            if (subject != null && scope != null && 
-                (scope.contains("catalog:read") || scope.contains("catalog:write"))) {
-                return Optional.of(new Principal() {
-                    @Override
-                    public String getName() {
-                        return subject;
-                    }
-                });
+            if (subject != null && !Collections.disjoint(scopes, ACCEPTED_SCOPES)) {
+                Instant now = Instant.now();
+                Instant ceiling = now.plusSeconds(MAX_CACHE_SECONDS);
+                Instant expiresAt = jwt.getExpiresAt() == null || jwt.getExpiresAt().isAfter(ceiling)
+                    ? ceiling
+                    : jwt.getExpiresAt();
+                return Optional.of(new VerifiedToken(new OAuth2Principal(subject, scopes), expiresAt));
             }
         } catch (Exception e) {
             // Token validation failed
         }
         return Optional.empty();
     }
-}
\ No newline at end of file
+
+    static Set<String> parseScopes(String scope) {
+        if (scope == null || scope.trim().isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(scope.trim().split("\\s+"))));
+    }
+
+    private static final class VerifiedToken {
+        final OAuth2Principal principal;
+        final Instant expiresAt;
+
+        VerifiedToken(OAuth2Principal principal, Instant expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
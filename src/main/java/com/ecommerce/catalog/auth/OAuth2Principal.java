@@ -0,0 +1,36 @@
+package com.ecommerce.catalog.auth;
+
+import java.security.Principal;
+import java.util.Set;
+
+/**
+ * Authenticated caller resolved from a verified access token, with the token's scopes parsed
+ * into a set.
+ */
+public final class OAuth2Principal implements Principal {
+    private final String name;
+    private final Set<String> scopes;
+
+    public OAuth2Principal(String name, Set<String> scopes) {
+        this.name = name;
+        this.scopes = scopes;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public Set<String> getScopes() {
+        return scopes;
+    }
+
+    public boolean hasScope(String scope) {
+        return scopes.contains(scope);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
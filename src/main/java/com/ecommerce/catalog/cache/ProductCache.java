@@ -0,0 +1,110 @@
+package com.ecommerce.catalog.cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.ecommerce.catalog.api.ProductView;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache for product detail lookups. Entries are weighed by an estimate
+ * of their retained heap size and expire after a fixed TTL; writes invalidate the entry.
+ * The cached {@link ProductView} carries the category name, so a category rename shows up
+ * in cached details only once the entry expires.
+ */
+public class ProductCache {
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final Cache<Long, ProductView> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(long maxWeightBytes, Duration ttl) {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxWeightBytes)
+            .weigher((Long id, ProductView product) -> weigh(product))
+            .expireAfterWrite(ttl.toMilliseconds(), TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    }
+
+    public Optional<ProductView> get(Long id, Function<Long, Optional<ProductView>> loader) {
+        ProductView cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // Don't let a load that raced with a write put a stale row back into the cache
+        long generation = invalidations.get();
+        Optional<ProductView> loaded = loader.apply(id);
+        if (loaded.isPresent() && invalidations.get() == generation) {
+            cache.put(id, loaded.get());
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns every id that could be resolved, serving what it can from the cache and handing the
+     * rest to {@code loader} in a single call.
+     */
+    public Map<Long, ProductView> getAll(Collection<Long> ids, Function<List<Long>, Map<Long, ProductView>> loader) {
+        Map<Long, ProductView> found = new HashMap<>(ids.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            ProductView cached = cache.getIfPresent(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        long generation = invalidations.get();
+        Map<Long, ProductView> loaded = loader.apply(missing);
+        if (invalidations.get() == generation) {
+            cache.putAll(loaded);
+        }
+        found.putAll(loaded);
+        return found;
+    }
+
+    public void invalidate(Long id) {
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(ProductCache.class, "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.register(MetricRegistry.name(ProductCache.class, "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.register(MetricRegistry.name(ProductCache.class, "evictions"), (Gauge<Long>) () -> cache.stats().evictionCount());
+        metrics.register(MetricRegistry.name(ProductCache.class, "hitRate"), (Gauge<Double>) () -> cache.stats().hitRate());
+        metrics.register(MetricRegistry.name(ProductCache.class, "size"), (Gauge<Long>) cache::size);
+    }
+
+    private static int weigh(ProductView product) {
+        int chars = length(product.name()) + length(product.description()) + length(product.categoryName());
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
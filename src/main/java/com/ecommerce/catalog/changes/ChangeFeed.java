@@ -0,0 +1,145 @@
+package com.ecommerce.catalog.changes;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.ecommerce.catalog.api.ChangePage;
+import com.ecommerce.catalog.db.CatalogChangeDAO;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the {@code catalog_changes} outbox to change feed consumers.
+ * <p>
+ * Long-polling consumers do not query the outbox while they wait. A single poller reads the
+ * latest settled sequence every {@code pollInterval} and wakes every waiter whose cursor it
+ * has passed, so the database sees one cheap {@code MAX(id)} per interval however many
+ * consumers are parked. The same executor prunes changes older than {@code retention} hourly.
+ */
+public class ChangeFeed implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeed.class);
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final CatalogChangeDAO changeDAO;
+    private final ScheduledExecutorService executor;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private volatile long latest;
+
+    /**
+     * @param executor must be single-threaded; polls and prunes are not synchronized
+     */
+    public ChangeFeed(CatalogChangeDAO changeDAO, ScheduledExecutorService executor, Duration pollInterval,
+                      Duration retention) {
+        this.changeDAO = changeDAO;
+        this.executor = executor;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+    }
+
+    @Override
+    public void start() {
+        latest = changeDAO.latestSequence();
+        long pollMillis = pollInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::pollQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::pruneQuietly, 0, PRUNE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            waiter.future.complete(null);
+        }
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(ChangeFeed.class, "latest"), (Gauge<Long>) () -> latest);
+        metrics.register(MetricRegistry.name(ChangeFeed.class, "waiters"), (Gauge<Integer>) waiters::size);
+    }
+
+    /**
+     * Returns up to {@code limit} changes after {@code since}.
+     *
+     * @throws ExpiredCursorException if changes after {@code since} may have been pruned
+     */
+    public ChangePage page(long since, int limit) {
+        if (since > 0) {
+            Long oldest = changeDAO.oldestSequence();
+            if (oldest != null && since < oldest - 1) {
+                throw new ExpiredCursorException(since);
+            }
+        }
+        return changeDAO.findSince(since, limit);
+    }
+
+    /**
+     * Completes once a change after {@code since} has settled, immediately if one already
+     * has. Cancel the future to stop waiting; it also completes when the feed stops.
+     */
+    public CompletableFuture<Void> awaitChange(long since) {
+        if (since < latest) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Waiter waiter = new Waiter(since);
+        waiters.add(waiter);
+        // a poll may have advanced past since between the check and the add
+        if (since < latest) {
+            waiters.remove(waiter);
+            waiter.future.complete(null);
+        }
+        return waiter.future;
+    }
+
+    void poll() {
+        long current = changeDAO.latestSequence();
+        latest = current;
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (waiter.future.isDone()) {
+                it.remove();
+            } else if (waiter.since < current) {
+                it.remove();
+                waiter.future.complete(null);
+            }
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to poll catalog changes", e);
+        }
+    }
+
+    private void pruneQuietly() {
+        try {
+            int pruned = changeDAO.prune(retention);
+            if (pruned > 0) {
+                LOGGER.info("Pruned {} catalog changes older than {}", pruned, retention);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to prune catalog changes", e);
+        }
+    }
+
+    private static final class Waiter {
+        private final long since;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(long since) {
+            this.since = since;
+        }
+    }
+}
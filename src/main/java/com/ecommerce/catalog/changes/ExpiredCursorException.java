@@ -0,0 +1,12 @@
+package com.ecommerce.catalog.changes;
+
+/**
+ * Thrown when a change feed cursor points before the oldest retained change, so changes the
+ * consumer has not seen may already have been pruned. The consumer must resync in full.
+ */
+public class ExpiredCursorException extends RuntimeException {
+
+    public ExpiredCursorException(long since) {
+        super("Cursor " + since + " is older than the retained changes");
+    }
+}
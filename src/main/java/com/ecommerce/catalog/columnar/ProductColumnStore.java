@@ -0,0 +1,237 @@
+package com.ecommerce.catalog.columnar;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.db.ProductChangeListener;
+import com.ecommerce.catalog.db.ProductCursor;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.invalidation.InvalidationListener;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the category and price-range listings from an in-process {@link ProductColumns}
+ * snapshot instead of MySQL. Only the page of ids a scan returns is hydrated, through
+ * {@link ProductDAO#findByIds} and so mostly from the product cache.
+ * <p>
+ * The snapshot is loaded in full on start and every {@code rebuildInterval}. In between, every
+ * {@code refreshInterval} it re-reads the rows whose {@code updated_at} is at or after the
+ * newest one seen, less {@code overlap} to catch transactions that committed out of
+ * {@code updated_at} order or reached the replica late. Local deletes arrive through
+ * {@link ProductChangeListener}; ids other instances wrote arrive through
+ * {@link InvalidationListener}, and those no longer on the primary are deleted at the next
+ * refresh. Until then hydration simply drops them from the page. Listings may therefore trail
+ * writes by up to one refresh interval.
+ */
+public class ProductColumnStore implements Managed, ProductChangeListener, InvalidationListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductColumnStore.class);
+
+    private final ProductDAO productDAO;
+    private final ScheduledExecutorService executor;
+    private final Duration refreshInterval;
+    private final Duration rebuildInterval;
+    private final Duration overlap;
+    private final Set<Long> pendingDeletes = ConcurrentHashMap.newKeySet();
+
+    private volatile ProductColumns columns = ProductColumns.EMPTY;
+    private volatile boolean ready;
+    private volatile long refreshedAt;
+    private LocalDateTime watermark;
+
+    /**
+     * @param executor must be single-threaded; refreshes and rebuilds are not synchronized
+     */
+    public ProductColumnStore(ProductDAO productDAO, ScheduledExecutorService executor, Duration refreshInterval,
+                              Duration rebuildInterval, Duration overlap) {
+        this.productDAO = productDAO;
+        this.executor = executor;
+        this.refreshInterval = refreshInterval;
+        this.rebuildInterval = rebuildInterval;
+        this.overlap = overlap;
+    }
+
+    @Override
+    public void start() {
+        executor.execute(this::rebuildQuietly);
+        long refreshMillis = refreshInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::refreshQuietly, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        long rebuildMillis = rebuildInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::rebuildQuietly, rebuildMillis, rebuildMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(ProductColumnStore.class, "rows"), (Gauge<Integer>) () -> columns.size());
+        metrics.register(MetricRegistry.name(ProductColumnStore.class, "staleness"),
+            (Gauge<Long>) () -> refreshedAt == 0 ? -1L : System.currentTimeMillis() - refreshedAt);
+    }
+
+    @Override
+    public void productSaved(Product product, boolean created) {
+        // picked up by the next refresh
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        pendingDeletes.add(product.getId());
+    }
+
+    /**
+     * Updates are picked up by the next refresh like local ones; deletes leave no row to
+     * refresh from, so the ids that no longer resolve are queued for deletion.
+     */
+    @Override
+    public void invalidate(CatalogChange.Entity entity, Collection<Long> ids) {
+        if (entity != CatalogChange.Entity.PRODUCT) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(ids);
+        for (ProductView product : productDAO.findByIds(ids)) {
+            missing.remove(product.id());
+        }
+        pendingDeletes.addAll(missing);
+    }
+
+    /**
+     * Same listing as {@link ProductDAO#findByCategoryId(Long, int, int)}.
+     */
+    public List<ProductView> findByCategoryId(Long categoryId, int offset, int limit) {
+        ProductColumns snapshot = columns;
+        return hydrate(snapshot.pageByCategory(snapshot.categoryIndex(categoryId), -1, offset, limit));
+    }
+
+    /**
+     * Same listing as {@link ProductDAO#findByCategoryId(Long, ProductCursor, int)}.
+     */
+    public List<ProductView> findByCategoryId(Long categoryId, ProductCursor after, int limit) {
+        if (after != null) {
+            after.requireSortKey(ProductCursor.SortKey.ID);
+        }
+        ProductColumns snapshot = columns;
+        return hydrate(snapshot.pageByCategory(snapshot.categoryIndex(categoryId),
+            after != null ? after.getLastId() : -1, 0, limit));
+    }
+
+    /**
+     * Same listing as {@link ProductDAO#findByPriceRange(BigDecimal, BigDecimal, int, int)}, with
+     * ties on price broken by id.
+     */
+    public List<ProductView> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, int offset, int limit) {
+        return hydrate(columns.pageByPrice(minCents(minPrice), maxCents(maxPrice), 0, -1, offset, limit));
+    }
+
+    /**
+     * Same listing as {@link ProductDAO#findByPriceRange(BigDecimal, BigDecimal, ProductCursor, int)}.
+     */
+    public List<ProductView> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, ProductCursor after, int limit) {
+        if (after == null) {
+            return findByPriceRange(minPrice, maxPrice, 0, limit);
+        }
+        after.requireSortKey(ProductCursor.SortKey.PRICE);
+        return hydrate(columns.pageByPrice(minCents(minPrice), maxCents(maxPrice),
+            ProductColumns.toCents(after.getLastPrice(), RoundingMode.HALF_UP), after.getLastId(), 0, limit));
+    }
+
+    void rebuild() {
+        long started = System.nanoTime();
+        Set<Long> deletes = new HashSet<>(pendingDeletes);
+        ProductColumns.Builder builder = new ProductColumns.Builder();
+        LocalDateTime[] newest = {null};
+        productDAO.scrollColumns(null, (id, price, stock, status, categoryId, updatedAt) -> {
+            builder.add(id, price, stock, status, categoryId);
+            newest[0] = later(newest[0], updatedAt);
+        });
+        columns = builder.build();
+        watermark = newest[0];
+        pendingDeletes.removeAll(deletes);
+        refreshedAt = System.currentTimeMillis();
+        if (!ready) {
+            ready = true;
+            LOGGER.info("Product column store loaded {} products in {} ms",
+                builder.size(), (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    void refresh() {
+        ProductColumns snapshot = columns;
+        Set<Long> deletes = new HashSet<>(pendingDeletes);
+        ProductColumns.Builder changes = new ProductColumns.Builder();
+        LocalDateTime[] newest = {watermark};
+        productDAO.scrollColumns(watermark == null ? null : watermark.minusNanos(overlap.toNanoseconds()),
+            (id, price, stock, status, categoryId, updatedAt) -> {
+                newest[0] = later(newest[0], updatedAt);
+                if (!snapshot.contains(id, ProductColumns.toCents(price, RoundingMode.HALF_UP), stock, status, categoryId)) {
+                    changes.add(id, price, stock, status, categoryId);
+                }
+            });
+        if (changes.size() > 0 || !deletes.isEmpty()) {
+            columns = snapshot.merge(changes, deletes);
+        }
+        watermark = newest[0];
+        pendingDeletes.removeAll(deletes);
+        refreshedAt = System.currentTimeMillis();
+    }
+
+    private List<ProductView> hydrate(long[] ids) {
+        List<Long> page = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            page.add(id);
+        }
+        return productDAO.findByIds(page);
+    }
+
+    private static long minCents(BigDecimal minPrice) {
+        return minPrice == null ? Long.MIN_VALUE : ProductColumns.toCents(minPrice, RoundingMode.CEILING);
+    }
+
+    private static long maxCents(BigDecimal maxPrice) {
+        return maxPrice == null ? Long.MAX_VALUE : ProductColumns.toCents(maxPrice, RoundingMode.FLOOR);
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        return a == null || (b != null && b.isAfter(a)) ? b : a;
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to rebuild product column store", e);
+        }
+    }
+
+    private void refreshQuietly() {
+        if (!ready) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to refresh product column store", e);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.ecommerce.catalog.columnar;
+
+import com.ecommerce.catalog.model.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable column-oriented copy of the filterable product columns. Row {@code r} is spread
+ * over primitive arrays in ascending id order: price in cents, stock, status ordinal and an
+ * index into a category dictionary. {@link #byPrice} holds the row numbers ordered by
+ * {@code (price, id)}, so price-range pages are a binary search plus an array slice.
+ * <p>
+ * Scans allocate nothing but the page of ids they return. Changes are applied by merging a
+ * small id-ordered batch into a new instance, which readers pick up with a single volatile read.
+ */
+final class ProductColumns {
+
+    static final int NO_CATEGORY = -1;
+    static final int UNKNOWN_CATEGORY = -2;
+
+    static final ProductColumns EMPTY = new Builder().build();
+
+    private final int size;
+    private final long[] ids;
+    private final long[] priceCents;
+    private final int[] stock;
+    private final byte[] status;
+    private final int[] category;
+    private final int[] byPrice;
+    private final long[] categoryIds;
+    private final Map<Long, Integer> categoryIndex;
+
+    private ProductColumns(int size, long[] ids, long[] priceCents, int[] stock, byte[] status, int[] category,
+                           int[] byPrice, long[] categoryIds, Map<Long, Integer> categoryIndex) {
+        this.size = size;
+        this.ids = ids;
+        this.priceCents = priceCents;
+        this.stock = stock;
+        this.status = status;
+        this.category = category;
+        this.byPrice = byPrice;
+        this.categoryIds = categoryIds;
+        this.categoryIndex = categoryIndex;
+    }
+
+    int size() {
+        return size;
+    }
+
+    static long toCents(BigDecimal price, RoundingMode rounding) {
+        return price.movePointRight(2).setScale(0, rounding).longValueExact();
+    }
+
+    /**
+     * @return the dictionary index of {@code categoryId}, {@link #NO_CATEGORY} for {@code null},
+     *         or {@link #UNKNOWN_CATEGORY} if no row has that category
+     */
+    int categoryIndex(Long categoryId) {
+        if (categoryId == null) {
+            return NO_CATEGORY;
+        }
+        Integer index = categoryIndex.get(categoryId);
+        return index == null ? UNKNOWN_CATEGORY : index;
+    }
+
+    /**
+     * Ids of the rows in category {@code categoryIndex} in id order, starting after {@code afterId}
+     * (or from the first row when negative) and skipping {@code offset} matches.
+     */
+    long[] pageByCategory(int categoryIndex, long afterId, int offset, int limit) {
+        if (categoryIndex == UNKNOWN_CATEGORY) {
+            return new long[0];
+        }
+        long[] page = new long[Math.max(0, Math.min(limit, size))];
+        int n = 0;
+        int skipped = 0;
+        for (int r = afterId < 0 ? 0 : firstIdAfter(afterId); r < size && n < page.length; r++) {
+            if (category[r] == categoryIndex) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page[n++] = ids[r];
+                }
+            }
+        }
+        return n == page.length ? page : Arrays.copyOf(page, n);
+    }
+
+    /**
+     * Ids of the rows priced within {@code [minCents, maxCents]} in {@code (price, id)} order,
+     * starting after {@code (afterCents, afterId)} when {@code afterId} is non-negative and
+     * skipping {@code offset} rows.
+     */
+    long[] pageByPrice(long minCents, long maxCents, long afterCents, long afterId, int offset, int limit) {
+        int from = firstPriceAtLeast(minCents);
+        if (afterId >= 0) {
+            from = Math.max(from, firstPriceAfter(afterCents, afterId));
+        }
+        from = (int) Math.min((long) from + Math.max(0, offset), size);
+
+        long[] page = new long[Math.max(0, Math.min(limit, size - from))];
+        int n = 0;
+        for (int p = from; n < page.length; p++) {
+            int r = byPrice[p];
+            if (priceCents[r] > maxCents) {
+                break;
+            }
+            page[n++] = ids[r];
+        }
+        return n == page.length ? page : Arrays.copyOf(page, n);
+    }
+
+    /**
+     * @return {@code true} if {@code id} is present with exactly these values
+     */
+    boolean contains(long id, long priceCents, int stock, Product.ProductStatus status, Long categoryId) {
+        int r = Arrays.binarySearch(ids, 0, size, id);
+        return r >= 0
+            && this.priceCents[r] == priceCents
+            && this.stock[r] == stock
+            && this.status[r] == (byte) status.ordinal()
+            && category[r] == categoryIndex(categoryId);
+    }
+
+    /**
+     * Returns a copy with {@code changes} upserted and {@code deletes} removed. Unchanged rows
+     * keep their relative {@code (price, id)} order, so only the changed rows need sorting.
+     */
+    ProductColumns merge(Builder changes, Set<Long> deletes) {
+        Builder merged = new Builder(size + changes.size, categoryIds, categoryIndex);
+        int[] remap = new int[size];
+        int[] changedRows = new int[changes.size];
+        int changed = 0;
+        int old = 0;
+        int next = 0;
+        while (old < size || next < changes.size) {
+            if (next < changes.size && (old == size || changes.ids[next] <= ids[old])) {
+                if (old < size && changes.ids[next] == ids[old]) {
+                    remap[old++] = -1;
+                }
+                if (!deletes.contains(changes.ids[next])) {
+                    changedRows[changed++] = merged.size;
+                    int changedCategory = changes.category[next];
+                    merged.add(changes.ids[next], changes.priceCents[next], changes.stock[next], changes.status[next],
+                        changedCategory == NO_CATEGORY ? null : changes.categoryIds[changedCategory]);
+                }
+                next++;
+            } else if (deletes.contains(ids[old])) {
+                remap[old++] = -1;
+            } else {
+                remap[old] = merged.size;
+                merged.add(ids[old], priceCents[old], stock[old], status[old], category[old]);
+                old++;
+            }
+        }
+
+        int[] kept = new int[merged.size];
+        int k = 0;
+        for (int p = 0; p < size; p++) {
+            int target = remap[byPrice[p]];
+            if (target >= 0) {
+                kept[k++] = target;
+            }
+        }
+        int[] sortedChanges = Arrays.copyOf(changedRows, changed);
+        merged.sortByPrice(sortedChanges);
+
+        int[] order = new int[merged.size];
+        int a = 0;
+        int b = 0;
+        for (int p = 0; p < order.length; p++) {
+            if (b == changed || (a < k && merged.comparePrice(kept[a], sortedChanges[b]) <= 0)) {
+                order[p] = kept[a++];
+            } else {
+                order[p] = sortedChanges[b++];
+            }
+        }
+        return merged.build(order);
+    }
+
+    private int firstIdAfter(long id) {
+        int r = Arrays.binarySearch(ids, 0, size, id);
+        return r >= 0 ? r + 1 : -r - 1;
+    }
+
+    private int firstPriceAtLeast(long cents) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (priceCents[byPrice[mid]] < cents) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int firstPriceAfter(long cents, long id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int r = byPrice[mid];
+            if (priceCents[r] < cents || (priceCents[r] == cents && ids[r] <= id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Accumulates rows in ascending id order.
+     */
+    static final class Builder {
+        private int size;
+        private long[] ids;
+        private long[] priceCents;
+        private int[] stock;
+        private byte[] status;
+        private int[] category;
+        private long[] categoryIds;
+        private final Map<Long, Integer> categoryIndex;
+
+        Builder() {
+            this(1024, new long[0], new HashMap<>());
+        }
+
+        private Builder(int capacity, long[] categoryIds, Map<Long, Integer> categoryIndex) {
+            capacity = Math.max(16, capacity);
+            this.ids = new long[capacity];
+            this.priceCents = new long[capacity];
+            this.stock = new int[capacity];
+            this.status = new byte[capacity];
+            this.category = new int[capacity];
+            this.categoryIds = categoryIds;
+            this.categoryIndex = new HashMap<>(categoryIndex);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @throws IllegalArgumentException if {@code id} does not follow the previous row's id
+         */
+        void add(long id, BigDecimal price, int stockQuantity, Product.ProductStatus productStatus, Long categoryId) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Rows must be added in ascending id order");
+            }
+            add(id, toCents(price, RoundingMode.HALF_UP), stockQuantity, (byte) productStatus.ordinal(), categoryId);
+        }
+
+        private void add(long id, long cents, int stockQuantity, byte productStatus, Long categoryId) {
+            int index = NO_CATEGORY;
+            if (categoryId != null) {
+                index = categoryIndex.computeIfAbsent(categoryId, key -> {
+                    categoryIds = Arrays.copyOf(categoryIds, categoryIds.length + 1);
+                    categoryIds[categoryIds.length - 1] = key;
+                    return categoryIds.length - 1;
+                });
+            }
+            add(id, cents, stockQuantity, productStatus, index);
+        }
+
+        private void add(long id, long cents, int stockQuantity, byte productStatus, int categoryIndex) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                priceCents = Arrays.copyOf(priceCents, capacity);
+                stock = Arrays.copyOf(stock, capacity);
+                status = Arrays.copyOf(status, capacity);
+                category = Arrays.copyOf(category, capacity);
+            }
+            ids[size] = id;
+            priceCents[size] = cents;
+            stock[size] = stockQuantity;
+            status[size] = productStatus;
+            category[size] = categoryIndex;
+            size++;
+        }
+
+        ProductColumns build() {
+            int[] order = new int[size];
+            for (int r = 0; r < size; r++) {
+                order[r] = r;
+            }
+            sortByPrice(order);
+            return build(order);
+        }
+
+        private ProductColumns build(int[] byPrice) {
+            return new ProductColumns(size, ids, priceCents, stock, status, category, byPrice, categoryIds, categoryIndex);
+        }
+
+        private int comparePrice(int a, int b) {
+            int byCents = Long.compare(priceCents[a], priceCents[b]);
+            return byCents != 0 ? byCents : Long.compare(ids[a], ids[b]);
+        }
+
+        /**
+         * Bottom-up merge sort of row numbers by {@code (price, id)}, without boxing them.
+         */
+        private void sortByPrice(int[] rows) {
+            int[] source = rows;
+            int[] target = new int[rows.length];
+            for (int width = 1; width < rows.length; width *= 2) {
+                for (int lo = 0; lo < rows.length; lo += 2 * width) {
+                    int mid = Math.min(lo + width, rows.length);
+                    int hi = Math.min(lo + 2 * width, rows.length);
+                    int a = lo;
+                    int b = mid;
+                    for (int p = lo; p < hi; p++) {
+                        target[p] = b == hi || (a < mid && comparePrice(source[a], source[b]) <= 0) ? source[a++] : source[b++];
+                    }
+                }
+                int[] swap = source;
+                source = target;
+                target = swap;
+            }
+            if (source != rows) {
+                System.arraycopy(source, 0, rows, 0, rows.length);
+            }
+        }
+    }
+}
@@ -3,8 +3,12 @@ package com.ecommerce.catalog.config;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.core.Configuration;
 import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.util.Duration;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 
 public class EcommerceCatalogConfiguration extends Configuration {
     
@@ -13,6 +17,11 @@ public class EcommerceCatalogConfiguration extends Configuration {
     @JsonProperty("database")
     private DataSourceFactory database = new DataSourceFactory();
     
+    /** Optional read replica for listing and search queries; unset routes every read to {@code database}. */
+    @Valid
+    @JsonProperty("readReplica")
+    private DataSourceFactory readReplica;
+    
     @JsonProperty("oauth2")
     private OAuth2Config oauth2Config = new OAuth2Config();
     
@@ -27,6 +36,14 @@ public class EcommerceCatalogConfiguration extends Configuration {
         this.database = factory;
     }
 
+    public DataSourceFactory getReadReplica() {
+        return readReplica;
+    }
+
+    public void setReadReplica(DataSourceFactory readReplica) {
+        this.readReplica = readReplica;
+    }
+
     public OAuth2Config getOAuth2Config() {
         return oauth2Config;
     }
@@ -58,6 +75,12 @@ public class EcommerceCatalogConfiguration extends Configuration {
         
         @JsonProperty("userInfoEndpoint")
         private String userInfoEndpoint = "https://auth.example.com/oauth/userinfo";
+        
+        @JsonProperty("tokenCacheSize")
+        private long tokenCacheSize = 10_000;
+        
+        @JsonProperty("rejectedTokenTtl")
+        private Duration rejectedTokenTtl = Duration.seconds(30);
 
         public String getClientId() { return clientId; }
         public void setClientId(String clientId) { this.clientId = clientId; }
@@ -73,6 +96,12 @@ public class EcommerceCatalogConfiguration extends Configuration {
         
         public String getUserInfoEndpoint() { return userInfoEndpoint; }
         public void setUserInfoEndpoint(String userInfoEndpoint) { this.userInfoEndpoint = userInfoEndpoint; }
+        
+        public long getTokenCacheSize() { return tokenCacheSize; }
+        public void setTokenCacheSize(long tokenCacheSize) { this.tokenCacheSize = tokenCacheSize; }
+        
+        public Duration getRejectedTokenTtl() { return rejectedTokenTtl; }
+        public void setRejectedTokenTtl(Duration rejectedTokenTtl) { this.rejectedTokenTtl = rejectedTokenTtl; }
     }
 
     public static class CatalogSettings {
@@ -87,6 +116,112 @@ public class EcommerceCatalogConfiguration extends Configuration {
         
         @JsonProperty("stockThreshold")
         private int stockThreshold = 10;
+        
+        @JsonProperty("productCacheMaxWeight")
+        private long productCacheMaxWeight = 64L * 1024 * 1024;
+        
+        @JsonProperty("productCacheTtl")
+        private Duration productCacheTtl = Duration.minutes(5);
+        
+        @JsonProperty("fullTextMinTermLength")
+        private int fullTextMinTermLength = 3;
+        
+        @JsonProperty("inMemorySearchEnabled")
+        private boolean inMemorySearchEnabled = false;
+        
+        @JsonProperty("countReconcileInterval")
+        private Duration countReconcileInterval = Duration.minutes(5);
+        
+        @JsonProperty("batchChunkSize")
+        private int batchChunkSize = 500;
+        
+        @JsonProperty("httpCacheMaxAge")
+        private Duration httpCacheMaxAge = Duration.seconds(30);
+        
+        @JsonProperty("cdnCacheMaxAge")
+        private Duration cdnCacheMaxAge = Duration.minutes(5);
+        
+        @JsonProperty("maxLookupIds")
+        private int maxLookupIds = 500;
+        
+        @JsonProperty("hotStockJournalDir")
+        private String hotStockJournalDir = "./data/stock-journal";
+        
+        @JsonProperty("hotStockLedgerName")
+        private String hotStockLedgerName = null;
+        
+        @JsonProperty("hotStockFlushInterval")
+        private Duration hotStockFlushInterval = Duration.seconds(1);
+        
+        @JsonProperty("hotStockSyncInterval")
+        private Duration hotStockSyncInterval = Duration.milliseconds(10);
+        
+        @JsonProperty("hotStockEnabled")
+        private boolean hotStockEnabled = false;
+        
+        @JsonProperty("replicaMaxLag")
+        private Duration replicaMaxLag = Duration.seconds(2);
+        
+        @JsonProperty("replicaLagCheckInterval")
+        private Duration replicaLagCheckInterval = Duration.milliseconds(500);
+        
+        @JsonProperty("primaryStickiness")
+        private Duration primaryStickiness = Duration.seconds(5);
+        
+        @JsonProperty("asyncResourcesEnabled")
+        private boolean asyncResourcesEnabled = false;
+        
+        @JsonProperty("asyncPermitTimeout")
+        private Duration asyncPermitTimeout = Duration.seconds(5);
+        
+        @JsonProperty("columnStoreEnabled")
+        private boolean columnStoreEnabled = false;
+        
+        @JsonProperty("columnStoreRefreshInterval")
+        private Duration columnStoreRefreshInterval = Duration.seconds(1);
+        
+        @JsonProperty("columnStoreRebuildInterval")
+        private Duration columnStoreRebuildInterval = Duration.minutes(10);
+        
+        @JsonProperty("columnStoreRefreshOverlap")
+        private Duration columnStoreRefreshOverlap = Duration.seconds(5);
+        
+        @JsonProperty("changeFeedSettleTime")
+        private Duration changeFeedSettleTime = Duration.seconds(2);
+        
+        @JsonProperty("changeFeedPollInterval")
+        private Duration changeFeedPollInterval = Duration.milliseconds(250);
+        
+        @JsonProperty("changeFeedMaxWait")
+        private Duration changeFeedMaxWait = Duration.seconds(20);
+        
+        @JsonProperty("changeFeedMaxPageSize")
+        private int changeFeedMaxPageSize = 1000;
+        
+        @JsonProperty("changeFeedRetention")
+        private Duration changeFeedRetention = Duration.days(7);
+        
+        @JsonProperty("invalidationBus")
+        private String invalidationBus = "database";
+        
+        @JsonProperty("invalidationPollInterval")
+        private Duration invalidationPollInterval = Duration.milliseconds(100);
+        
+        @JsonProperty("invalidationMulticastGroup")
+        private String invalidationMulticastGroup = "239.255.42.99";
+        
+        @JsonProperty("invalidationMulticastPort")
+        private int invalidationMulticastPort = 45700;
+        
+        @JsonProperty("invalidationMulticastInterface")
+        private String invalidationMulticastInterface = null;
+        
+        @JsonProperty("invalidationMulticastTtl")
+        private int invalidationMulticastTtl = 1;
+        
+        @JsonProperty("facetPriceBands")
+        private List<BigDecimal> facetPriceBands = Arrays.asList(new BigDecimal("25"), new BigDecimal("50"),
+            new BigDecimal("100"), new BigDecimal("250"), new BigDecimal("500"), new BigDecimal("1000"));
 
         public int getMaxProductsPerPage() { return maxProductsPerPage; }
         public void setMaxProductsPerPage(int maxProductsPerPage) { this.maxProductsPerPage = maxProductsPerPage; }
@@ -99,5 +234,110 @@ public class EcommerceCatalogConfiguration extends Configuration {
         
         public int getStockThreshold() { return stockThreshold; }
         public void setStockThreshold(int stockThreshold) { this.stockThreshold = stockThreshold; }
+        
+        public long getProductCacheMaxWeight() { return productCacheMaxWeight; }
+        public void setProductCacheMaxWeight(long productCacheMaxWeight) { this.productCacheMaxWeight = productCacheMaxWeight; }
+        
+        public Duration getProductCacheTtl() { return productCacheTtl; }
+        public void setProductCacheTtl(Duration productCacheTtl) { this.productCacheTtl = productCacheTtl; }
+        
+        public int getFullTextMinTermLength() { return fullTextMinTermLength; }
+        public void setFullTextMinTermLength(int fullTextMinTermLength) { this.fullTextMinTermLength = fullTextMinTermLength; }
+        
+        public boolean isInMemorySearchEnabled() { return inMemorySearchEnabled; }
+        public void setInMemorySearchEnabled(boolean inMemorySearchEnabled) { this.inMemorySearchEnabled = inMemorySearchEnabled; }
+        
+        public Duration getCountReconcileInterval() { return countReconcileInterval; }
+        public void setCountReconcileInterval(Duration countReconcileInterval) { this.countReconcileInterval = countReconcileInterval; }
+        
+        public int getBatchChunkSize() { return batchChunkSize; }
+        public void setBatchChunkSize(int batchChunkSize) { this.batchChunkSize = batchChunkSize; }
+        
+        public Duration getHttpCacheMaxAge() { return httpCacheMaxAge; }
+        public void setHttpCacheMaxAge(Duration httpCacheMaxAge) { this.httpCacheMaxAge = httpCacheMaxAge; }
+        
+        public Duration getCdnCacheMaxAge() { return cdnCacheMaxAge; }
+        public void setCdnCacheMaxAge(Duration cdnCacheMaxAge) { this.cdnCacheMaxAge = cdnCacheMaxAge; }
+        
+        public int getMaxLookupIds() { return maxLookupIds; }
+        public void setMaxLookupIds(int maxLookupIds) { this.maxLookupIds = maxLookupIds; }
+        
+        public String getHotStockJournalDir() { return hotStockJournalDir; }
+        public void setHotStockJournalDir(String hotStockJournalDir) { this.hotStockJournalDir = hotStockJournalDir; }
+        
+        public String getHotStockLedgerName() { return hotStockLedgerName; }
+        public void setHotStockLedgerName(String hotStockLedgerName) { this.hotStockLedgerName = hotStockLedgerName; }
+        
+        public Duration getHotStockFlushInterval() { return hotStockFlushInterval; }
+        public void setHotStockFlushInterval(Duration hotStockFlushInterval) { this.hotStockFlushInterval = hotStockFlushInterval; }
+        
+        public Duration getHotStockSyncInterval() { return hotStockSyncInterval; }
+        public void setHotStockSyncInterval(Duration hotStockSyncInterval) { this.hotStockSyncInterval = hotStockSyncInterval; }
+        
+        public boolean isHotStockEnabled() { return hotStockEnabled; }
+        public void setHotStockEnabled(boolean hotStockEnabled) { this.hotStockEnabled = hotStockEnabled; }
+        
+        public Duration getReplicaMaxLag() { return replicaMaxLag; }
+        public void setReplicaMaxLag(Duration replicaMaxLag) { this.replicaMaxLag = replicaMaxLag; }
+        
+        public Duration getReplicaLagCheckInterval() { return replicaLagCheckInterval; }
+        public void setReplicaLagCheckInterval(Duration replicaLagCheckInterval) { this.replicaLagCheckInterval = replicaLagCheckInterval; }
+        
+        public Duration getPrimaryStickiness() { return primaryStickiness; }
+        public void setPrimaryStickiness(Duration primaryStickiness) { this.primaryStickiness = primaryStickiness; }
+        
+        public boolean isAsyncResourcesEnabled() { return asyncResourcesEnabled; }
+        public void setAsyncResourcesEnabled(boolean asyncResourcesEnabled) { this.asyncResourcesEnabled = asyncResourcesEnabled; }
+        
+        public Duration getAsyncPermitTimeout() { return asyncPermitTimeout; }
+        public void setAsyncPermitTimeout(Duration asyncPermitTimeout) { this.asyncPermitTimeout = asyncPermitTimeout; }
+        
+        public List<BigDecimal> getFacetPriceBands() { return facetPriceBands; }
+        public void setFacetPriceBands(List<BigDecimal> facetPriceBands) { this.facetPriceBands = facetPriceBands; }
+        
+        public boolean isColumnStoreEnabled() { return columnStoreEnabled; }
+        public void setColumnStoreEnabled(boolean columnStoreEnabled) { this.columnStoreEnabled = columnStoreEnabled; }
+        
+        public Duration getColumnStoreRefreshInterval() { return columnStoreRefreshInterval; }
+        public void setColumnStoreRefreshInterval(Duration columnStoreRefreshInterval) { this.columnStoreRefreshInterval = columnStoreRefreshInterval; }
+        
+        public Duration getColumnStoreRebuildInterval() { return columnStoreRebuildInterval; }
+        public void setColumnStoreRebuildInterval(Duration columnStoreRebuildInterval) { this.columnStoreRebuildInterval = columnStoreRebuildInterval; }
+        
+        public Duration getColumnStoreRefreshOverlap() { return columnStoreRefreshOverlap; }
+        public void setColumnStoreRefreshOverlap(Duration columnStoreRefreshOverlap) { this.columnStoreRefreshOverlap = columnStoreRefreshOverlap; }
+        
+        public Duration getChangeFeedSettleTime() { return changeFeedSettleTime; }
+        public void setChangeFeedSettleTime(Duration changeFeedSettleTime) { this.changeFeedSettleTime = changeFeedSettleTime; }
+        
+        public Duration getChangeFeedPollInterval() { return changeFeedPollInterval; }
+        public void setChangeFeedPollInterval(Duration changeFeedPollInterval) { this.changeFeedPollInterval = changeFeedPollInterval; }
+        
+        public Duration getChangeFeedMaxWait() { return changeFeedMaxWait; }
+        public void setChangeFeedMaxWait(Duration changeFeedMaxWait) { this.changeFeedMaxWait = changeFeedMaxWait; }
+        
+        public int getChangeFeedMaxPageSize() { return changeFeedMaxPageSize; }
+        public void setChangeFeedMaxPageSize(int changeFeedMaxPageSize) { this.changeFeedMaxPageSize = changeFeedMaxPageSize; }
+        
+        public Duration getChangeFeedRetention() { return changeFeedRetention; }
+        public void setChangeFeedRetention(Duration changeFeedRetention) { this.changeFeedRetention = changeFeedRetention; }
+        
+        public String getInvalidationBus() { return invalidationBus; }
+        public void setInvalidationBus(String invalidationBus) { this.invalidationBus = invalidationBus; }
+        
+        public Duration getInvalidationPollInterval() { return invalidationPollInterval; }
+        public void setInvalidationPollInterval(Duration invalidationPollInterval) { this.invalidationPollInterval = invalidationPollInterval; }
+        
+        public String getInvalidationMulticastGroup() { return invalidationMulticastGroup; }
+        public void setInvalidationMulticastGroup(String invalidationMulticastGroup) { this.invalidationMulticastGroup = invalidationMulticastGroup; }
+        
+        public int getInvalidationMulticastPort() { return invalidationMulticastPort; }
+        public void setInvalidationMulticastPort(int invalidationMulticastPort) { this.invalidationMulticastPort = invalidationMulticastPort; }
+        
+        public String getInvalidationMulticastInterface() { return invalidationMulticastInterface; }
+        public void setInvalidationMulticastInterface(String invalidationMulticastInterface) { this.invalidationMulticastInterface = invalidationMulticastInterface; }
+        
+        public int getInvalidationMulticastTtl() { return invalidationMulticastTtl; }
+        public void setInvalidationMulticastTtl(int invalidationMulticastTtl) { this.invalidationMulticastTtl = invalidationMulticastTtl; }
     }
 }
\ No newline at end of file
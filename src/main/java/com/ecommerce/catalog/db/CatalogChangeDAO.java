@@ -0,0 +1,197 @@
+package com.ecommerce.catalog.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.api.ChangePage;
+import io.dropwizard.util.Duration;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import javax.transaction.Synchronization;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The {@code catalog_changes} outbox. {@link ProductDAO} and {@link CategoryDAO} append to it
+ * in the same transaction as every write, so a change is in the feed exactly when it committed.
+ * <p>
+ * Sequence numbers are allocated at insert time, not at commit, so a transaction that commits
+ * late could appear behind a sequence a reader already passed. {@link #record} therefore defers
+ * the insert to just before the transaction commits, however long the transaction ran, and
+ * readers only see changes older than {@code settleTime}, which need only exceed the time a
+ * commit takes.
+ */
+public class CatalogChangeDAO {
+    private static final int PRUNE_BATCH_SIZE = 10_000;
+
+    private final SessionFactory sessionFactory;
+    private final Duration settleTime;
+    private final DaoTimers timers = new DaoTimers(CatalogChangeDAO.class);
+
+    public CatalogChangeDAO(SessionFactory sessionFactory, Duration settleTime) {
+        this.sessionFactory = sessionFactory;
+        this.settleTime = settleTime;
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        timers.register(metrics);
+    }
+
+    /**
+     * Appends one change per id within the session's current transaction. The rows are inserted
+     * when the transaction is about to commit, so their sequence and {@code changed_at} trail the
+     * commit by one statement rather than by the length of the transaction, and a failed insert
+     * fails the commit.
+     */
+    static void record(Session session, CatalogChange.Entity entity, Collection<Long> ids,
+                       CatalogChange.Operation operation) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> recorded = new ArrayList<>(ids);
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                insert(session, entity, recorded, operation);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+            }
+        });
+    }
+
+    private static void insert(Session session, CatalogChange.Entity entity, List<Long> ids,
+                               CatalogChange.Operation operation) {
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO catalog_changes (entity, entity_id, operation) VALUES (?, ?, ?)")) {
+                for (Long id : ids) {
+                    statement.setString(1, entity.name());
+                    statement.setLong(2, id);
+                    statement.setString(3, operation.name());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} settled changes after sequence {@code since}, collapsed per entity.
+     */
+    public ChangePage findSince(long since, int limit) {
+        try (Timer.Context ignored = timers.time("findSince")) {
+            try (Session session = UnitOfWork.openSession(sessionFactory)) {
+                List<?> rows = session.createNativeQuery(
+                        "SELECT id, entity, entity_id, operation, changed_at FROM catalog_changes "
+                            + "WHERE id > :since AND changed_at <= TIMESTAMPADD(MICROSECOND, :settle, CURRENT_TIMESTAMP(3)) "
+                            + "ORDER BY id")
+                    .setParameter("since", since)
+                    .setParameter("settle", -settleTime.toMicroseconds())
+                    .setMaxResults(limit)
+                    .getResultList();
+                return ChangePage.collapse(toChanges(rows), since);
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} changes after sequence {@code after}, including ones that have
+     * not settled yet, uncollapsed and in sequence order.
+     */
+    public List<CatalogChange> findAfter(long after, int limit) {
+        try (Timer.Context ignored = timers.time("findAfter")) {
+            try (Session session = UnitOfWork.openSession(sessionFactory)) {
+                List<?> rows = session.createNativeQuery(
+                        "SELECT id, entity, entity_id, operation, changed_at FROM catalog_changes "
+                            + "WHERE id > :after ORDER BY id")
+                    .setParameter("after", after)
+                    .setMaxResults(limit)
+                    .getResultList();
+                return toChanges(rows);
+            }
+        }
+    }
+
+    /**
+     * The highest settled sequence, or {@code 0} if there is none.
+     */
+    public long latestSequence() {
+        try (Timer.Context ignored = timers.time("latestSequence")) {
+            try (Session session = UnitOfWork.openSession(sessionFactory)) {
+                Object latest = session.createNativeQuery(
+                        "SELECT MAX(id) FROM catalog_changes "
+                            + "WHERE changed_at <= TIMESTAMPADD(MICROSECOND, :settle, CURRENT_TIMESTAMP(3))")
+                    .setParameter("settle", -settleTime.toMicroseconds())
+                    .uniqueResult();
+                return latest == null ? 0L : ((Number) latest).longValue();
+            }
+        }
+    }
+
+    /**
+     * The lowest sequence still retained, or {@code null} if the outbox is empty.
+     */
+    public Long oldestSequence() {
+        try (Timer.Context ignored = timers.time("oldestSequence")) {
+            try (Session session = UnitOfWork.openSession(sessionFactory)) {
+                Object oldest = session.createNativeQuery("SELECT MIN(id) FROM catalog_changes").uniqueResult();
+                return oldest == null ? null : ((Number) oldest).longValue();
+            }
+        }
+    }
+
+    /**
+     * Deletes changes older than {@code retention} in batches of {@value #PRUNE_BATCH_SIZE}, each
+     * in its own transaction so no long lock is held on the outbox.
+     *
+     * @return the number of changes deleted
+     */
+    public int prune(Duration retention) {
+        try (Timer.Context ignored = timers.time("prune")) {
+            int total = 0;
+            int deleted;
+            do {
+                Session session = sessionFactory.openSession();
+                Transaction transaction = session.beginTransaction();
+                
+                try {
+                    deleted = session.createNativeQuery(
+                            "DELETE FROM catalog_changes "
+                                + "WHERE changed_at < TIMESTAMPADD(SECOND, :retention, CURRENT_TIMESTAMP(3)) LIMIT "
+                                + PRUNE_BATCH_SIZE)
+                        .setParameter("retention", -retention.toSeconds())
+                        .executeUpdate();
+                    transaction.commit();
+                } catch (Exception e) {
+                    transaction.rollback();
+                    throw e;
+                } finally {
+                    session.close();
+                }
+                total += deleted;
+            } while (deleted == PRUNE_BATCH_SIZE);
+            return total;
+        }
+    }
+
+    private static List<CatalogChange> toChanges(List<?> rows) {
+        List<CatalogChange> changes = new ArrayList<>(rows.size());
+        for (Object result : rows) {
+            Object[] row = (Object[]) result;
+            changes.add(new CatalogChange(
+                ((Number) row[0]).longValue(),
+                CatalogChange.Entity.valueOf((String) row[1]),
+                ((Number) row[2]).longValue(),
+                CatalogChange.Operation.valueOf((String) row[3]),
+                ((Timestamp) row[4]).toLocalDateTime()));
+        }
+        return changes;
+    }
+}
@@ -1,6 +1,13 @@
 package com.ecommerce.catalog.db;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.api.CategoryView;
+import com.ecommerce.catalog.api.MergePatch;
+import com.ecommerce.catalog.invalidation.InvalidationBus;
 import com.ecommerce.catalog.model.Category;
+import com.ecommerce.catalog.model.Product;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
@@ -8,128 +15,314 @@ import org.hibernate.query.Query;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Category reads are served from an in-memory {@link CategoryTree} snapshot. The table is
+ * small and rarely written, so every committed write simply reloads the whole tree and
+ * swaps it in atomically; readers never lock.
+ */
 public class CategoryDAO {
     private final SessionFactory sessionFactory;
+    private final ProductDAO productDAO;
+    private final InvalidationBus invalidationBus;
+    private final AtomicReference<CategoryTree> snapshot = new AtomicReference<>();
+    private final DaoTimers timers = new DaoTimers(CategoryDAO.class);
 
     public CategoryDAO(SessionFactory sessionFactory) {
+        this(sessionFactory, null, null);
+    }
+
+    /**
+     * @param productDAO evicts and notifies its listeners for the products a category delete
+     *     cascades to
+     * @param invalidationBus told the ids of every committed write so other replicas reload their tree
+     */
+    public CategoryDAO(SessionFactory sessionFactory, ProductDAO productDAO, InvalidationBus invalidationBus) {
         this.sessionFactory = sessionFactory;
+        this.productDAO = productDAO;
+        this.invalidationBus = invalidationBus;
     }
 
-    public Optional<Category> findById(Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            Category category = session.get(Category.class, id);
-            return Optional.ofNullable(category);
+    public void registerMetrics(MetricRegistry metrics) {
+        timers.register(metrics);
+    }
+
+    public CategoryTree tree() {
+        CategoryTree tree = snapshot.get();
+        if (tree == null) {
+            snapshot.compareAndSet(null, loadTree());
+            tree = snapshot.get();
         }
+        return tree;
     }
 
-    public List<Category> findAll() {
-        try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Category> criteria = builder.createQuery(Category.class);
-            Root<Category> root = criteria.from(Category.class);
-            
-            criteria.select(root);
-            criteria.orderBy(builder.asc(root.get("name")));
-            
-            Query<Category> query = session.createQuery(criteria);
-            return query.getResultList();
+    /**
+     * Reloads the snapshot from the database. Synchronized so that a reload which started
+     * before a later commit can never overwrite the snapshot taken after it.
+     */
+    public synchronized void refresh() {
+        try (Timer.Context ignored = timers.time("refresh")) {
+            snapshot.set(loadTree());
         }
     }
 
-    public List<Category> findRootCategories() {
-        try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Category> criteria = builder.createQuery(Category.class);
-            Root<Category> root = criteria.from(Category.class);
-            
-            criteria.select(root);
-            criteria.where(builder.isNull(root.get("parent")));
-            criteria.orderBy(builder.asc(root.get("name")));
-            
-            Query<Category> query = session.createQuery(criteria);
-            return query.getResultList();
+    public Optional<CategoryView> findById(Long id) {
+        try (Timer.Context ignored = timers.time("findById")) {
+            return tree().findById(id);
         }
     }
 
-    public List<Category> findByParentId(Long parentId) {
-        try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Category> criteria = builder.createQuery(Category.class);
-            Root<Category> root = criteria.from(Category.class);
-            
-            criteria.select(root);
-            criteria.where(builder.equal(root.get("parent").get("id"), parentId));
-            criteria.orderBy(builder.asc(root.get("name")));
-            
-            Query<Category> query = session.createQuery(criteria);
-            return query.getResultList();
+    public List<CategoryView> findAll() {
+        try (Timer.Context ignored = timers.time("findAll")) {
+            return tree().all();
         }
     }
 
-    public Optional<Category> findByName(String name) {
-        try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Category> criteria = builder.createQuery(Category.class);
-            Root<Category> root = criteria.from(Category.class);
-            
-            criteria.select(root);
-            criteria.where(builder.equal(root.get("name"), name));
-            
-            Query<Category> query = session.createQuery(criteria);
-            List<Category> results = query.getResultList();
-            
-            return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    public List<CategoryView> findRootCategories() {
+        try (Timer.Context ignored = timers.time("findRootCategories")) {
+            return tree().roots();
+        }
+    }
+
+    public List<CategoryView> findByParentId(Long parentId) {
+        try (Timer.Context ignored = timers.time("findByParentId")) {
+            return tree().children(parentId);
+        }
+    }
+
+    public List<CategoryView> findSubtree(Long id) {
+        try (Timer.Context ignored = timers.time("findSubtree")) {
+            return tree().subtree(id);
+        }
+    }
+
+    public List<CategoryView> findPath(Long id) {
+        try (Timer.Context ignored = timers.time("findPath")) {
+            return tree().path(id);
+        }
+    }
+
+    public Optional<CategoryView> findByName(String name) {
+        try (Timer.Context ignored = timers.time("findByName")) {
+            return tree().findByName(name);
         }
     }
 
     public Category save(Category category) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = session.beginTransaction();
-        
-        try {
-            session.saveOrUpdate(category);
-            transaction.commit();
+        try (Timer.Context ignored = timers.time("save")) {
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
+            
+            try {
+                if (category.getId() != null && category.getParent() != null) {
+                    requireNoCycle(session, category.getId(), category.getParent().getId());
+                }
+                boolean created = category.getId() == null;
+                session.saveOrUpdate(category);
+                session.flush();
+                category.setVersion(created ? 0L : RowVersions.increment(session, "categories", category.getId()));
+                List<Long> ids = Collections.singletonList(category.getId());
+                CatalogChangeDAO.record(session, CatalogChange.Entity.CATEGORY, ids, CatalogChange.Operation.UPSERT);
+                UnitOfWork.afterCommit(transaction, () -> {
+                    refresh();
+                    publish(CatalogChange.Entity.CATEGORY, ids);
+                });
+                transaction.commit();
+            } catch (Exception e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                session.close();
+            }
+            
             return category;
-        } catch (Exception e) {
-            transaction.rollback();
-            throw e;
-        } finally {
-            session.close();
+        }
+    }
+
+    /**
+     * Applies a merge patch with a single targeted {@code UPDATE} and reloads the snapshot.
+     *
+     * @param versions acceptable {@code version} values from {@code If-Match}, or {@code null}
+     * @return the patched category, or empty if it does not exist
+     * @throws StaleEntityException if the category was modified since the named versions
+     */
+    public Optional<CategoryView> patch(Long id, MergePatch patch, Collection<Long> versions) {
+        try (Timer.Context ignored = timers.time("patch")) {
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
+            
+            try {
+                if (patch.changes().get("parent") != null) {
+                    requireNoCycle(session, id, (Long) patch.changes().get("parent"));
+                }
+                if (!MergePatchUpdate.apply(session, "Category", id, patch, versions)) {
+                    boolean exists = MergePatchUpdate.exists(session, "Category", id);
+                    transaction.rollback();
+                    if (exists) {
+                        throw new StaleEntityException("Category", id);
+                    }
+                    return Optional.empty();
+                }
+                if (!patch.isEmpty()) {
+                    List<Long> ids = Collections.singletonList(id);
+                    CatalogChangeDAO.record(session, CatalogChange.Entity.CATEGORY, ids, CatalogChange.Operation.UPSERT);
+                    UnitOfWork.afterCommit(transaction, () -> {
+                        refresh();
+                        publish(CatalogChange.Entity.CATEGORY, ids);
+                    });
+                }
+                // inside a unit of work the snapshot is only refreshed once the unit commits
+                Optional<CategoryView> patched = loadView(session, id);
+                transaction.commit();
+                return patched;
+            } catch (Exception e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            } finally {
+                session.close();
+            }
         }
     }
 
     public void delete(Long id) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = session.beginTransaction();
-        
-        try {
-            Category category = session.get(Category.class, id);
-            if (category != null) {
-                session.delete(category);
+        try (Timer.Context ignored = timers.time("delete")) {
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
+            
+            try {
+                Category category = session.get(Category.class, id);
+                // the delete cascades to the subcategories and the products of the whole subtree
+                List<Long> categoryIds = category != null ? subtreeIds(session, id) : Collections.emptyList();
+                List<Product> products = category != null ? products(session, categoryIds) : Collections.emptyList();
+                List<Long> productIds = new ArrayList<>(products.size());
+                for (Product product : products) {
+                    productIds.add(product.getId());
+                }
+                if (category != null) {
+                    session.delete(category);
+                    session.flush();
+                    CatalogChangeDAO.record(session, CatalogChange.Entity.CATEGORY, categoryIds,
+                        CatalogChange.Operation.DELETE);
+                    CatalogChangeDAO.record(session, CatalogChange.Entity.PRODUCT, productIds,
+                        CatalogChange.Operation.DELETE);
+                }
+                UnitOfWork.afterCommit(transaction, () -> {
+                    refresh();
+                    publish(CatalogChange.Entity.CATEGORY, categoryIds);
+                    if (productDAO != null) {
+                        productDAO.afterDeleted(products);
+                    } else {
+                        publish(CatalogChange.Entity.PRODUCT, productIds);
+                    }
+                });
+                transaction.commit();
+            } catch (Exception e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                session.close();
             }
-            transaction.commit();
-        } catch (Exception e) {
-            transaction.rollback();
-            throw e;
-        } finally {
-            session.close();
         }
     }
 
     public long count() {
+        try (Timer.Context ignored = timers.time("count")) {
+            return tree().size();
+        }
+    }
+
+    /**
+     * Always reads committed rows on a session of its own, even inside a unit of work, since
+     * the snapshot is shared by every request.
+     */
+    private CategoryTree loadTree() {
         try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
-            Root<Category> root = criteria.from(Category.class);
-            
-            criteria.select(builder.count(root));
-            
-            Query<Long> query = session.createQuery(criteria);
-            return query.getSingleResult();
+            Query<CategoryView> query = session.createQuery(viewQuery(session, null));
+            List<CategoryView> rows = query.getResultList();
+            return CategoryTree.build(rows);
+        }
+    }
+
+    private void publish(CatalogChange.Entity entity, Collection<Long> ids) {
+        if (invalidationBus != null && !ids.isEmpty()) {
+            invalidationBus.publish(entity, ids);
+        }
+    }
+
+    /**
+     * Walks up from {@code parentId} in the current transaction.
+     *
+     * @throws IllegalArgumentException if {@code parentId} is {@code id} or one of its descendants
+     */
+    private static void requireNoCycle(Session session, Long id, Long parentId) {
+        Set<Long> visited = new HashSet<>();
+        for (Long ancestor = parentId; ancestor != null && visited.add(ancestor); ) {
+            if (ancestor.equals(id)) {
+                throw new IllegalArgumentException("a category cannot be moved under itself or its descendants");
+            }
+            ancestor = session.createQuery("select c.parent.id from Category c where c.id = :id", Long.class)
+                .setParameter("id", ancestor)
+                .uniqueResult();
+        }
+    }
+
+    private static List<Long> subtreeIds(Session session, Long id) {
+        Set<Long> visited = new LinkedHashSet<>();
+        List<Long> level = Collections.singletonList(id);
+        while (!level.isEmpty()) {
+            visited.addAll(level);
+            level = session.createQuery("select c.id from Category c where c.parent.id in (:ids)", Long.class)
+                .setParameterList("ids", level)
+                .getResultList();
+            level.removeAll(visited);
+        }
+        return new ArrayList<>(visited);
+    }
+
+    private static List<Product> products(Session session, List<Long> categoryIds) {
+        return session.createQuery("select p from Product p where p.category.id in (:ids)", Product.class)
+            .setParameterList("ids", categoryIds)
+            .getResultList();
+    }
+
+    private static Optional<CategoryView> loadView(Session session, Long id) {
+        return session.createQuery(viewQuery(session, id)).uniqueResultOptional();
+    }
+
+    private static CriteriaQuery<CategoryView> viewQuery(Session session, Long id) {
+        CriteriaBuilder builder = session.getCriteriaBuilder();
+        CriteriaQuery<CategoryView> criteria = builder.createQuery(CategoryView.class);
+        Root<Category> root = criteria.from(Category.class);
+        Join<Category, Category> parentJoin = root.join("parent", JoinType.LEFT);
+        
+        criteria.select(builder.construct(CategoryView.class,
+            root.get("id"),
+            root.get("name"),
+            root.get("description"),
+            parentJoin.get("id"),
+            root.get("createdAt"),
+            root.get("updatedAt"),
+            root.get("version")));
+        if (id != null) {
+            criteria.where(builder.equal(root.get("id"), id));
+        } else {
+            // the tree keeps this order, so siblings sort by the column's collation
+            criteria.orderBy(builder.asc(root.get("name")), builder.asc(root.get("id")));
         }
+        return criteria;
     }
-}
\ No newline at end of file
+}
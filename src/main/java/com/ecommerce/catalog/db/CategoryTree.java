@@ -0,0 +1,128 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.CategoryView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the whole category hierarchy, indexed by id, name and parent.
+ * <p>
+ * Entries are {@link CategoryView} records shared by every reader; {@link CategoryDAO}
+ * replaces the snapshot wholesale after every write instead of mutating it.
+ */
+public final class CategoryTree {
+    private final Map<Long, CategoryView> byId;
+    private final Map<String, CategoryView> byName;
+    private final Map<Long, List<CategoryView>> childrenByParentId;
+    private final List<CategoryView> roots;
+    private final List<CategoryView> all;
+
+    private CategoryTree(Map<Long, CategoryView> byId, Map<String, CategoryView> byName,
+                         Map<Long, List<CategoryView>> childrenByParentId, List<CategoryView> roots, List<CategoryView> all) {
+        this.byId = byId;
+        this.byName = byName;
+        this.childrenByParentId = childrenByParentId;
+        this.roots = roots;
+        this.all = all;
+    }
+
+    /**
+     * @param rows every category, ordered by name as the database collates it; every list the
+     *     tree returns keeps that order
+     */
+    static CategoryTree build(List<CategoryView> rows) {
+        Map<Long, CategoryView> byId = new HashMap<>(rows.size() * 2);
+        Map<String, CategoryView> byName = new HashMap<>(rows.size() * 2);
+        for (CategoryView row : rows) {
+            byId.put(row.id(), row);
+            byName.put(row.name(), row);
+        }
+
+        Map<Long, List<CategoryView>> children = new HashMap<>();
+        List<CategoryView> roots = new ArrayList<>();
+        for (CategoryView row : rows) {
+            if (row.parentId() == null || !byId.containsKey(row.parentId())) {
+                roots.add(row);
+            } else {
+                children.computeIfAbsent(row.parentId(), id -> new ArrayList<>()).add(row);
+            }
+        }
+
+        Map<Long, List<CategoryView>> childrenByParentId = new HashMap<>(children.size() * 2);
+        for (Map.Entry<Long, List<CategoryView>> entry : children.entrySet()) {
+            childrenByParentId.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        List<CategoryView> all = new ArrayList<>(rows);
+
+        return new CategoryTree(byId, byName, childrenByParentId,
+            Collections.unmodifiableList(roots), Collections.unmodifiableList(all));
+    }
+
+    public Optional<CategoryView> findById(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public Optional<CategoryView> findByName(String name) {
+        return Optional.ofNullable(byName.get(name));
+    }
+
+    public List<CategoryView> all() {
+        return all;
+    }
+
+    public List<CategoryView> roots() {
+        return roots;
+    }
+
+    public List<CategoryView> children(Long parentId) {
+        return childrenByParentId.getOrDefault(parentId, Collections.emptyList());
+    }
+
+    /**
+     * Returns every descendant of {@code id} in breadth-first order, excluding the category itself.
+     * Each category is visited once, so a parent cycle in the data cannot loop.
+     */
+    public List<CategoryView> subtree(Long id) {
+        List<CategoryView> descendants = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        visited.add(id);
+        Deque<Long> pending = new ArrayDeque<>();
+        pending.add(id);
+        while (!pending.isEmpty()) {
+            for (CategoryView child : children(pending.poll())) {
+                if (visited.add(child.id())) {
+                    descendants.add(child);
+                    pending.add(child.id());
+                }
+            }
+        }
+        return descendants;
+    }
+
+    /**
+     * Returns the chain of categories from the root down to and including {@code id}, or an
+     * empty list if the category does not exist.
+     */
+    public List<CategoryView> path(Long id) {
+        List<CategoryView> path = new ArrayList<>();
+        for (CategoryView current = byId.get(id); current != null && path.size() <= byId.size();
+             current = current.parentId() == null ? null : byId.get(current.parentId())) {
+            path.add(current);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
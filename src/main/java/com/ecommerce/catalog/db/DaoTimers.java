@@ -0,0 +1,36 @@
+package com.ecommerce.catalog.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * One {@link Timer} per DAO method, named {@code <dao class>.<method>}. Timers only record once
+ * the DAO has been registered with a {@link MetricRegistry}; before that, and in tests and
+ * benchmarks that never register, timings go to a shared context that is never read.
+ */
+final class DaoTimers {
+    private static final Timer.Context NOT_REGISTERED = new Timer().time();
+
+    private final Class<?> owner;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private volatile MetricRegistry metrics;
+
+    DaoTimers(Class<?> owner) {
+        this.owner = owner;
+    }
+
+    void register(MetricRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    Timer.Context time(String method) {
+        MetricRegistry registry = metrics;
+        if (registry == null) {
+            return NOT_REGISTERED;
+        }
+        return timers.computeIfAbsent(method, m -> registry.timer(MetricRegistry.name(owner, m))).time();
+    }
+}
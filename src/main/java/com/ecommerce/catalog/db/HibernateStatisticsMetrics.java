@@ -0,0 +1,89 @@
+package com.ecommerce.catalog.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Exposes a session factory's Hibernate {@link Statistics} as gauges. Requires
+ * {@code hibernate.generate_statistics: true}; otherwise every gauge reads zero. The
+ * {@code slowestQueries} gauge lists the queries with the highest maximum execution time
+ * together with their execution count, average and total, so hot queries can be spotted
+ * without turning on SQL logging.
+ */
+public class HibernateStatisticsMetrics implements MetricSet {
+    private static final int SLOWEST_QUERIES = 10;
+
+    private final String prefix;
+    private final Statistics statistics;
+
+    public HibernateStatisticsMetrics(String prefix, SessionFactory sessionFactory) {
+        this.prefix = prefix;
+        this.statistics = sessionFactory.getStatistics();
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+        counter(metrics, "queries.executions", Statistics::getQueryExecutionCount);
+        counter(metrics, "queries.maxTimeMillis", Statistics::getQueryExecutionMaxTime);
+        metrics.put(MetricRegistry.name(prefix, "queries.maxTimeQuery"),
+            (Gauge<String>) statistics::getQueryExecutionMaxTimeQueryString);
+        metrics.put(MetricRegistry.name(prefix, "queries.slowestQueries"),
+            (Gauge<Map<String, Map<String, Long>>>) this::slowestQueries);
+        counter(metrics, "entities.loads", Statistics::getEntityLoadCount);
+        counter(metrics, "entities.fetches", Statistics::getEntityFetchCount);
+        counter(metrics, "entities.inserts", Statistics::getEntityInsertCount);
+        counter(metrics, "entities.updates", Statistics::getEntityUpdateCount);
+        counter(metrics, "entities.deletes", Statistics::getEntityDeleteCount);
+        counter(metrics, "collections.loads", Statistics::getCollectionLoadCount);
+        counter(metrics, "collections.fetches", Statistics::getCollectionFetchCount);
+        counter(metrics, "secondLevelCache.hits", Statistics::getSecondLevelCacheHitCount);
+        counter(metrics, "secondLevelCache.misses", Statistics::getSecondLevelCacheMissCount);
+        counter(metrics, "queryCache.hits", Statistics::getQueryCacheHitCount);
+        counter(metrics, "queryCache.misses", Statistics::getQueryCacheMissCount);
+        counter(metrics, "connections.acquired", Statistics::getConnectCount);
+        counter(metrics, "sessions.opened", Statistics::getSessionOpenCount);
+        counter(metrics, "sessions.closed", Statistics::getSessionCloseCount);
+        counter(metrics, "statements.prepared", Statistics::getPrepareStatementCount);
+        counter(metrics, "transactions.total", Statistics::getTransactionCount);
+        counter(metrics, "transactions.successful", Statistics::getSuccessfulTransactionCount);
+        counter(metrics, "optimisticFailures", Statistics::getOptimisticFailureCount);
+        return metrics;
+    }
+
+    private void counter(Map<String, Metric> metrics, String name, ToLongFunction<Statistics> value) {
+        metrics.put(MetricRegistry.name(prefix, name), (Gauge<Long>) () -> value.applyAsLong(statistics));
+    }
+
+    private Map<String, Map<String, Long>> slowestQueries() {
+        Map<String, Map<String, Long>> slowest = new LinkedHashMap<>();
+        Arrays.stream(statistics.getQueries())
+            .sorted(Comparator.comparingLong((String query) -> statistics.getQueryStatistics(query).getExecutionMaxTime())
+                .reversed())
+            .limit(SLOWEST_QUERIES)
+            .forEach(query -> slowest.put(query, describe(statistics.getQueryStatistics(query))));
+        return slowest;
+    }
+
+    private static Map<String, Long> describe(QueryStatistics query) {
+        Map<String, Long> description = new LinkedHashMap<>();
+        description.put("executions", query.getExecutionCount());
+        description.put("maxTimeMillis", query.getExecutionMaxTime());
+        description.put("avgTimeMillis", query.getExecutionAvgTime());
+        description.put("totalTimeMillis", query.getExecutionTotalTime());
+        description.put("rows", query.getExecutionRowCount());
+        return description;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.catalog.db;
+
+/**
+ * Thrown when a write would change the stock of a product whose stock is held in memory by
+ * a hot stock ledger; such stock only moves through that ledger's reservations until the
+ * product is unflagged. Nothing has been written when this is thrown.
+ */
+public class HotStockException extends RuntimeException {
+    private final Long productId;
+    private final String ledger;
+
+    /**
+     * @param ledger the ledger holding the stock, or {@code null} if the product stopped being
+     *     hot on this instance while the change was in flight
+     */
+    public HotStockException(Long productId, String ledger) {
+        super(ledger != null
+            ? "Stock of product " + productId + " is held by hot stock ledger " + ledger
+                + " and must be changed through its reservations"
+            : "Product " + productId + " stopped being hot while its stock was changed; retry");
+        this.productId = productId;
+        this.ledger = ledger;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getLedger() {
+        return ledger;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.catalog.db;
+
+/**
+ * Thrown when a client-supplied {@link ProductCursor} token cannot be decoded or was issued
+ * for a different listing. Resources map only this exception to a 400 so that other
+ * {@link IllegalArgumentException}s from the persistence layer still surface as server errors.
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
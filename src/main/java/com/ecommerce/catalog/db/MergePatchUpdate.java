@@ -0,0 +1,79 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.MergePatch;
+import com.ecommerce.catalog.model.Category;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns a {@link MergePatch} into one bulk HQL {@code UPDATE} that sets only the patched
+ * columns plus {@code updatedAt} and increments {@code version}. When the caller sent
+ * {@code If-Match} the versions are part of the {@code WHERE} clause, so the check and the
+ * write are a single atomic statement.
+ */
+final class MergePatchUpdate {
+
+    /** Patch properties that hold a category id and are bound as an entity reference. */
+    private static final Set<String> CATEGORY_REFERENCES = new HashSet<>(Arrays.asList("category", "parent"));
+
+    private MergePatchUpdate() {}
+
+    /**
+     * @param versions acceptable {@code version} values, or {@code null} for an unconditional update
+     * @return {@code true} if the row was updated; {@code false} if it is missing or none of the versions matched
+     * @throws IllegalArgumentException if the patch references a category that does not exist
+     */
+    static boolean apply(Session session, String entity, Long id, MergePatch patch,
+                         Collection<Long> versions) {
+        String condition = " where e.id = :id" + (versions != null ? " and e.version in (:versions)" : "");
+        Query<?> query;
+        if (patch.isEmpty()) {
+            query = session.createQuery("select count(e) from " + entity + " e" + condition, Long.class);
+        } else {
+            StringBuilder hql = new StringBuilder("update ").append(entity)
+                .append(" e set e.updatedAt = :now, e.version = e.version + 1");
+            for (Map.Entry<String, Object> change : patch.changes().entrySet()) {
+                hql.append(", e.").append(change.getKey())
+                    .append(change.getValue() == null ? " = null" : " = :" + change.getKey());
+            }
+            query = session.createQuery(hql.append(condition).toString());
+            query.setParameter("now", LocalDateTime.now());
+            for (Map.Entry<String, Object> change : patch.changes().entrySet()) {
+                if (change.getValue() != null) {
+                    query.setParameter(change.getKey(), value(session, change.getKey(), change.getValue()));
+                }
+            }
+        }
+        query.setParameter("id", id);
+        if (versions != null) {
+            query.setParameterList("versions", versions);
+        }
+        return patch.isEmpty()
+            ? (Long) query.getSingleResult() > 0
+            : query.executeUpdate() > 0;
+    }
+
+    static boolean exists(Session session, String entity, Long id) {
+        return session.createQuery("select count(e) from " + entity + " e where e.id = :id", Long.class)
+            .setParameter("id", id)
+            .getSingleResult() > 0;
+    }
+
+    private static Object value(Session session, String property, Object value) {
+        if (!CATEGORY_REFERENCES.contains(property)) {
+            return value;
+        }
+        Category category = session.get(Category.class, (Long) value);
+        if (category == null) {
+            throw new IllegalArgumentException("Category not found with id: " + value);
+        }
+        return category;
+    }
+}
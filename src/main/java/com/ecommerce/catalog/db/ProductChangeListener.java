@@ -0,0 +1,19 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.model.Product;
+
+/**
+ * Notified by {@link ProductDAO} after a product write has been committed.
+ */
+public interface ProductChangeListener {
+
+    /**
+     * @param created {@code true} if the product was inserted, {@code false} if an existing row was updated
+     */
+    void productSaved(Product product, boolean created);
+
+    /**
+     * @param product the entity as it was loaded just before deletion
+     */
+    void productDeleted(Product product);
+}
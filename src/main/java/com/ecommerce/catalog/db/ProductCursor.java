@@ -0,0 +1,102 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.ProductView;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Opaque continuation token for keyset pagination. A cursor records the sort key of a
+ * listing together with the sort value and id of the last row returned, so the next page
+ * can seek straight past it instead of skipping rows with an offset.
+ */
+public final class ProductCursor {
+
+    public enum SortKey {
+        ID, PRICE, NAME
+    }
+
+    private static final char SEPARATOR = '|';
+
+    private final SortKey sortKey;
+    private final long lastId;
+    private final String sortValue;
+
+    private ProductCursor(SortKey sortKey, long lastId, String sortValue) {
+        this.sortKey = sortKey;
+        this.lastId = lastId;
+        this.sortValue = sortValue;
+    }
+
+    public static ProductCursor after(ProductView last, SortKey sortKey) {
+        switch (sortKey) {
+            case PRICE:
+                return new ProductCursor(sortKey, last.id(), last.price().toPlainString());
+            case NAME:
+                return new ProductCursor(sortKey, last.id(), last.name());
+            default:
+                return new ProductCursor(sortKey, last.id(), "");
+        }
+    }
+
+    public static ProductCursor decode(String token) {
+        final String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+
+        final int first = raw.indexOf(SEPARATOR);
+        final int second = first < 0 ? -1 : raw.indexOf(SEPARATOR, first + 1);
+        if (second < 0) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+
+        try {
+            SortKey sortKey = SortKey.valueOf(raw.substring(0, first));
+            long lastId = Long.parseLong(raw.substring(first + 1, second));
+            String sortValue = raw.substring(second + 1);
+            if (sortKey == SortKey.PRICE) {
+                new BigDecimal(sortValue);
+            }
+            return new ProductCursor(sortKey, lastId, sortValue);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + lastId + SEPARATOR + sortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public SortKey getSortKey() { return sortKey; }
+
+    public long getLastId() { return lastId; }
+
+    public BigDecimal getLastPrice() { return new BigDecimal(sortValue); }
+
+    public String getLastName() { return sortValue; }
+
+    public void requireSortKey(SortKey expected) {
+        if (sortKey != expected) {
+            throw new InvalidCursorException("Cursor was not issued for this listing");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProductCursor)) return false;
+        ProductCursor that = (ProductCursor) o;
+        return lastId == that.lastId && sortKey == that.sortKey && sortValue.equals(that.sortValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sortKey, lastId, sortValue);
+    }
+}
@@ -1,129 +1,983 @@
 package com.ecommerce.catalog.db;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.api.MergePatch;
+import com.ecommerce.catalog.api.ProductFacets;
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.api.StockAdjustment;
+import com.ecommerce.catalog.api.StockLevel;
+import com.ecommerce.catalog.cache.ProductCache;
+import com.ecommerce.catalog.invalidation.InvalidationBus;
 import com.ecommerce.catalog.model.Product;
 import com.ecommerce.catalog.model.Category;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CompoundSelection;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class ProductDAO {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductDAO.class);
+    private static final int IN_CHUNK_SIZE = 1000;
+    private static final int SCROLL_FETCH_SIZE = 1000;
+
     private final SessionFactory sessionFactory;
+    private final ProductCache productCache;
+    private final ReadReplicaRouter replicaRouter;
+    private final InvalidationBus invalidationBus;
+    private final List<ProductChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final DaoTimers timers = new DaoTimers(ProductDAO.class);
 
     public ProductDAO(SessionFactory sessionFactory) {
+        this(sessionFactory, null);
+    }
+
+    public ProductDAO(SessionFactory sessionFactory, ProductCache productCache) {
+        this(sessionFactory, productCache, null);
+    }
+
+    /**
+     * @param replicaRouter routes listing, search and count queries to a read replica when one is
+     *     configured and current. Lookups by id always read the primary because they fill the
+     *     shared product cache, which must never hold a row older than the last write.
+     */
+    public ProductDAO(SessionFactory sessionFactory, ProductCache productCache, ReadReplicaRouter replicaRouter) {
+        this(sessionFactory, productCache, replicaRouter, null);
+    }
+
+    /**
+     * @param invalidationBus told the ids of every committed write so other replicas evict them too
+     */
+    public ProductDAO(SessionFactory sessionFactory, ProductCache productCache, ReadReplicaRouter replicaRouter,
+                      InvalidationBus invalidationBus) {
         this.sessionFactory = sessionFactory;
+        this.productCache = productCache;
+        this.replicaRouter = replicaRouter;
+        this.invalidationBus = invalidationBus;
     }
 
-    public Optional<Product> findById(Long id) {
-        try (Session session = sessionFactory.openSession()) {
-            Product product = session.get(Product.class, id);
-            return Optional.ofNullable(product);
+    public void addListener(ProductChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Publishes a timer per public method, e.g. {@code com.ecommerce.catalog.db.ProductDAO.findById}.
+     */
+    public void registerMetrics(MetricRegistry metrics) {
+        timers.register(metrics);
+    }
+
+    public Optional<ProductView> findById(Long id) {
+        try (Timer.Context ignored = timers.time("findById")) {
+            if (productCache != null && !UnitOfWork.hasUncommittedWrites()) {
+                return productCache.get(id, this::loadById);
+            }
+            return loadById(id);
         }
     }
 
-    public List<Product> findAll(int offset, int limit) {
-        try (Session session = sessionFactory.openSession()) {
+    private Optional<ProductView> loadById(Long id) {
+        try (Session session = UnitOfWork.openSession(sessionFactory)) {
             CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Product> criteria = builder.createQuery(Product.class);
+            CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
             Root<Product> root = criteria.from(Product.class);
+            Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
             
-            criteria.select(root);
-            criteria.orderBy(builder.asc(root.get("id")));
+            criteria.select(viewOf(builder, root, categoryJoin));
+            criteria.where(builder.equal(root.get("id"), id));
             
-            Query<Product> query = session.createQuery(criteria);
-            query.setFirstResult(offset);
-            query.setMaxResults(limit);
-            
-            return query.getResultList();
+            return session.createQuery(criteria).uniqueResultOptional();
         }
     }
 
-    public List<Product> findByCategoryId(Long categoryId, int offset, int limit) {
-        try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Product> criteria = builder.createQuery(Product.class);
-            Root<Product> root = criteria.from(Product.class);
-            Join<Product, Category> categoryJoin = root.join("category");
+    /**
+     * Resolves many products at once, in the order requested and without duplicates. Ids that
+     * are neither cached nor found are left out. Uncached ids are fetched with {@code IN}
+     * queries of at most {@value #IN_CHUNK_SIZE} ids each, all on one session.
+     */
+    public List<ProductView> findByIds(Collection<Long> ids) {
+        try (Timer.Context ignored = timers.time("findByIds")) {
+            Set<Long> unique = new LinkedHashSet<>(ids);
+            Map<Long, ProductView> found = productCache != null && !UnitOfWork.hasUncommittedWrites()
+                ? productCache.getAll(unique, this::loadByIds)
+                : loadByIds(new ArrayList<>(unique));
             
-            criteria.select(root);
-            criteria.where(builder.equal(categoryJoin.get("id"), categoryId));
-            criteria.orderBy(builder.asc(root.get("id")));
-            
-            Query<Product> query = session.createQuery(criteria);
-            query.setFirstResult(offset);
-            query.setMaxResults(limit);
+            List<ProductView> products = new ArrayList<>(found.size());
+            for (Long id : unique) {
+                ProductView product = found.get(id);
+                if (product != null) {
+                    products.add(product);
+                }
+            }
+            return products;
+        }
+    }
+
+    private Map<Long, ProductView> loadByIds(List<Long> ids) {
+        Map<Long, ProductView> found = new HashMap<>(ids.size() * 2);
+        try (Session session = UnitOfWork.openSession(sessionFactory)) {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.where(root.get("id").in(chunk));
+                
+                for (ProductView product : session.createQuery(criteria).getResultList()) {
+                    found.put(product.id(), product);
+                }
+            }
+        }
+        return found;
+    }
+
+    public List<ProductView> findAll(int offset, int limit) {
+        try (Timer.Context ignored = timers.time("findAll")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.orderBy(builder.asc(root.get("id")));
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                query.setFirstResult(offset);
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    public List<ProductView> findByCategoryId(Long categoryId, int offset, int limit) {
+        try (Timer.Context ignored = timers.time("findByCategoryId")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category");
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.where(builder.equal(categoryJoin.get("id"), categoryId));
+                criteria.orderBy(builder.asc(root.get("id")));
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                query.setFirstResult(offset);
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    public List<ProductView> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, int offset, int limit) {
+        try (Timer.Context ignored = timers.time("findByPriceRange")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                List<Predicate> predicates = new ArrayList<>();
+                
+                if (minPrice != null) {
+                    predicates.add(builder.greaterThanOrEqualTo(root.get("price"), minPrice));
+                }
+                if (maxPrice != null) {
+                    predicates.add(builder.lessThanOrEqualTo(root.get("price"), maxPrice));
+                }
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.where(predicates.toArray(new Predicate[0]));
+                criteria.orderBy(builder.asc(root.get("price")));
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                query.setFirstResult(offset);
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    public List<ProductView> search(String searchTerm, int offset, int limit) {
+        try (Timer.Context ignored = timers.time("search")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                String pattern = "%" + searchTerm.toLowerCase() + "%";
+                Predicate namePredicate = builder.like(builder.lower(root.get("name")), pattern);
+                Predicate descriptionPredicate = builder.like(builder.lower(root.get("description")), pattern);
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.where(builder.or(namePredicate, descriptionPredicate));
+                criteria.orderBy(builder.asc(root.get("name")));
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                query.setFirstResult(offset);
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    public List<ProductView> findAll(ProductCursor after, int limit) {
+        try (Timer.Context ignored = timers.time("findAllKeyset")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                if (after != null) {
+                    after.requireSortKey(ProductCursor.SortKey.ID);
+                    criteria.where(seekPredicate(builder, root, after));
+                }
+                criteria.orderBy(builder.asc(root.get("id")));
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    public List<ProductView> findByCategoryId(Long categoryId, ProductCursor after, int limit) {
+        try (Timer.Context ignored = timers.time("findByCategoryIdKeyset")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category");
+                
+                List<Predicate> predicates = new ArrayList<>();
+                predicates.add(builder.equal(categoryJoin.get("id"), categoryId));
+                if (after != null) {
+                    after.requireSortKey(ProductCursor.SortKey.ID);
+                    predicates.add(seekPredicate(builder, root, after));
+                }
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.where(predicates.toArray(new Predicate[0]));
+                criteria.orderBy(builder.asc(root.get("id")));
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    public List<ProductView> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, ProductCursor after, int limit) {
+        try (Timer.Context ignored = timers.time("findByPriceRangeKeyset")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                List<Predicate> predicates = new ArrayList<>();
+                
+                if (minPrice != null) {
+                    predicates.add(builder.greaterThanOrEqualTo(root.get("price"), minPrice));
+                }
+                if (maxPrice != null) {
+                    predicates.add(builder.lessThanOrEqualTo(root.get("price"), maxPrice));
+                }
+                if (after != null) {
+                    after.requireSortKey(ProductCursor.SortKey.PRICE);
+                    predicates.add(seekPredicate(builder, root, after));
+                }
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.where(predicates.toArray(new Predicate[0]));
+                criteria.orderBy(builder.asc(root.get("price")), builder.asc(root.get("id")));
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    public List<ProductView> search(String searchTerm, ProductCursor after, int limit) {
+        try (Timer.Context ignored = timers.time("searchKeyset")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                String pattern = "%" + searchTerm.toLowerCase() + "%";
+                Predicate namePredicate = builder.like(builder.lower(root.get("name")), pattern);
+                Predicate descriptionPredicate = builder.like(builder.lower(root.get("description")), pattern);
+                
+                List<Predicate> predicates = new ArrayList<>();
+                predicates.add(builder.or(namePredicate, descriptionPredicate));
+                if (after != null) {
+                    after.requireSortKey(ProductCursor.SortKey.NAME);
+                    predicates.add(seekPredicate(builder, root, after));
+                }
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.where(predicates.toArray(new Predicate[0]));
+                criteria.orderBy(builder.asc(root.get("name")), builder.asc(root.get("id")));
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    /**
+     * Runs any combination of {@link ProductQuery} filters and sort key as one dynamic query
+     * that projects the page straight into views. The composite {@code (category_id, status,
+     * price|name, id)} and {@code (status, price, id)} indexes narrow the rows in sort order, so
+     * the scan stops after the page instead of sorting every match; the projection still reads
+     * each row on the page, and its category, from the tables.
+     *
+     * @param after continues a listing with the same sort key, or {@code null} to use {@code offset}
+     */
+    public List<ProductView> query(ProductQuery filter, ProductCursor after, int offset, int limit) {
+        try (Timer.Context ignored = timers.time("query")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<ProductView> criteria = builder.createQuery(ProductView.class);
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                List<Predicate> predicates = new ArrayList<>();
+                
+                if (filter.getCategoryId() != null) {
+                    predicates.add(builder.equal(root.get("category").get("id"), filter.getCategoryId()));
+                }
+                if (filter.getStatus() != null) {
+                    predicates.add(builder.equal(root.get("status"), filter.getStatus()));
+                }
+                if (filter.getMinPrice() != null) {
+                    predicates.add(builder.greaterThanOrEqualTo(root.get("price"), filter.getMinPrice()));
+                }
+                if (filter.getMaxPrice() != null) {
+                    predicates.add(builder.lessThanOrEqualTo(root.get("price"), filter.getMaxPrice()));
+                }
+                if (filter.getMinStock() != null) {
+                    predicates.add(builder.greaterThanOrEqualTo(root.get("stockQuantity"), filter.getMinStock()));
+                }
+                if (after != null) {
+                    after.requireSortKey(filter.getSortKey());
+                    predicates.add(seekPredicate(builder, root, after));
+                }
+                
+                criteria.select(viewOf(builder, root, categoryJoin));
+                criteria.where(predicates.toArray(new Predicate[0]));
+                switch (filter.getSortKey()) {
+                    case PRICE:
+                        criteria.orderBy(builder.asc(root.get("price")), builder.asc(root.get("id")));
+                        break;
+                    case NAME:
+                        criteria.orderBy(builder.asc(root.get("name")), builder.asc(root.get("id")));
+                        break;
+                    default:
+                        criteria.orderBy(builder.asc(root.get("id")));
+                }
+                
+                Query<ProductView> query = session.createQuery(criteria);
+                if (after == null) {
+                    query.setFirstResult(offset);
+                }
+                query.setMaxResults(limit);
+                
+                return query.getResultList();
+            }
+        }
+    }
+
+    /**
+     * Searches name and description through the {@code idx_product_search} FULLTEXT index,
+     * most relevant first. MySQL ignores terms shorter than {@code innodb_ft_min_token_size},
+     * so callers should fall back to {@link #search(String, int, int)} for those.
+     */
+    public List<ProductView> fullTextSearch(String searchTerm, SearchMode mode, int offset, int limit) {
+        try (Timer.Context ignored = timers.time("fullTextSearch")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                String match = mode.matchExpression();
+                NativeQuery<?> query = session.createNativeQuery(
+                    "SELECT p.id, p.name, p.description, p.price, p.stock_quantity, p.status, "
+                        + "c.id AS category_id, c.name AS category_name, p.created_at, p.updated_at, p.version "
+                        + "FROM products p LEFT JOIN categories c ON c.id = p.category_id "
+                        + "WHERE " + match + " ORDER BY " + match + " DESC, p.id");
+                query.setParameter("term", searchTerm);
+                query.setFirstResult(offset);
+                query.setMaxResults(limit);
+                
+                List<ProductView> views = new ArrayList<>();
+                for (Object row : query.getResultList()) {
+                    views.add(toView((Object[]) row));
+                }
+                return views;
+            }
+        }
+    }
+
+    private static ProductView toView(Object[] row) {
+        return new ProductView(
+            ((Number) row[0]).longValue(),
+            (String) row[1],
+            (String) row[2],
+            (BigDecimal) row[3],
+            ((Number) row[4]).intValue(),
+            Product.ProductStatus.valueOf((String) row[5]),
+            row[6] != null ? ((Number) row[6]).longValue() : null,
+            (String) row[7],
+            row[8] != null ? ((Timestamp) row[8]).toLocalDateTime() : null,
+            row[9] != null ? ((Timestamp) row[9]).toLocalDateTime() : null,
+            ((Number) row[10]).longValue());
+    }
+
+    public long countFullTextMatches(String searchTerm, SearchMode mode) {
+        try (Timer.Context ignored = timers.time("countFullTextMatches")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                NativeQuery<?> query = session.createNativeQuery(
+                    "SELECT COUNT(*) FROM products p WHERE " + mode.matchExpression());
+                query.setParameter("term", searchTerm);
+                
+                return ((Number) query.getSingleResult()).longValue();
+            }
+        }
+    }
+
+    /**
+     * Streams every product matching the optional filters to {@code handler} in id order. Rows
+     * come from a forward-only cursor on a {@link StatelessSession}, which keeps no persistence
+     * context, so heap use does not grow with the number of rows read.
+     */
+    public void scrollViews(Long categoryId, Product.ProductStatus status, ViewHandler handler) throws IOException {
+        try (Timer.Context ignored = timers.time("scrollViews")) {
+            StringBuilder hql = new StringBuilder(
+                "select new com.ecommerce.catalog.api.ProductView(p.id, p.name, p.description, p.price, p.stockQuantity, "
+                    + "p.status, c.id, c.name, p.createdAt, p.updatedAt) from Product p left join p.category c");
+            List<String> conditions = new ArrayList<>();
+            if (categoryId != null) {
+                conditions.add("c.id = :categoryId");
+            }
+            if (status != null) {
+                conditions.add("p.status = :status");
+            }
+            if (!conditions.isEmpty()) {
+                hql.append(" where ").append(String.join(" and ", conditions));
+            }
+            hql.append(" order by p.id");
             
-            return query.getResultList();
+            SessionFactory readSessions = readSessions();
+            StatelessSession session = readSessions.openStatelessSession();
+            try {
+                Query<ProductView> query = session.createQuery(hql.toString(), ProductView.class);
+                if (categoryId != null) {
+                    query.setParameter("categoryId", categoryId);
+                }
+                if (status != null) {
+                    query.setParameter("status", status);
+                }
+                query.setFetchSize(scrollFetchSize(readSessions));
+                query.setReadOnly(true);
+                
+                try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (results.next()) {
+                        handler.accept((ProductView) results.get(0));
+                    }
+                }
+            } finally {
+                session.close();
+            }
         }
     }
 
-    public List<Product> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, int offset, int limit) {
-        try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Product> criteria = builder.createQuery(Product.class);
-            Root<Product> root = criteria.from(Product.class);
+    /**
+     * Streams the narrow columns of every product updated at or after {@code since} (every
+     * product when {@code null}) to {@code handler}, through the same forward-only cursor on a
+     * {@link StatelessSession} as {@link #scrollViews}.
+     */
+    public void scrollColumns(LocalDateTime since, ColumnHandler handler) {
+        try (Timer.Context ignored = timers.time("scrollColumns")) {
+            SessionFactory readSessions = readSessions();
+            StatelessSession session = readSessions.openStatelessSession();
+            try {
+                Query<Object[]> query = session.createQuery(
+                    "select p.id, p.price, p.stockQuantity, p.status, c.id, p.updatedAt from Product p left join p.category c"
+                        + (since != null ? " where p.updatedAt >= :since" : "") + " order by p.id", Object[].class);
+                if (since != null) {
+                    query.setParameter("since", since);
+                }
+                query.setFetchSize(scrollFetchSize(readSessions));
+                query.setReadOnly(true);
+                
+                try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (results.next()) {
+                        Object[] row = results.get();
+                        handler.accept((Long) row[0], (BigDecimal) row[1], (Integer) row[2],
+                            (Product.ProductStatus) row[3], (Long) row[4], (LocalDateTime) row[5]);
+                    }
+                }
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    private static CompoundSelection<ProductView> viewOf(CriteriaBuilder builder, Root<Product> root,
+                                                         Join<Product, Category> categoryJoin) {
+        return builder.construct(ProductView.class,
+            root.get("id"), root.get("name"), root.get("description"), root.get("price"),
+            root.get("stockQuantity"), root.get("status"), categoryJoin.get("id"), categoryJoin.get("name"),
+            root.get("createdAt"), root.get("updatedAt"), root.get("version"));
+    }
+
+    /**
+     * Builds the row-value comparison {@code (sortKey, id) > (lastSortValue, lastId)} that lets
+     * the database seek along the sort index rather than scan and discard an offset.
+     */
+    private Predicate seekPredicate(CriteriaBuilder builder, Root<Product> root, ProductCursor after) {
+        Path<Long> id = root.get("id");
+        Predicate idAfter = builder.greaterThan(id, after.getLastId());
+        
+        switch (after.getSortKey()) {
+            case PRICE: {
+                Path<BigDecimal> price = root.get("price");
+                BigDecimal lastPrice = after.getLastPrice();
+                return builder.or(
+                    builder.greaterThan(price, lastPrice),
+                    builder.and(builder.equal(price, lastPrice), idAfter));
+            }
+            case NAME: {
+                Path<String> name = root.get("name");
+                String lastName = after.getLastName();
+                return builder.or(
+                    builder.greaterThan(name, lastName),
+                    builder.and(builder.equal(name, lastName), idAfter));
+            }
+            default:
+                return idAfter;
+        }
+    }
+
+    public Product save(Product product) {
+        try (Timer.Context ignored = timers.time("save")) {
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
+            boolean created = product.getId() == null;
             
-            List<Predicate> predicates = new ArrayList<>();
+            try {
+                session.saveOrUpdate(product);
+                session.flush();
+                if (!created) {
+                    requireColdStock(session, Collections.singletonList(product.getId()));
+                }
+                product.setVersion(created ? 0L : RowVersions.increment(session, "products", product.getId()));
+                recordUpserts(session, Collections.singletonList(product.getId()));
+                UnitOfWork.afterCommit(transaction, () -> {
+                    evict(product.getId());
+                    notifySaved(product, created);
+                });
+                transaction.commit();
+                return product;
+            } catch (Exception e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Applies a merge patch with a single targeted {@code UPDATE}. Listeners are only notified,
+     * and the entity only loaded for them, when a column they track was patched; price and
+     * stock changes are one statement.
+     *
+     * @param versions acceptable {@code version} values from {@code If-Match}, or {@code null}
+     * @return the patched product, or empty if it does not exist
+     * @throws StaleEntityException if the product was modified since the named versions
+     */
+    public Optional<ProductView> patch(Long id, MergePatch patch, Collection<Long> versions) {
+        try (Timer.Context ignored = timers.time("patch")) {
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
             
-            if (minPrice != null) {
-                predicates.add(builder.greaterThanOrEqualTo(root.get("price"), minPrice));
+            try {
+                if (!MergePatchUpdate.apply(session, "Product", id, patch, versions)) {
+                    boolean exists = MergePatchUpdate.exists(session, "Product", id);
+                    transaction.rollback();
+                    if (exists) {
+                        throw new StaleEntityException("Product", id);
+                    }
+                    return Optional.empty();
+                }
+                if (patch.touches("stockQuantity")) {
+                    requireColdStock(session, Collections.singletonList(id));
+                }
+                if (!patch.isEmpty()) {
+                    recordUpserts(session, Collections.singletonList(id));
+                }
+                Product product = patch.touches("name") || patch.touches("description")
+                        || patch.touches("status") || patch.touches("category")
+                    ? session.get(Product.class, id)
+                    : null;
+                UnitOfWork.afterCommit(transaction, () -> {
+                    evict(id);
+                    if (product != null) {
+                        notifySaved(product, false);
+                    }
+                });
+                transaction.commit();
+            } catch (Exception e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            } finally {
+                session.close();
             }
-            if (maxPrice != null) {
-                predicates.add(builder.lessThanOrEqualTo(root.get("price"), maxPrice));
+            
+            return findById(id);
+        }
+    }
+
+    /**
+     * Writes a chunk of products in one transaction using JDBC batch statements. Products
+     * without an id are inserted and receive their generated id; products with an id are
+     * upserted with {@code INSERT ... ON DUPLICATE KEY UPDATE}. Either the whole chunk is
+     * committed or none of it is.
+     */
+    public List<Product> saveBatch(List<Product> products) {
+        try (Timer.Context ignored = timers.time("saveBatch")) {
+            List<Product> inserts = new ArrayList<>();
+            List<Product> upserts = new ArrayList<>();
+            for (Product product : products) {
+                (product.getId() == null ? inserts : upserts).add(product);
             }
             
-            criteria.select(root);
-            criteria.where(predicates.toArray(new Predicate[0]));
-            criteria.orderBy(builder.asc(root.get("price")));
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
             
-            Query<Product> query = session.createQuery(criteria);
-            query.setFirstResult(offset);
-            query.setMaxResults(limit);
+            try {
+                session.doWork(connection -> {
+                    insertBatch(connection, inserts);
+                    upsertBatch(connection, upserts);
+                });
+                List<Long> upsertIds = new ArrayList<>(upserts.size());
+                for (Product product : upserts) {
+                    upsertIds.add(product.getId());
+                }
+                requireColdStock(session, upsertIds);
+                List<Long> ids = new ArrayList<>(products.size());
+                for (Product product : products) {
+                    ids.add(product.getId());
+                }
+                recordUpserts(session, ids);
+                UnitOfWork.afterCommit(transaction, () -> {
+                    evict(ids);
+                    for (Product product : inserts) {
+                        notifySaved(product, true);
+                    }
+                    for (Product product : upserts) {
+                        notifySaved(product, false);
+                    }
+                });
+                transaction.commit();
+            } catch (Exception e) {
+                transaction.rollback();
+                for (Product product : inserts) {
+                    product.setId(null);
+                }
+                throw e;
+            } finally {
+                session.close();
+            }
             
-            return query.getResultList();
+            return products;
         }
     }
 
-    public List<Product> search(String searchTerm, int offset, int limit) {
-        try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Product> criteria = builder.createQuery(Product.class);
-            Root<Product> root = criteria.from(Product.class);
-            
-            String pattern = "%" + searchTerm.toLowerCase() + "%";
-            Predicate namePredicate = builder.like(builder.lower(root.get("name")), pattern);
-            Predicate descriptionPredicate = builder.like(builder.lower(root.get("description")), pattern);
+    private void insertBatch(Connection connection, List<Product> products) throws SQLException {
+        if (products.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO products (name, description, price, stock_quantity, status, category_id, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (Product product : products) {
+                bindColumns(statement, 1, product);
+                statement.addBatch();
+            }
+            statement.executeBatch();
             
-            criteria.select(root);
-            criteria.where(builder.or(namePredicate, descriptionPredicate));
-            criteria.orderBy(builder.asc(root.get("name")));
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (Product product : products) {
+                    if (!keys.next()) {
+                        throw new SQLException("Missing generated key for batch insert");
+                    }
+                    product.setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    private void upsertBatch(Connection connection, List<Product> products) throws SQLException {
+        if (products.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO products (id, name, description, price, stock_quantity, status, category_id, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE name = VALUES(name), description = VALUES(description), price = VALUES(price), "
+                    + "stock_quantity = VALUES(stock_quantity), status = VALUES(status), category_id = VALUES(category_id), "
+                    + "updated_at = VALUES(updated_at), version = version + 1")) {
+            for (Product product : products) {
+                statement.setLong(1, product.getId());
+                bindColumns(statement, 2, product);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static void bindColumns(PreparedStatement statement, int index, Product product) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        statement.setString(index, product.getName());
+        statement.setString(index + 1, product.getDescription());
+        statement.setBigDecimal(index + 2, product.getPrice());
+        statement.setInt(index + 3, product.getStockQuantity());
+        statement.setString(index + 4, product.getStatus().name());
+        if (product.getCategory() != null && product.getCategory().getId() != null) {
+            statement.setLong(index + 5, product.getCategory().getId());
+        } else {
+            statement.setNull(index + 5, Types.BIGINT);
+        }
+        // Bind timestamps the way Hibernate does with hibernate.jdbc.time_zone=UTC
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        statement.setTimestamp(index + 6, Timestamp.valueOf(product.getCreatedAt() != null ? product.getCreatedAt() : now), utc);
+        statement.setTimestamp(index + 7, Timestamp.valueOf(now), utc);
+    }
+
+    public void delete(Long id) {
+        try (Timer.Context ignored = timers.time("delete")) {
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
             
-            Query<Product> query = session.createQuery(criteria);
-            query.setFirstResult(offset);
-            query.setMaxResults(limit);
+            try {
+                Product product = session.get(Product.class, id);
+                if (product != null) {
+                    session.delete(product);
+                    session.flush();
+                    CatalogChangeDAO.record(session, CatalogChange.Entity.PRODUCT, Collections.singletonList(id),
+                        CatalogChange.Operation.DELETE);
+                }
+                UnitOfWork.afterCommit(transaction, () -> {
+                    evict(id);
+                    if (product != null) {
+                        notifyDeleted(product);
+                    }
+                });
+                transaction.commit();
+            } catch (Exception e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Evicts and notifies listeners for products another DAO's committed delete removed, the
+     * same way {@link #delete} does.
+     */
+    void afterDeleted(Collection<Product> products) {
+        List<Long> ids = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        evict(ids);
+        for (Product product : products) {
+            notifyDeleted(product);
+        }
+    }
+
+    /**
+     * Takes {@code quantity} units out of stock with a single conditional {@code UPDATE}, so
+     * concurrent reservations can never drive stock negative or overwrite each other.
+     *
+     * @return the stock remaining after the reservation
+     * @throws StockReservationException if the product is missing or has too little stock
+     */
+    public StockLevel reserveStock(Long id, int quantity) {
+        try (Timer.Context ignored = timers.time("reserveStock")) {
+            return adjustStock(Collections.singletonMap(id, -quantity)).get(0);
+        }
+    }
+
+    public StockLevel releaseStock(Long id, int quantity) {
+        try (Timer.Context ignored = timers.time("releaseStock")) {
+            return adjustStock(Collections.singletonMap(id, quantity)).get(0);
+        }
+    }
+
+    /**
+     * Reserves every line of a cart in one transaction; either all lines succeed or none do.
+     * Quantities for the same product are summed.
+     *
+     * @return one level per product, in ascending product id order
+     * @throws IllegalArgumentException if the summed quantity of a product is out of range
+     */
+    public List<StockLevel> reserveStock(List<StockAdjustment> items) {
+        try (Timer.Context ignored = timers.time("reserveStockBatch")) {
+            return adjustStock(deltas(items, -1));
+        }
+    }
+
+    public List<StockLevel> releaseStock(List<StockAdjustment> items) {
+        try (Timer.Context ignored = timers.time("releaseStockBatch")) {
+            return adjustStock(deltas(items, 1));
+        }
+    }
+
+    /**
+     * Marks the stock of {@code id} as held by {@code ledger} under a row lock. Writes and
+     * reservations already in flight on any instance have committed by then, and any that lock
+     * the row afterwards find the mark and fail with {@link HotStockException}, so the stock
+     * returned stays exact until the ledger hands it back.
+     *
+     * @return the stock at the time of flagging, or empty if the product does not exist
+     * @throws HotStockException if another ledger already holds the product's stock
+     */
+    public Optional<Integer> flagHotStock(Long id, String ledger) {
+        try (Timer.Context ignored = timers.time("flagHotStock")) {
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
             
-            return query.getResultList();
+            try {
+                Object[] row = (Object[]) session.createNativeQuery(
+                        "SELECT stock_quantity, stock_ledger FROM products WHERE id = :id FOR UPDATE")
+                    .setParameter("id", id)
+                    .uniqueResult();
+                if (row == null) {
+                    transaction.commit();
+                    return Optional.empty();
+                }
+                if (row[1] != null && !ledger.equals(row[1])) {
+                    throw new HotStockException(id, (String) row[1]);
+                }
+                session.createNativeQuery("UPDATE products SET stock_ledger = :ledger WHERE id = :id")
+                    .setParameter("ledger", ledger)
+                    .setParameter("id", id)
+                    .executeUpdate();
+                transaction.commit();
+                return Optional.of(((Number) row[0]).intValue());
+            } catch (Exception e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                session.close();
+            }
         }
     }
 
-    public Product save(Product product) {
-        Session session = sessionFactory.openSession();
+    /**
+     * Hands the stock of {@code id} back to ordinary writes, if {@code ledger} held it. The
+     * ledger must have written back its deltas for the product first.
+     */
+    public void unflagHotStock(Long id, String ledger) {
+        try (Timer.Context ignored = timers.time("unflagHotStock")) {
+            updateStockLedger("UPDATE products SET stock_ledger = NULL WHERE id = :id AND stock_ledger = :ledger",
+                query -> query.setParameter("id", id).setParameter("ledger", ledger));
+        }
+    }
+
+    /**
+     * Releases every product {@code ledger} holds; used when a restarted ledger has replayed its
+     * journal and starts with no products flagged.
+     *
+     * @return the number of products released
+     */
+    public int clearHotStock(String ledger) {
+        try (Timer.Context ignored = timers.time("clearHotStock")) {
+            return updateStockLedger("UPDATE products SET stock_ledger = NULL WHERE stock_ledger = :ledger",
+                query -> query.setParameter("ledger", ledger));
+        }
+    }
+
+    private int updateStockLedger(String sql, Consumer<NativeQuery<?>> parameters) {
+        Session session = UnitOfWork.openSession(sessionFactory);
         Transaction transaction = session.beginTransaction();
         
         try {
-            session.saveOrUpdate(product);
+            NativeQuery<?> query = session.createNativeQuery(sql);
+            parameters.accept(query);
+            int updated = query.executeUpdate();
             transaction.commit();
-            return product;
+            return updated;
         } catch (Exception e) {
             transaction.rollback();
             throw e;
@@ -132,16 +986,143 @@ public class ProductDAO {
         }
     }
 
-    public void delete(Long id) {
-        Session session = sessionFactory.openSession();
+    /**
+     * Returns the last journal segment whose stock deltas were applied for {@code ledger}, or
+     * {@code 0} if none has been.
+     */
+    public long findStockCheckpoint(String ledger) {
+        try (Timer.Context ignored = timers.time("findStockCheckpoint")) {
+            try (Session session = UnitOfWork.openSession(sessionFactory)) {
+                Object segment = session.createNativeQuery(
+                        "SELECT last_segment FROM stock_ledger_checkpoints WHERE ledger = :ledger")
+                    .setParameter("ledger", ledger)
+                    .uniqueResult();
+                return segment == null ? 0L : ((Number) segment).longValue();
+            }
+        }
+    }
+
+    /**
+     * Adds coalesced stock deltas to {@code stock_quantity} and advances the ledger's checkpoint
+     * to {@code segment} in the same transaction, so a journal segment is never applied twice.
+     * The deltas were already accepted in memory and are applied unconditionally.
+     */
+    public void applyStockDeltas(Map<Long, Long> deltas, String ledger, long segment) {
+        try (Timer.Context ignored = timers.time("applyStockDeltas")) {
+            SortedMap<Long, Long> ordered = new TreeMap<>(deltas);
+            Session session = UnitOfWork.openSession(sessionFactory);
+            Transaction transaction = session.beginTransaction();
+            
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                for (Map.Entry<Long, Long> entry : ordered.entrySet()) {
+                    session.createQuery(
+                            "update Product p set p.stockQuantity = p.stockQuantity + :delta, p.updatedAt = :now, "
+                                + "p.version = p.version + 1 where p.id = :id")
+                        .setParameter("delta", entry.getValue().intValue())
+                        .setParameter("now", now)
+                        .setParameter("id", entry.getKey())
+                        .executeUpdate();
+                }
+                session.createNativeQuery(
+                        "INSERT INTO stock_ledger_checkpoints (ledger, last_segment) VALUES (:ledger, :segment) "
+                            + "ON DUPLICATE KEY UPDATE last_segment = VALUES(last_segment)")
+                    .setParameter("ledger", ledger)
+                    .setParameter("segment", segment)
+                    .executeUpdate();
+                recordUpserts(session, ordered.keySet());
+                UnitOfWork.afterCommit(transaction, () -> evict(ordered.keySet()));
+                transaction.commit();
+            } catch (Exception e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Sums the lines per product. The sums are taken as {@code long} so repeated lines cannot wrap
+     * around into a change of the opposite sign.
+     *
+     * @throws IllegalArgumentException if a product's total does not fit the stock column
+     */
+    private static Map<Long, Integer> deltas(List<StockAdjustment> items, int sign) {
+        Map<Long, Long> totals = new HashMap<>();
+        for (StockAdjustment item : items) {
+            totals.merge(item.productId(), (long) sign * item.quantity(), Long::sum);
+        }
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (Map.Entry<Long, Long> total : totals.entrySet()) {
+            if (total.getValue() < Integer.MIN_VALUE || total.getValue() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Total quantity for product " + total.getKey() + " is out of range");
+            }
+            deltas.put(total.getKey(), total.getValue().intValue());
+        }
+        return deltas;
+    }
+
+    /**
+     * Applies the deltas in ascending id order. Every transaction that touches several
+     * products then acquires its row locks in the same order, so two overlapping carts queue
+     * behind each other instead of deadlocking.
+     * <p>
+     * The rows are locked and checked for a hot stock ledger before anything is written, so a
+     * {@link HotStockException} leaves the transaction, and any unit of work it belongs to,
+     * clean for the caller to route the change again.
+     */
+    private List<StockLevel> adjustStock(Map<Long, Integer> deltas) {
+        SortedMap<Long, Integer> ordered = new TreeMap<>(deltas);
+        Session session = UnitOfWork.openSession(sessionFactory);
         Transaction transaction = session.beginTransaction();
         
+        HotStockException hot;
+        try {
+            hot = hotStock(session, ordered.keySet(), true);
+            if (hot != null) {
+                // nothing was written; committing only releases the row locks
+                transaction.commit();
+            }
+        } catch (Exception e) {
+            transaction.rollback();
+            session.close();
+            throw e;
+        }
+        if (hot != null) {
+            session.close();
+            throw hot;
+        }
+        
         try {
-            Product product = session.get(Product.class, id);
-            if (product != null) {
-                session.delete(product);
+            LocalDateTime now = LocalDateTime.now();
+            for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+                int delta = entry.getValue();
+                int updated = session.createQuery(
+                        "update Product p set p.stockQuantity = p.stockQuantity + :delta, p.updatedAt = :now, "
+                            + "p.version = p.version + 1 "
+                            + "where p.id = :id and p.stockQuantity + :delta >= 0")
+                    .setParameter("delta", delta)
+                    .setParameter("now", now)
+                    .setParameter("id", entry.getKey())
+                    .executeUpdate();
+                if (updated == 0) {
+                    boolean exists = session.createQuery("select count(p) from Product p where p.id = :id", Long.class)
+                        .setParameter("id", entry.getKey())
+                        .getSingleResult() > 0;
+                    throw new StockReservationException(entry.getKey(), !exists);
+                }
             }
+            
+            List<StockLevel> levels = session.createQuery(
+                    "select new com.ecommerce.catalog.api.StockLevel(p.id, p.stockQuantity) from Product p "
+                        + "where p.id in (:ids) order by p.id", StockLevel.class)
+                .setParameterList("ids", ordered.keySet())
+                .getResultList();
+            recordUpserts(session, ordered.keySet());
+            UnitOfWork.afterCommit(transaction, () -> evict(ordered.keySet()));
             transaction.commit();
+            return levels;
         } catch (Exception e) {
             transaction.rollback();
             throw e;
@@ -150,16 +1131,228 @@ public class ProductDAO {
         }
     }
 
-    public long count() {
-        try (Session session = sessionFactory.openSession()) {
-            CriteriaBuilder builder = session.getCriteriaBuilder();
-            CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
-            Root<Product> root = criteria.from(Product.class);
+    private static void recordUpserts(Session session, Collection<Long> ids) {
+        CatalogChangeDAO.record(session, CatalogChange.Entity.PRODUCT, ids, CatalogChange.Operation.UPSERT);
+    }
+
+    /**
+     * Fails a write that set the stock of a product a hot stock ledger holds. Called once the
+     * write holds the row locks, so a concurrent {@link #flagHotStock} either committed before
+     * and is seen here, or waits for this write to finish.
+     */
+    private static void requireColdStock(Session session, Collection<Long> ids) {
+        HotStockException hot = hotStock(session, ids, false);
+        if (hot != null) {
+            throw hot;
+        }
+    }
+
+    private static HotStockException hotStock(Session session, Collection<Long> ids, boolean lock) {
+        if (ids.isEmpty()) {
+            return null;
+        }
+        // every row is read, not only held ones, so that with lock all of them stay locked
+        List<?> rows = session.createNativeQuery(
+                "SELECT id, stock_ledger FROM products WHERE id IN (:ids) ORDER BY id" + (lock ? " FOR UPDATE" : ""))
+            .setParameterList("ids", ids)
+            .getResultList();
+        for (Object result : rows) {
+            Object[] row = (Object[]) result;
+            if (row[1] != null) {
+                return new HotStockException(((Number) row[0]).longValue(), (String) row[1]);
+            }
+        }
+        return null;
+    }
+
+    private SessionFactory readSessions() {
+        return replicaRouter == null ? sessionFactory : replicaRouter.forRead();
+    }
+
+    /**
+     * Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the result, but
+     * other drivers reject a negative fetch size and stream in batches of a positive one.
+     */
+    private static int scrollFetchSize(SessionFactory sessionFactory) {
+        Dialect dialect = sessionFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        return dialect instanceof MySQLDialect ? Integer.MIN_VALUE : SCROLL_FETCH_SIZE;
+    }
+
+    private void evict(Long id) {
+        evict(Collections.singletonList(id));
+    }
+
+    /**
+     * Invalidates the cached details here and, through the bus, on the other replicas.
+     */
+    private void evict(Collection<Long> ids) {
+        if (productCache != null) {
+            for (Long id : ids) {
+                productCache.invalidate(id);
+            }
+        }
+        if (invalidationBus != null) {
+            invalidationBus.publish(CatalogChange.Entity.PRODUCT, ids);
+        }
+    }
+
+    private void notifySaved(Product product, boolean created) {
+        for (ProductChangeListener listener : listeners) {
+            try {
+                listener.productSaved(product, created);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Product listener failed for product {}", product.getId(), e);
+            }
+        }
+    }
+
+    private void notifyDeleted(Product product) {
+        for (ProductChangeListener listener : listeners) {
+            try {
+                listener.productDeleted(product);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Product listener failed for deleted product {}", product.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Counts products grouped by category id (a {@code null} key for uncategorized products)
+     * and status in a single aggregate query. Always reads the primary: the counts replace
+     * in-memory counters that already include every committed write, which a lagging replica
+     * may not have seen yet.
+     */
+    public Map<Long, Map<Product.ProductStatus, Long>> countByCategoryAndStatus() {
+        try (Timer.Context ignored = timers.time("countByCategoryAndStatus")) {
+            try (Session session = UnitOfWork.openSession(sessionFactory)) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<Tuple> criteria = builder.createTupleQuery();
+                Root<Product> root = criteria.from(Product.class);
+                Join<Product, Category> categoryJoin = root.join("category", JoinType.LEFT);
+                
+                criteria.multiselect(
+                    categoryJoin.get("id").alias("categoryId"),
+                    root.get("status").alias("status"),
+                    builder.count(root).alias("count"));
+                criteria.groupBy(categoryJoin.get("id"), root.get("status"));
+                
+                Map<Long, Map<Product.ProductStatus, Long>> counts = new HashMap<>();
+                for (Tuple tuple : session.createQuery(criteria).getResultList()) {
+                    counts.computeIfAbsent(tuple.get("categoryId", Long.class), id -> new EnumMap<>(Product.ProductStatus.class))
+                        .put(tuple.get("status", Product.ProductStatus.class), tuple.get("count", Long.class));
+                }
+                return counts;
+            }
+        }
+    }
+
+    /**
+     * Counts the products matching the search term and price range in one grouped aggregate
+     * query, one row per category, price band and status combination present. The number of
+     * rows is bounded by those dimensions, not by the number of products.
+     *
+     * @param searchTerm optional; matched with {@code mode} through the FULLTEXT index, or with a
+     *                   substring match when {@code mode} is {@code null}
+     * @param priceBands ascending band boundaries, see {@link ProductFacets.Bucket#priceBand()}
+     */
+    public List<ProductFacets.Bucket> countFacets(String searchTerm, SearchMode mode, BigDecimal minPrice,
+                                                  BigDecimal maxPrice, List<BigDecimal> priceBands) {
+        try (Timer.Context ignored = timers.time("countFacets")) {
+            StringBuilder band = new StringBuilder("CASE");
+            for (int i = 0; i < priceBands.size(); i++) {
+                band.append(" WHEN p.price < :band").append(i).append(" THEN ").append(i);
+            }
+            band.append(" ELSE ").append(priceBands.size()).append(" END");
             
-            criteria.select(builder.count(root));
+            List<String> conditions = new ArrayList<>();
+            if (searchTerm != null) {
+                conditions.add(mode != null
+                    ? mode.matchExpression()
+                    : "(LOWER(p.name) LIKE :pattern OR LOWER(p.description) LIKE :pattern)");
+            }
+            if (minPrice != null) {
+                conditions.add("p.price >= :minPrice");
+            }
+            if (maxPrice != null) {
+                conditions.add("p.price <= :maxPrice");
+            }
             
-            Query<Long> query = session.createQuery(criteria);
-            return query.getSingleResult();
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                NativeQuery<?> query = session.createNativeQuery(
+                    "SELECT p.category_id, c.name, " + band + " AS price_band, p.status, COUNT(*) "
+                        + "FROM products p LEFT JOIN categories c ON c.id = p.category_id"
+                        + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                        + " GROUP BY p.category_id, c.name, price_band, p.status");
+                for (int i = 0; i < priceBands.size(); i++) {
+                    query.setParameter("band" + i, priceBands.get(i));
+                }
+                if (searchTerm != null) {
+                    if (mode != null) {
+                        query.setParameter("term", searchTerm);
+                    } else {
+                        query.setParameter("pattern", "%" + searchTerm.toLowerCase() + "%");
+                    }
+                }
+                if (minPrice != null) {
+                    query.setParameter("minPrice", minPrice);
+                }
+                if (maxPrice != null) {
+                    query.setParameter("maxPrice", maxPrice);
+                }
+                
+                List<ProductFacets.Bucket> buckets = new ArrayList<>();
+                for (Object result : query.getResultList()) {
+                    Object[] row = (Object[]) result;
+                    buckets.add(new ProductFacets.Bucket(
+                        row[0] != null ? ((Number) row[0]).longValue() : null,
+                        (String) row[1],
+                        ((Number) row[2]).intValue(),
+                        Product.ProductStatus.valueOf((String) row[3]),
+                        ((Number) row[4]).longValue()));
+                }
+                return buckets;
+            }
+        }
+    }
+
+    public long count() {
+        try (Timer.Context ignored = timers.time("count")) {
+            try (Session session = UnitOfWork.openSession(readSessions())) {
+                CriteriaBuilder builder = session.getCriteriaBuilder();
+                CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+                Root<Product> root = criteria.from(Product.class);
+                
+                criteria.select(builder.count(root));
+                
+                Query<Long> query = session.createQuery(criteria);
+                return query.getSingleResult();
+            }
+        }
+    }
+
+    public enum SearchMode {
+        NATURAL_LANGUAGE("IN NATURAL LANGUAGE MODE"),
+        BOOLEAN("IN BOOLEAN MODE");
+
+        private final String modifier;
+
+        SearchMode(String modifier) {
+            this.modifier = modifier;
+        }
+
+        String matchExpression() {
+            return "MATCH(p.name, p.description) AGAINST (:term " + modifier + ")";
         }
     }
+
+    @FunctionalInterface
+    public interface ViewHandler {
+        void accept(ProductView view) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface ColumnHandler {
+        void accept(long id, BigDecimal price, int stockQuantity, Product.ProductStatus status, Long categoryId,
+                    LocalDateTime updatedAt);
+    }
 }
\ No newline at end of file
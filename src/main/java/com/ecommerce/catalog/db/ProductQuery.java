@@ -0,0 +1,41 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.model.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Filters and sort order for {@link ProductDAO#query}. Every filter is optional; a
+ * {@code null} value leaves that column unconstrained.
+ */
+public final class ProductQuery {
+
+    private final Long categoryId;
+    private final Product.ProductStatus status;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final Integer minStock;
+    private final ProductCursor.SortKey sortKey;
+
+    public ProductQuery(Long categoryId, Product.ProductStatus status, BigDecimal minPrice, BigDecimal maxPrice,
+                        Integer minStock, ProductCursor.SortKey sortKey) {
+        this.categoryId = categoryId;
+        this.status = status;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.minStock = minStock;
+        this.sortKey = sortKey;
+    }
+
+    public Long getCategoryId() { return categoryId; }
+
+    public Product.ProductStatus getStatus() { return status; }
+
+    public BigDecimal getMinPrice() { return minPrice; }
+
+    public BigDecimal getMaxPrice() { return maxPrice; }
+
+    public Integer getMinStock() { return minStock; }
+
+    public ProductCursor.SortKey getSortKey() { return sortKey; }
+}
@@ -0,0 +1,151 @@
+package com.ecommerce.catalog.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the {@link SessionFactory} for read-only queries: the replica while it is within
+ * {@code maxLag} of the primary, otherwise the primary. Lag is measured with a heartbeat row
+ * that this router writes to the primary every check and reads back from the replica; if the
+ * replica has not seen the last beat, it is at least as far behind as the newest beat it has.
+ * A failed check counts as unbounded lag.
+ *
+ * <p>A thread can be pinned to the primary for the rest of a request with
+ * {@link #pinToPrimary(boolean)}, which is how writes and read-your-writes requests avoid
+ * reading a replica that has not caught up with them yet.
+ */
+public class ReadReplicaRouter implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadReplicaRouter.class);
+    private static final ThreadLocal<Boolean> PINNED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final SessionFactory primary;
+    private final SessionFactory replica;
+    private final ScheduledExecutorService executor;
+    private final Duration maxLag;
+    private final Duration checkInterval;
+    private final Meter replicaReads = new Meter();
+    private final Meter primaryReads = new Meter();
+
+    private volatile long lagMillis = Long.MAX_VALUE;
+    private long lastBeat = Long.MAX_VALUE;
+
+    public ReadReplicaRouter(SessionFactory primary, SessionFactory replica, ScheduledExecutorService executor,
+                             Duration maxLag, Duration checkInterval) {
+        this.primary = primary;
+        this.replica = replica;
+        this.executor = executor;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+    }
+
+    @Override
+    public void start() {
+        checkLag();
+        long interval = checkInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::checkLag, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        // the executor belongs to the environment lifecycle
+    }
+
+    public SessionFactory forRead() {
+        if (PINNED.get() || !isReplicaCurrent()) {
+            primaryReads.mark();
+            return primary;
+        }
+        replicaReads.mark();
+        return replica;
+    }
+
+    public boolean isReplicaCurrent() {
+        return lagMillis <= maxLag.toMilliseconds();
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Pins (or unpins) reads on the calling thread to the primary. Callers that pin must unpin
+     * in a {@code finally} or response filter, since request threads are pooled.
+     */
+    public static void pinToPrimary(boolean pinned) {
+        if (pinned) {
+            PINNED.set(Boolean.TRUE);
+        } else {
+            PINNED.remove();
+        }
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get();
+    }
+
+    /**
+     * Reads the heartbeat from the replica, then writes a new one to the primary. Called on the
+     * check interval; synchronized so a manual check cannot interleave with a scheduled one.
+     */
+    public synchronized void checkLag() {
+        try {
+            long seen = readHeartbeat();
+            long now = System.currentTimeMillis();
+            lagMillis = seen >= lastBeat ? 0L : Math.max(0L, now - seen);
+            writeHeartbeat(now);
+            lastBeat = now;
+        } catch (RuntimeException e) {
+            if (lagMillis != Long.MAX_VALUE) {
+                LOGGER.warn("Replica lag check failed; routing reads to the primary", e);
+            }
+            lagMillis = Long.MAX_VALUE;
+        }
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(ReadReplicaRouter.class, "lagMillis"), (Gauge<Long>) () -> lagMillis);
+        metrics.register(MetricRegistry.name(ReadReplicaRouter.class, "replicaCurrent"),
+            (Gauge<Boolean>) this::isReplicaCurrent);
+        metrics.register(MetricRegistry.name(ReadReplicaRouter.class, "replicaReads"), replicaReads);
+        metrics.register(MetricRegistry.name(ReadReplicaRouter.class, "primaryReads"), primaryReads);
+    }
+
+    private long readHeartbeat() {
+        try (Session session = replica.openSession()) {
+            Object beat = session.createNativeQuery("SELECT beat_at FROM replica_heartbeat WHERE id = 1")
+                .uniqueResult();
+            if (beat == null) {
+                throw new IllegalStateException("replica_heartbeat row is missing on the replica");
+            }
+            return ((Number) beat).longValue();
+        }
+    }
+
+    private void writeHeartbeat(long now) {
+        Session session = primary.openSession();
+        Transaction transaction = session.beginTransaction();
+        
+        try {
+            session.createNativeQuery("UPDATE replica_heartbeat SET beat_at = :now WHERE id = 1")
+                .setParameter("now", now)
+                .executeUpdate();
+            transaction.commit();
+        } catch (Exception e) {
+            transaction.rollback();
+            throw e;
+        } finally {
+            session.close();
+        }
+    }
+}
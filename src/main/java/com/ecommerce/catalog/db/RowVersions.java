@@ -0,0 +1,27 @@
+package com.ecommerce.catalog.db;
+
+import org.hibernate.Session;
+
+/**
+ * Maintains the {@code version} column of {@code products} and {@code categories}. Bulk and
+ * native writes increment it in their own statement; entity updates, whose columns Hibernate
+ * writes, call {@link #increment} once the row has been flushed. Unlike {@code updated_at} the
+ * version changes on every write, however close together, so it can back strong ETags and
+ * {@code If-Match}.
+ */
+final class RowVersions {
+
+    private RowVersions() {}
+
+    /**
+     * @return the row's new version
+     */
+    static long increment(Session session, String table, Long id) {
+        session.createNativeQuery("UPDATE " + table + " SET version = version + 1 WHERE id = :id")
+            .setParameter("id", id)
+            .executeUpdate();
+        return ((Number) session.createNativeQuery("SELECT version FROM " + table + " WHERE id = :id")
+            .setParameter("id", id)
+            .getSingleResult()).longValue();
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.catalog.db;
+
+/**
+ * Thrown by a conditional write when the row exists but its {@code updatedAt} no longer
+ * matches any version the caller named in {@code If-Match}. Nothing has been written when
+ * this is thrown.
+ */
+public class StaleEntityException extends RuntimeException {
+    private final Long id;
+
+    public StaleEntityException(String entity, Long id) {
+        super(entity + " " + id + " has been modified");
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
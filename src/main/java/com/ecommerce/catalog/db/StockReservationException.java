@@ -0,0 +1,27 @@
+package com.ecommerce.catalog.db;
+
+/**
+ * Thrown when a stock change cannot be applied, either because the product does not exist
+ * or because fewer units are in stock than were requested. Nothing has been written when
+ * this is thrown.
+ */
+public class StockReservationException extends RuntimeException {
+    private final Long productId;
+    private final boolean productMissing;
+
+    public StockReservationException(Long productId, boolean productMissing) {
+        super(productMissing
+            ? "Product not found with id: " + productId
+            : "Insufficient stock for product: " + productId);
+        this.productId = productId;
+        this.productMissing = productMissing;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public boolean isProductMissing() {
+        return productMissing;
+    }
+}
@@ -0,0 +1,232 @@
+package com.ecommerce.catalog.db;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionDelegatorBaseImpl;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A request-scoped session and transaction shared by every DAO call made on the same thread.
+ * Without one, each DAO call opens its own session and commits on its own, as before.
+ *
+ * <p>Inside {@link #call}, {@link #openSession(SessionFactory)} hands DAOs a view of the unit's
+ * session: {@code close()} is a no-op, {@code commit()} is deferred to the end of the unit and
+ * {@code rollback()} marks the whole unit rollback-only. Sessions are opened lazily, one per
+ * session factory (primary and, if configured, replica), so a request served entirely from
+ * cache borrows no connection at all. DAOs register their cache evictions and listener
+ * notifications with {@link #afterCommit}, which runs them once the unit has committed.
+ */
+public final class UnitOfWork {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final boolean readOnly;
+    private final Map<SessionFactory, Session> sessions = new IdentityHashMap<>(2);
+    private boolean rollbackOnly;
+    private boolean written;
+
+    private UnitOfWork(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Runs {@code work} in a unit of work and commits it, unless a DAO rolled back, in which
+     * case everything the unit wrote is rolled back. Nested calls join the outer unit.
+     *
+     * @param readOnly opens read-only sessions; a DAO write inside the unit fails
+     */
+    public static <T> T call(boolean readOnly, Callable<T> work) throws Exception {
+        if (CURRENT.get() != null) {
+            return work.call();
+        }
+        UnitOfWork unit = new UnitOfWork(readOnly);
+        CURRENT.set(unit);
+        try {
+            T result = work.call();
+            unit.complete();
+            return result;
+        } catch (Exception | Error e) {
+            unit.rollbackOnly = true;
+            try {
+                unit.complete();
+            } catch (RuntimeException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            throw e;
+        } finally {
+            CURRENT.remove();
+            unit.close();
+        }
+    }
+
+    /**
+     * The session DAOs should use: the current unit's session for {@code sessionFactory}, or a
+     * new session the caller owns when no unit is active. Either way the caller closes it.
+     */
+    public static Session openSession(SessionFactory sessionFactory) {
+        UnitOfWork unit = CURRENT.get();
+        return unit == null ? sessionFactory.openSession() : unit.session(sessionFactory);
+    }
+
+    /**
+     * {@code true} while the current unit holds uncommitted writes. Reads that fill shared caches
+     * must bypass them then, or they could publish rows that are later rolled back.
+     */
+    public static boolean hasUncommittedWrites() {
+        UnitOfWork unit = CURRENT.get();
+        return unit != null && unit.written;
+    }
+
+    /**
+     * Makes the current unit, if any, roll back instead of committing.
+     */
+    public static void setRollbackOnly() {
+        UnitOfWork unit = CURRENT.get();
+        if (unit != null) {
+            unit.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * Runs {@code action} once {@code transaction} has committed; never if it rolls back. With
+     * a unit of work that is when the whole unit commits.
+     */
+    public static void afterCommit(Transaction transaction, Runnable action) {
+        transaction.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private Session session(SessionFactory sessionFactory) {
+        Session session = sessions.get(sessionFactory);
+        if (session == null) {
+            session = sessionFactory.openSession();
+            session.setDefaultReadOnly(readOnly);
+            session.beginTransaction();
+            sessions.put(sessionFactory, session);
+        }
+        return new SharedSession((SessionImplementor) session);
+    }
+
+    private void complete() {
+        for (Session session : sessions.values()) {
+            Transaction transaction = session.getTransaction();
+            if (!transaction.isActive()) {
+                continue;
+            }
+            if (rollbackOnly || transaction.getRollbackOnly()) {
+                transaction.rollback();
+            } else {
+                transaction.commit();
+            }
+        }
+    }
+
+    private void close() {
+        for (Session session : sessions.values()) {
+            session.close();
+        }
+    }
+
+    /** The unit's session as seen by one DAO call. */
+    private final class SharedSession extends SessionDelegatorBaseImpl {
+        private final Transaction transaction;
+
+        SharedSession(SessionImplementor delegate) {
+            super(delegate);
+            this.transaction = new SharedTransaction(delegate.getTransaction());
+        }
+
+        @Override
+        public Transaction beginTransaction() {
+            if (readOnly) {
+                throw new IllegalStateException("Cannot write inside a read-only unit of work");
+            }
+            written = true;
+            return transaction;
+        }
+
+        @Override
+        public Transaction getTransaction() {
+            return transaction;
+        }
+
+        @Override
+        public void close() {
+            // closed when the unit of work ends
+        }
+    }
+
+    /** The unit's transaction as seen by one DAO call: commit is deferred, rollback spoils the unit. */
+    private final class SharedTransaction implements Transaction {
+        private final Transaction delegate;
+
+        SharedTransaction(Transaction delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public void rollback() {
+            rollbackOnly = true;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            rollbackOnly = true;
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        @Override
+        public boolean isActive() {
+            return delegate.isActive() && !rollbackOnly;
+        }
+
+        @Override
+        public TransactionStatus getStatus() {
+            return delegate.getStatus();
+        }
+
+        @Override
+        public void registerSynchronization(Synchronization synchronization) {
+            delegate.registerSynchronization(synchronization);
+        }
+
+        @Override
+        public void setTimeout(int seconds) {
+            delegate.setTimeout(seconds);
+        }
+
+        @Override
+        public int getTimeout() {
+            return delegate.getTimeout();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.catalog.export;
+
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the catalog straight from a forward-only database cursor to an output stream, one
+ * row at a time, so an export of any size runs in constant heap.
+ */
+public class ProductExporter {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final String CSV_HEADER =
+        "id,name,description,price,stock_quantity,status,category_id,category_name,created_at,updated_at";
+
+    private final ProductDAO productDAO;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ProductExporter(ProductDAO productDAO) {
+        this.productDAO = productDAO;
+    }
+
+    public void export(Format format, Long categoryId, Product.ProductStatus status, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            productDAO.scrollViews(categoryId, status, view -> writeCsv(writer, view));
+            writer.flush();
+        } else {
+            JsonGenerator generator = jsonFactory.createGenerator(writer);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            productDAO.scrollViews(categoryId, status, view -> writeJson(generator, writer, view));
+            generator.flush();
+        }
+    }
+
+    private static void writeJson(JsonGenerator generator, Writer writer, ProductView view) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", view.id());
+        generator.writeStringField("name", view.name());
+        generator.writeStringField("description", view.description());
+        generator.writeNumberField("price", view.price());
+        generator.writeNumberField("stockQuantity", view.stockQuantity());
+        generator.writeStringField("status", view.status() != null ? view.status().name() : null);
+        if (view.categoryId() != null) {
+            generator.writeNumberField("categoryId", view.categoryId());
+        } else {
+            generator.writeNullField("categoryId");
+        }
+        generator.writeStringField("categoryName", view.categoryName());
+        generator.writeStringField("createdAt", view.createdAt() != null ? view.createdAt().toString() : null);
+        generator.writeStringField("updatedAt", view.updatedAt() != null ? view.updatedAt().toString() : null);
+        generator.writeEndObject();
+        generator.flush();
+        writer.write('\n');
+    }
+
+    private static void writeCsv(Writer writer, ProductView view) throws IOException {
+        writer.write(String.valueOf(view.id()));
+        writer.write(',');
+        writer.write(csv(view.name()));
+        writer.write(',');
+        writer.write(csv(view.description()));
+        writer.write(',');
+        writer.write(view.price().toPlainString());
+        writer.write(',');
+        writer.write(String.valueOf(view.stockQuantity()));
+        writer.write(',');
+        writer.write(view.status() != null ? view.status().name() : "");
+        writer.write(',');
+        writer.write(view.categoryId() != null ? view.categoryId().toString() : "");
+        writer.write(',');
+        writer.write(csv(view.categoryName()));
+        writer.write(',');
+        writer.write(view.createdAt() != null ? view.createdAt().toString() : "");
+        writer.write(',');
+        writer.write(view.updatedAt() != null ? view.updatedAt().toString() : "");
+        writer.write('\n');
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
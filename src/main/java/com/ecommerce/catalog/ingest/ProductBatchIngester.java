@@ -0,0 +1,138 @@
+package com.ecommerce.catalog.ingest;
+
+import com.ecommerce.catalog.api.BatchItemResult;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams an NDJSON body of products into the database. Each line is parsed and validated as
+ * it is read; valid products are buffered into chunks of {@code chunkSize} and written with
+ * {@link ProductDAO#saveBatch(List)}. One result line per input line is written to the output
+ * as soon as its outcome is known, so memory use is bounded by the chunk size rather than by
+ * the size of the request.
+ */
+public class ProductBatchIngester {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductBatchIngester.class);
+
+    private final ProductDAO productDAO;
+    private final ObjectReader productReader;
+    private final ObjectWriter resultWriter;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public ProductBatchIngester(ProductDAO productDAO, ObjectMapper objectMapper, Validator validator, int chunkSize) {
+        this.productDAO = productDAO;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.resultWriter = objectMapper.writerFor(BatchItemResult.class);
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    public void ingest(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<Product> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            Product product;
+            try {
+                product = productReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                write(output, BatchItemResult.rejected(lineNumber, BatchItemResult.Status.INVALID,
+                    Collections.singletonList("Malformed JSON: " + e.getOriginalMessage())));
+                continue;
+            }
+            if (product == null) {
+                write(output, BatchItemResult.rejected(lineNumber, BatchItemResult.Status.INVALID,
+                    Collections.singletonList("Expected a product object")));
+                continue;
+            }
+
+            Set<ConstraintViolation<Product>> violations = validator.validate(product);
+            if (!violations.isEmpty()) {
+                List<String> errors = new ArrayList<>(violations.size());
+                for (ConstraintViolation<Product> violation : violations) {
+                    errors.add(violation.getPropertyPath() + " " + violation.getMessage());
+                }
+                write(output, BatchItemResult.rejected(lineNumber, BatchItemResult.Status.INVALID, errors));
+                continue;
+            }
+
+            chunk.add(product);
+            chunkLines.add(lineNumber);
+            if (chunk.size() == chunkSize) {
+                flush(chunk, chunkLines, output);
+            }
+        }
+
+        flush(chunk, chunkLines, output);
+    }
+
+    private void flush(List<Product> chunk, List<Long> chunkLines, OutputStream output) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<BatchItemResult.Status> statuses = new ArrayList<>(chunk.size());
+        for (Product product : chunk) {
+            statuses.add(product.getId() == null ? BatchItemResult.Status.CREATED : BatchItemResult.Status.UPSERTED);
+        }
+
+        try {
+            productDAO.saveBatch(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                write(output, BatchItemResult.saved(chunkLines.get(i), statuses.get(i), chunk.get(i).getId()));
+            }
+        } catch (RuntimeException e) {
+            // The chunk was rolled back; retry its items one by one to isolate the bad rows
+            LOGGER.debug("Batch chunk failed, retrying {} items individually", chunk.size(), e);
+            for (int i = 0; i < chunk.size(); i++) {
+                write(output, saveSingle(chunk.get(i), chunkLines.get(i), statuses.get(i)));
+            }
+        }
+
+        output.flush();
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private BatchItemResult saveSingle(Product product, long line, BatchItemResult.Status status) {
+        try {
+            productDAO.saveBatch(Collections.singletonList(product));
+            return BatchItemResult.saved(line, status, product.getId());
+        } catch (RuntimeException e) {
+            return BatchItemResult.rejected(line, BatchItemResult.Status.FAILED, Collections.singletonList(e.getMessage()));
+        }
+    }
+
+    private void write(OutputStream output, BatchItemResult result) throws IOException {
+        output.write(resultWriter.writeValueAsBytes(result));
+        output.write('\n');
+    }
+}
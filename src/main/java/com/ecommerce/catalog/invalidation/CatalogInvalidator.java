@@ -0,0 +1,35 @@
+package com.ecommerce.catalog.invalidation;
+
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.cache.ProductCache;
+import com.ecommerce.catalog.db.CategoryDAO;
+
+import java.util.Collection;
+
+/**
+ * Applies invalidations from other replicas to this replica's caches, the same way a local
+ * write does: product ids are evicted from the {@link ProductCache}, and any category change
+ * reloads the {@link CategoryDAO} tree snapshot. Subscribed before the search index, column
+ * store and counts, which re-read the ids through the cache it has just evicted.
+ */
+public class CatalogInvalidator implements InvalidationListener {
+
+    private final ProductCache productCache;
+    private final CategoryDAO categoryDAO;
+
+    public CatalogInvalidator(ProductCache productCache, CategoryDAO categoryDAO) {
+        this.productCache = productCache;
+        this.categoryDAO = categoryDAO;
+    }
+
+    @Override
+    public void invalidate(CatalogChange.Entity entity, Collection<Long> ids) {
+        if (entity == CatalogChange.Entity.PRODUCT) {
+            for (Long id : ids) {
+                productCache.invalidate(id);
+            }
+        } else {
+            categoryDAO.refresh();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecommerce.catalog.invalidation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.db.CatalogChangeDAO;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalidation bus that needs no infrastructure beyond MySQL: the {@code catalog_changes} rows
+ * the DAOs write in the same transaction are the messages, so {@link #publish} does nothing and
+ * a commit can never be lost between the database and the bus.
+ * <p>
+ * Every {@code pollInterval} each replica reads the rows after its cursor. Unlike the change
+ * feed it does not wait for rows to settle; a row's sequence is allocated before its
+ * transaction commits, so the cursor only advances to the newest settled sequence and the
+ * unsettled tail is read again on the next poll, with rows already delivered skipped. Each
+ * poll pages through to the end of the outbox, so a burst longer than a page is delivered
+ * at once rather than held until it settles. A replica also receives its own writes, which
+ * costs one redundant invalidation each.
+ */
+public class DatabaseInvalidationBus implements InvalidationBus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseInvalidationBus.class);
+    static final int PAGE_SIZE = 1000;
+
+    private final CatalogChangeDAO changeDAO;
+    private final ScheduledExecutorService executor;
+    private final Duration pollInterval;
+    private final InvalidationDispatcher dispatcher = new InvalidationDispatcher();
+
+    // Confined to the executor
+    private final Set<Long> delivered = new HashSet<>();
+    private long cursor;
+
+    /**
+     * @param executor must be single-threaded; polls are not synchronized
+     */
+    public DatabaseInvalidationBus(CatalogChangeDAO changeDAO, ScheduledExecutorService executor, Duration pollInterval) {
+        this.changeDAO = changeDAO;
+        this.executor = executor;
+        this.pollInterval = pollInterval;
+    }
+
+    @Override
+    public void start() {
+        cursor = changeDAO.latestSequence();
+        long pollMillis = pollInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::pollQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void publish(CatalogChange.Entity entity, Collection<Long> ids) {
+        // already in catalog_changes, written with the change itself
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        dispatcher.subscribe(listener);
+    }
+
+    @Override
+    public void registerMetrics(MetricRegistry metrics) {
+        dispatcher.register(metrics, DatabaseInvalidationBus.class);
+    }
+
+    void poll() {
+        long settled = changeDAO.latestSequence();
+        long after = cursor;
+        List<CatalogChange> changes;
+        do {
+            changes = changeDAO.findAfter(after, PAGE_SIZE);
+            deliver(changes);
+            if (!changes.isEmpty()) {
+                after = changes.get(changes.size() - 1).sequence();
+            }
+        } while (changes.size() == PAGE_SIZE);
+
+        // every row up to the settled sequence has committed and been read
+        cursor = Math.max(cursor, settled);
+        delivered.removeIf(sequence -> sequence <= cursor);
+    }
+
+    private void deliver(List<CatalogChange> changes) {
+        Map<CatalogChange.Entity, List<Long>> ids = new EnumMap<>(CatalogChange.Entity.class);
+        Map<CatalogChange.Entity, Long> oldest = new EnumMap<>(CatalogChange.Entity.class);
+        for (CatalogChange change : changes) {
+            if (delivered.add(change.sequence())) {
+                ids.computeIfAbsent(change.entity(), entity -> new ArrayList<>()).add(change.id());
+                oldest.merge(change.entity(), Timestamp.valueOf(change.changedAt()).getTime(), Math::min);
+            }
+        }
+        for (Map.Entry<CatalogChange.Entity, List<Long>> entry : ids.entrySet()) {
+            dispatcher.dispatch(entry.getKey(), entry.getValue(), oldest.get(entry.getKey()));
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to poll catalog changes for invalidations", e);
+        }
+    }
+}
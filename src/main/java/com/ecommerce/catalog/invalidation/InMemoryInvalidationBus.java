@@ -0,0 +1,67 @@
+package com.ecommerce.catalog.invalidation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.ecommerce.catalog.api.CatalogChange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Invalidation bus between instances in one JVM, for tests that run several replicas side by
+ * side. Buses created through {@link #peer()} form a group; a publish is delivered to every
+ * other member synchronously on the publishing thread.
+ */
+public class InMemoryInvalidationBus implements InvalidationBus {
+
+    private final Set<InMemoryInvalidationBus> group;
+    private final InvalidationDispatcher dispatcher = new InvalidationDispatcher();
+
+    public InMemoryInvalidationBus() {
+        this(new CopyOnWriteArraySet<>());
+    }
+
+    private InMemoryInvalidationBus(Set<InMemoryInvalidationBus> group) {
+        this.group = group;
+        group.add(this);
+    }
+
+    /**
+     * @return a new bus in the same group, standing in for another replica
+     */
+    public InMemoryInvalidationBus peer() {
+        return new InMemoryInvalidationBus(group);
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        group.remove(this);
+    }
+
+    @Override
+    public void publish(CatalogChange.Entity entity, Collection<Long> ids) {
+        long publishedAt = System.currentTimeMillis();
+        List<Long> copy = new ArrayList<>(ids);
+        for (InMemoryInvalidationBus member : group) {
+            if (member != this) {
+                member.dispatcher.dispatch(entity, copy, publishedAt);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        dispatcher.subscribe(listener);
+    }
+
+    @Override
+    public void registerMetrics(MetricRegistry metrics) {
+        dispatcher.register(metrics, InMemoryInvalidationBus.class);
+    }
+}
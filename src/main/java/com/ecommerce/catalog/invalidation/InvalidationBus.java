@@ -0,0 +1,32 @@
+package com.ecommerce.catalog.invalidation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.ecommerce.catalog.api.CatalogChange;
+import io.dropwizard.lifecycle.Managed;
+
+import java.util.Collection;
+
+/**
+ * Carries cache invalidations between the replicas of the service. {@link
+ * com.ecommerce.catalog.db.ProductDAO} and {@link com.ecommerce.catalog.db.CategoryDAO} publish
+ * the ids they wrote once the transaction has committed; every other replica hands them to its
+ * {@link InvalidationListener}s. The writing replica invalidates its own caches directly.
+ * <p>
+ * Delivery is at least once for {@link DatabaseInvalidationBus} and best effort for
+ * {@link MulticastInvalidationBus}, so listeners must be idempotent and caches still need a TTL.
+ */
+public interface InvalidationBus extends Managed {
+
+    /**
+     * Called after the write has committed, on the writing thread; must not block for long.
+     */
+    void publish(CatalogChange.Entity entity, Collection<Long> ids);
+
+    void subscribe(InvalidationListener listener);
+
+    /**
+     * Publishes {@code propagationLag}, the time from commit to delivery, and the number of
+     * ids received.
+     */
+    void registerMetrics(MetricRegistry metrics);
+}
@@ -0,0 +1,49 @@
+package com.ecommerce.catalog.invalidation;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ecommerce.catalog.api.CatalogChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener list and delivery metrics shared by the {@link InvalidationBus} implementations.
+ */
+final class InvalidationDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationDispatcher.class);
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private final Timer propagationLag = new Timer();
+    private final Meter received = new Meter();
+
+    void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param publishedAtMillis when the write committed; lag is measured against this host's
+     *     clock, so skew between hosts shows up in the metric
+     */
+    void dispatch(CatalogChange.Entity entity, Collection<Long> ids, long publishedAtMillis) {
+        propagationLag.update(Math.max(0, System.currentTimeMillis() - publishedAtMillis), TimeUnit.MILLISECONDS);
+        received.mark(ids.size());
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.invalidate(entity, ids);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Invalidation listener failed for {} {}", entity, ids, e);
+            }
+        }
+    }
+
+    void register(MetricRegistry metrics, Class<? extends InvalidationBus> bus) {
+        metrics.register(MetricRegistry.name(bus, "propagationLag"), propagationLag);
+        metrics.register(MetricRegistry.name(bus, "received"), received);
+    }
+}
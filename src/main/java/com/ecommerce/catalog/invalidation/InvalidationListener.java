@@ -0,0 +1,13 @@
+package com.ecommerce.catalog.invalidation;
+
+import com.ecommerce.catalog.api.CatalogChange;
+
+import java.util.Collection;
+
+/**
+ * Receives the ids another replica wrote. May be called more than once for the same write.
+ */
+public interface InvalidationListener {
+
+    void invalidate(CatalogChange.Entity entity, Collection<Long> ids);
+}
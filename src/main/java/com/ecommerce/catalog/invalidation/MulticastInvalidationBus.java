@@ -0,0 +1,174 @@
+package com.ecommerce.catalog.invalidation;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.ecommerce.catalog.api.CatalogChange;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Invalidation bus over UDP multicast: a publish is one datagram per {@value #IDS_PER_PACKET}
+ * ids, so replicas usually apply it within a millisecond or two. Datagrams can be dropped and
+ * are not retried; a lost invalidation leaves the entry stale until its TTL. The pods must
+ * share a network that forwards multicast, which many Kubernetes CNIs do not; use
+ * {@link DatabaseInvalidationBus} where that is not the case.
+ * <p>
+ * Datagram layout: magic (2), sender id (8), publish time in epoch millis (8), entity ordinal
+ * (1), id count (2), then the ids (8 each). A replica ignores its own datagrams by sender id.
+ */
+public class MulticastInvalidationBus implements InvalidationBus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MulticastInvalidationBus.class);
+    private static final short MAGIC = (short) 0xCA7A;
+    private static final int HEADER_BYTES = 2 + 8 + 8 + 1 + 2;
+    // stays under a typical 1500-byte MTU after IP and UDP headers
+    private static final int MAX_PACKET_BYTES = 1400;
+    static final int IDS_PER_PACKET = (MAX_PACKET_BYTES - HEADER_BYTES) / 8;
+
+    private final InetSocketAddress group;
+    private final String interfaceName;
+    private final int timeToLive;
+    private final ExecutorService receiver;
+    private final long sender = UUID.randomUUID().getMostSignificantBits();
+    private final InvalidationDispatcher dispatcher = new InvalidationDispatcher();
+    private final Meter sendFailures = new Meter();
+
+    private volatile MulticastSocket socket;
+
+    /**
+     * @param interfaceName the network interface to join the group on, or {@code null} for the
+     *     system default
+     * @param receiver runs the receive loop for as long as the bus is started; needs one thread
+     */
+    public MulticastInvalidationBus(String groupAddress, int port, String interfaceName, int timeToLive,
+                                    ExecutorService receiver) throws IOException {
+        this.group = new InetSocketAddress(InetAddress.getByName(groupAddress), port);
+        this.interfaceName = interfaceName;
+        this.timeToLive = timeToLive;
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void start() throws IOException {
+        MulticastSocket multicastSocket = new MulticastSocket(group.getPort());
+        multicastSocket.setTimeToLive(timeToLive);
+        NetworkInterface networkInterface = null;
+        if (interfaceName != null && !interfaceName.trim().isEmpty()) {
+            networkInterface = NetworkInterface.getByName(interfaceName.trim());
+            if (networkInterface == null) {
+                multicastSocket.close();
+                throw new IOException("No network interface named " + interfaceName);
+            }
+            multicastSocket.setNetworkInterface(networkInterface);
+        }
+        multicastSocket.joinGroup(group, networkInterface);
+        socket = multicastSocket;
+        receiver.execute(() -> receive(multicastSocket));
+    }
+
+    @Override
+    public void stop() {
+        MulticastSocket multicastSocket = socket;
+        socket = null;
+        if (multicastSocket != null) {
+            // unblocks the receive loop
+            multicastSocket.close();
+        }
+    }
+
+    @Override
+    public void publish(CatalogChange.Entity entity, Collection<Long> ids) {
+        MulticastSocket multicastSocket = socket;
+        if (multicastSocket == null || ids.isEmpty()) {
+            return;
+        }
+        for (byte[] datagram : encode(sender, System.currentTimeMillis(), entity, ids)) {
+            try {
+                multicastSocket.send(new DatagramPacket(datagram, datagram.length, group));
+            } catch (IOException e) {
+                sendFailures.mark();
+                LOGGER.warn("Failed to multicast invalidation for {} {}", entity, ids, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        dispatcher.subscribe(listener);
+    }
+
+    @Override
+    public void registerMetrics(MetricRegistry metrics) {
+        dispatcher.register(metrics, MulticastInvalidationBus.class);
+        metrics.register(MetricRegistry.name(MulticastInvalidationBus.class, "sendFailures"), sendFailures);
+    }
+
+    static List<byte[]> encode(long sender, long publishedAt, CatalogChange.Entity entity, Collection<Long> ids) {
+        List<byte[]> datagrams = new ArrayList<>((ids.size() + IDS_PER_PACKET - 1) / IDS_PER_PACKET);
+        Iterator<Long> it = ids.iterator();
+        while (it.hasNext()) {
+            int count = Math.min(IDS_PER_PACKET, ids.size() - datagrams.size() * IDS_PER_PACKET);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * 8)
+                .putShort(MAGIC)
+                .putLong(sender)
+                .putLong(publishedAt)
+                .put((byte) entity.ordinal())
+                .putShort((short) count);
+            for (int i = 0; i < count; i++) {
+                buffer.putLong(it.next());
+            }
+            datagrams.add(buffer.array());
+        }
+        return datagrams;
+    }
+
+    private void receive(MulticastSocket multicastSocket) {
+        byte[] buffer = new byte[MAX_PACKET_BYTES];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!multicastSocket.isClosed()) {
+            try {
+                packet.setLength(buffer.length);
+                multicastSocket.receive(packet);
+                deliver(ByteBuffer.wrap(buffer, 0, packet.getLength()));
+            } catch (IOException e) {
+                if (!multicastSocket.isClosed()) {
+                    LOGGER.warn("Failed to receive invalidation", e);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Dropped malformed invalidation datagram from {}", packet.getSocketAddress(), e);
+            }
+        }
+    }
+
+    void deliver(ByteBuffer datagram) {
+        if (datagram.remaining() < HEADER_BYTES || datagram.getShort() != MAGIC) {
+            return;
+        }
+        long from = datagram.getLong();
+        long publishedAt = datagram.getLong();
+        CatalogChange.Entity entity = CatalogChange.Entity.values()[datagram.get()];
+        int count = datagram.getShort();
+        if (from == sender || datagram.remaining() < count * 8) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(datagram.getLong());
+        }
+        dispatcher.dispatch(entity, ids, publishedAt);
+    }
+}
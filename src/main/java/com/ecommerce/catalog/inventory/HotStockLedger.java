@@ -0,0 +1,454 @@
+package com.ecommerce.catalog.inventory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.api.StockLevel;
+import com.ecommerce.catalog.db.HotStockException;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.StockReservationException;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * In-memory stock for flash-sale products. Flagging a product moves its reservations off the
+ * {@code products} row: stock is held in a {@link StripedCounter}, oversell is rejected
+ * without touching the database, and the accepted deltas are coalesced and written back to
+ * {@code stock_quantity} every {@code flushInterval}.
+ * <p>
+ * Every accepted delta is appended to a local journal before the caller is answered. The
+ * journal is split into numbered segments; a flush rotates to a new segment and applies the
+ * deltas together with a checkpoint naming the newest segment they cover, so on start any
+ * segment past the checkpoint is replayed exactly once. Appends reach the OS immediately and
+ * are forced to disk every {@code syncInterval}, which bounds what a power loss (as opposed
+ * to a process crash) can drop.
+ * <p>
+ * The counters are local to this instance, but the flag is stored on the product row:
+ * {@link ProductDAO} checks it under the row lock, so every instance rejects other writes to
+ * a hot product's stock with {@link HotStockException}, and requests for it must be routed
+ * to the instance that flagged it to succeed. On start the ledger replays its journal and
+ * clears its own flags; the products are served from the database again until flagged anew.
+ */
+public class HotStockLedger implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotStockLedger.class);
+    private static final String SEGMENT_PREFIX = "stock-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    // productId (8) + delta (4) + crc (4)
+    private static final int RECORD_BYTES = 16;
+
+    private final ProductDAO productDAO;
+    private final ScheduledExecutorService executor;
+    private final Path journalDir;
+    private final String ledgerName;
+    private final Duration flushInterval;
+    private final Duration syncInterval;
+    private final int stripes = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final Map<Long, StripedCounter> hot = new ConcurrentHashMap<>();
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final AtomicLong lastFlushMillis = new AtomicLong(System.currentTimeMillis());
+    private final Timer flushes = new Timer();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean unsynced;
+
+    // Guarded by journalLock
+    private Map<Long, Long> pending = new HashMap<>();
+    private volatile FileChannel journal;
+    private long segment;
+
+    public HotStockLedger(ProductDAO productDAO, ScheduledExecutorService executor, Path journalDir, String ledgerName,
+                          Duration flushInterval, Duration syncInterval) {
+        this.productDAO = productDAO;
+        this.executor = executor;
+        this.journalDir = journalDir;
+        this.ledgerName = ledgerName;
+        this.flushInterval = flushInterval;
+        this.syncInterval = syncInterval;
+    }
+
+    @Override
+    public void start() throws Exception {
+        Files.createDirectories(journalDir);
+        recover();
+        int released = productDAO.clearHotStock(ledgerName);
+        if (released > 0) {
+            LOGGER.info("Released {} products flagged hot by a previous run of ledger {}", released, ledgerName);
+        }
+
+        long flushMillis = flushInterval.toMilliseconds();
+        long syncMillis = syncInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::syncQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (journal == null) {
+            return;
+        }
+        flush();
+        journalLock.lock();
+        try {
+            journal.close();
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    public boolean isHot(Long productId) {
+        return hot.containsKey(productId);
+    }
+
+    /**
+     * Starts serving {@code productId} from memory, seeded with its current database stock. From
+     * then on {@link ProductDAO} rejects every other write to its stock, on any instance.
+     *
+     * @return the stock now held in memory, or empty if the product does not exist
+     * @throws HotStockException if another ledger holds the product
+     */
+    public synchronized Optional<StockLevel> flag(Long productId) {
+        StripedCounter counter = hot.get(productId);
+        if (counter != null) {
+            return Optional.of(new StockLevel(productId, (int) counter.sum()));
+        }
+        // Deltas left from an earlier hot period must reach the row before it seeds the counter
+        flush();
+        return productDAO.flagHotStock(productId, ledgerName).map(quantity -> {
+            hot.put(productId, new StripedCounter(stripes, quantity));
+            return new StockLevel(productId, quantity);
+        });
+    }
+
+    /**
+     * Stops serving {@code productId} from memory and hands it back to the database once its
+     * pending deltas are written back. The row stays flagged until then, so cold writes cannot
+     * act on stock the ledger still owes. If the write-back fails the product stays flagged,
+     * without a counter, until the unflag is retried.
+     */
+    public synchronized void unflag(Long productId) {
+        journalLock.lock();
+        try {
+            // Appends check their counter under journalLock: the ones already past it are in pending
+            hot.remove(productId);
+        } finally {
+            journalLock.unlock();
+        }
+        flush();
+        productDAO.unflagHotStock(productId, ledgerName);
+    }
+
+    /**
+     * @return the stock left after the reservation, or empty if too little was available
+     * @throws HotStockException if the product is not hot here, or stopped being hot meanwhile
+     */
+    public Optional<StockLevel> reserve(Long productId, int quantity) throws IOException {
+        StripedCounter counter = hot.get(productId);
+        if (counter == null) {
+            throw new HotStockException(productId, null);
+        }
+        if (!counter.tryTake(quantity)) {
+            rejected.incrementAndGet();
+            return Optional.empty();
+        }
+        try {
+            append(productId, -quantity, counter);
+        } catch (IOException | HotStockException e) {
+            counter.add(quantity);
+            throw e;
+        }
+        return Optional.of(new StockLevel(productId, (int) counter.sum()));
+    }
+
+    /**
+     * Returns units to stock. Accepted even if the product stopped being hot since the caller
+     * checked, so giving back a reservation never fails half-way: the delta is journaled and
+     * written back like any other.
+     */
+    public StockLevel release(Long productId, int quantity) throws IOException {
+        StripedCounter counter = append(productId, quantity, null);
+        if (counter != null) {
+            return new StockLevel(productId, (int) counter.sum());
+        }
+        // Unflagged meanwhile: the row's stock plus what this ledger has yet to write back to it
+        int stock = productDAO.findById(productId)
+            .map(ProductView::stockQuantity)
+            .orElseThrow(() -> new StockReservationException(productId, true));
+        return new StockLevel(productId, stock + (int) pendingDelta(productId));
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(HotStockLedger.class, "hotProducts"), (Gauge<Integer>) hot::size);
+        metrics.register(MetricRegistry.name(HotStockLedger.class, "pendingProducts"), (Gauge<Integer>) this::pendingProducts);
+        metrics.register(MetricRegistry.name(HotStockLedger.class, "pendingUnits"), (Gauge<Long>) this::pendingUnits);
+        metrics.register(MetricRegistry.name(HotStockLedger.class, "flushLagMillis"),
+            (Gauge<Long>) () -> System.currentTimeMillis() - lastFlushMillis.get());
+        metrics.register(MetricRegistry.name(HotStockLedger.class, "rejectedReservations"), (Gauge<Long>) rejected::get);
+        metrics.register(MetricRegistry.name(HotStockLedger.class, "flushes"), flushes);
+    }
+
+    /**
+     * Writes every pending delta back to the database. On failure the deltas stay pending and
+     * their journal segments stay on disk, to be retried by the next flush. Synchronized so
+     * checkpoints only ever move forward.
+     */
+    public synchronized void flush() {
+        Map<Long, Long> batch;
+        long flushedSegment;
+        journalLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                lastFlushMillis.set(System.currentTimeMillis());
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+            flushedSegment = segment;
+            rotate();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to rotate stock journal", e);
+        } finally {
+            journalLock.unlock();
+        }
+
+        try (Timer.Context ignored = flushes.time()) {
+            productDAO.applyStockDeltas(batch, ledgerName, flushedSegment);
+        } catch (RuntimeException e) {
+            journalLock.lock();
+            try {
+                batch.forEach((id, delta) -> pending.merge(id, delta, Long::sum));
+            } finally {
+                journalLock.unlock();
+            }
+            throw e;
+        }
+        lastFlushMillis.set(System.currentTimeMillis());
+        deleteSegmentsUpTo(flushedSegment);
+    }
+
+    /**
+     * Journals {@code delta} and adds it to the pending write-back. With {@code expected} set the
+     * append is refused unless that counter is still the product's; otherwise the delta is also
+     * added to whatever counter the product has, atomically with the journal, so a flag that
+     * seeds a new counter never sees it twice.
+     *
+     * @return the product's counter at the time of the append, or {@code null} if not hot
+     */
+    private StripedCounter append(Long productId, int delta, StripedCounter expected) throws IOException {
+        journalLock.lock();
+        try {
+            StripedCounter counter = hot.get(productId);
+            if (expected != null && counter != expected) {
+                throw new HotStockException(productId, null);
+            }
+            crc.reset();
+            record.clear();
+            record.putLong(productId).putInt(delta);
+            crc.update(record.array(), 0, 12);
+            record.putInt((int) crc.getValue());
+            record.flip();
+            long position = journal.position();
+            try {
+                while (record.hasRemaining()) {
+                    journal.write(record);
+                }
+            } catch (IOException e) {
+                // Don't leave a partial record for later appends to land behind
+                journal.truncate(position);
+                throw e;
+            }
+            pending.merge(productId, (long) delta, Long::sum);
+            unsynced = true;
+            if (expected == null && counter != null) {
+                counter.add(delta);
+            }
+            return counter;
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private long pendingDelta(Long productId) {
+        journalLock.lock();
+        try {
+            return pending.getOrDefault(productId, 0L);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private int pendingProducts() {
+        journalLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private long pendingUnits() {
+        journalLock.lock();
+        try {
+            long units = 0;
+            for (long delta : pending.values()) {
+                units += Math.abs(delta);
+            }
+            return units;
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private void rotate() throws IOException {
+        journal.force(false);
+        journal.close();
+        segment++;
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        journal = FileChannel.open(segmentPath(segment),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Replays the segments a previous run left behind that the database has not seen yet,
+     * then opens a fresh segment numbered after all of them.
+     */
+    private void recover() throws IOException {
+        long checkpoint = productDAO.findStockCheckpoint(ledgerName);
+        TreeMap<Long, Path> segments = listSegments();
+
+        Map<Long, Long> replay = new HashMap<>();
+        long newest = checkpoint;
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            if (entry.getKey() > checkpoint) {
+                readSegment(entry.getValue(), replay);
+                newest = entry.getKey();
+            }
+        }
+        if (!replay.isEmpty()) {
+            productDAO.applyStockDeltas(replay, ledgerName, newest);
+            LOGGER.info("Replayed stock journal for {} products up to segment {}", replay.size(), newest);
+        }
+
+        segment = Math.max(newest, segments.isEmpty() ? 0 : segments.lastKey()) + 1;
+        deleteSegmentsUpTo(segment - 1);
+        openSegment();
+    }
+
+    private static void readSegment(Path path, Map<Long, Long> deltas) throws IOException {
+        CRC32 check = new CRC32();
+        byte[] bytes = new byte[RECORD_BYTES];
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                try {
+                    input.readFully(bytes);
+                } catch (EOFException e) {
+                    return;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                long productId = buffer.getLong();
+                int delta = buffer.getInt();
+                int expected = buffer.getInt();
+                check.reset();
+                check.update(bytes, 0, 12);
+                if ((int) check.getValue() != expected) {
+                    // A torn write can only be the last record; nothing after it was acknowledged
+                    LOGGER.warn("Ignoring corrupt tail of stock journal {}", path);
+                    return;
+                }
+                deltas.merge(productId, (long) delta, Long::sum);
+            }
+        }
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Ignoring unexpected file in stock journal directory: {}", file);
+                }
+            }
+        }
+        return segments;
+    }
+
+    private void deleteSegmentsUpTo(long last) {
+        try {
+            for (Map.Entry<Long, Path> entry : listSegments().headMap(last, true).entrySet()) {
+                Files.deleteIfExists(entry.getValue());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete applied stock journal segments", e);
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return journalDir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.error("Failed to flush hot stock deltas; will retry", e);
+        }
+    }
+
+    private void syncQuietly() {
+        if (!unsynced) {
+            return;
+        }
+        unsynced = false;
+        FileChannel channel;
+        journalLock.lock();
+        try {
+            channel = journal;
+        } finally {
+            journalLock.unlock();
+        }
+        // Outside the lock so appends are not held up by the disk; rotate() syncs what it closes
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // Rotated away in the meantime
+        } catch (IOException e) {
+            unsynced = true;
+            LOGGER.error("Failed to sync stock journal", e);
+        }
+    }
+}
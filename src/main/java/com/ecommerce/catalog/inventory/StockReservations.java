@@ -0,0 +1,137 @@
+package com.ecommerce.catalog.inventory;
+
+import com.ecommerce.catalog.api.StockAdjustment;
+import com.ecommerce.catalog.api.StockLevel;
+import com.ecommerce.catalog.db.HotStockException;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.StockReservationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Routes stock changes to the {@link HotStockLedger} for products flagged hot and to
+ * {@link ProductDAO}'s conditional updates for everything else. A cart that mixes both is
+ * still all-or-nothing: hot lines are reserved first and given back if any line fails.
+ * Cart results hold one level per product, in the order the request named them.
+ * <p>
+ * A product flagged or unflagged while its change was in flight fails that change with
+ * {@link HotStockException} before anything is written, so it is routed once more; a product
+ * another instance holds fails again and the exception reaches the caller.
+ */
+public class StockReservations {
+    private final ProductDAO productDAO;
+    private final HotStockLedger ledger;
+
+    public StockReservations(ProductDAO productDAO, HotStockLedger ledger) {
+        this.productDAO = productDAO;
+        this.ledger = ledger;
+    }
+
+    public StockLevel reserve(Long productId, int quantity) throws IOException {
+        if (ledger.isHot(productId)) {
+            return ledger.reserve(productId, quantity)
+                .orElseThrow(() -> new StockReservationException(productId, false));
+        }
+        try {
+            return productDAO.reserveStock(productId, quantity);
+        } catch (HotStockException e) {
+            return reserveOnce(Collections.singletonList(new StockAdjustment(productId, quantity))).get(0);
+        }
+    }
+
+    public StockLevel release(Long productId, int quantity) throws IOException {
+        if (ledger.isHot(productId)) {
+            return ledger.release(productId, quantity);
+        }
+        try {
+            return productDAO.releaseStock(productId, quantity);
+        } catch (HotStockException e) {
+            return releaseOnce(Collections.singletonList(new StockAdjustment(productId, quantity))).get(0);
+        }
+    }
+
+    public List<StockLevel> reserve(List<StockAdjustment> items) throws IOException {
+        try {
+            return reserveOnce(items);
+        } catch (HotStockException e) {
+            return reserveOnce(items);
+        }
+    }
+
+    public List<StockLevel> release(List<StockAdjustment> items) throws IOException {
+        try {
+            return releaseOnce(items);
+        } catch (HotStockException e) {
+            return releaseOnce(items);
+        }
+    }
+
+    private List<StockLevel> reserveOnce(List<StockAdjustment> items) throws IOException {
+        List<StockAdjustment> cold = new ArrayList<>();
+        List<StockAdjustment> taken = new ArrayList<>();
+        List<StockLevel> levels = new ArrayList<>();
+        try {
+            for (StockAdjustment item : items) {
+                if (!ledger.isHot(item.productId())) {
+                    cold.add(item);
+                    continue;
+                }
+                Optional<StockLevel> level = ledger.reserve(item.productId(), item.quantity());
+                if (!level.isPresent()) {
+                    throw new StockReservationException(item.productId(), false);
+                }
+                taken.add(item);
+                levels.add(level.get());
+            }
+            if (!cold.isEmpty()) {
+                levels.addAll(productDAO.reserveStock(cold));
+            }
+            return inRequestOrder(items, levels);
+        } catch (IOException | RuntimeException e) {
+            for (StockAdjustment item : taken) {
+                ledger.release(item.productId(), item.quantity());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the cold lines first, so a retry after {@link HotStockException} cannot release
+     * a hot line twice.
+     */
+    private List<StockLevel> releaseOnce(List<StockAdjustment> items) throws IOException {
+        List<StockAdjustment> hotItems = new ArrayList<>();
+        List<StockAdjustment> cold = new ArrayList<>();
+        for (StockAdjustment item : items) {
+            (ledger.isHot(item.productId()) ? hotItems : cold).add(item);
+        }
+        List<StockLevel> levels = cold.isEmpty() ? new ArrayList<>() : new ArrayList<>(productDAO.releaseStock(cold));
+        for (StockAdjustment item : hotItems) {
+            levels.add(ledger.release(item.productId(), item.quantity()));
+        }
+        return inRequestOrder(items, levels);
+    }
+
+    /**
+     * One level per product, in the order the products first appear in the request. A product
+     * named on several hot lines keeps its last level, the stock left after all of them.
+     */
+    private static List<StockLevel> inRequestOrder(List<StockAdjustment> items, List<StockLevel> levels) {
+        Map<Long, StockLevel> byProduct = new HashMap<>();
+        for (StockLevel level : levels) {
+            byProduct.put(level.productId(), level);
+        }
+        Map<Long, StockLevel> ordered = new LinkedHashMap<>();
+        for (StockAdjustment item : items) {
+            ordered.putIfAbsent(item.productId(), byProduct.get(item.productId()));
+        }
+        return new ArrayList<>(ordered.values());
+    }
+}
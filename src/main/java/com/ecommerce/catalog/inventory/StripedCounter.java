@@ -0,0 +1,67 @@
+package com.ecommerce.catalog.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Non-negative counter split across cache-line padded stripes, so concurrent takers CAS on
+ * different memory instead of all contending for one word. A take that no single stripe
+ * can satisfy falls back to a short locked pass that pools every stripe, which keeps the
+ * counter from rejecting a take the total could still cover.
+ */
+final class StripedCounter {
+    // 8 longs = 64 bytes between live cells
+    private static final int PAD = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    StripedCounter(int stripes, long initial) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        spread(initial);
+    }
+
+    boolean tryTake(long amount) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int k = 0; k < stripes; k++) {
+            int index = ((start + k) % stripes) * PAD;
+            long value;
+            while ((value = cells.get(index)) >= amount) {
+                if (cells.compareAndSet(index, value, value - amount)) {
+                    return true;
+                }
+            }
+        }
+        return takePooled(amount);
+    }
+
+    void add(long amount) {
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PAD, amount);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    private synchronized boolean takePooled(long amount) {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PAD, 0);
+        }
+        boolean taken = total >= amount;
+        spread(taken ? total - amount : total);
+        return taken;
+    }
+
+    private void spread(long total) {
+        long share = total / stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PAD, i == 0 ? share + total % stripes : share);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ecommerce.catalog.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
@@ -59,6 +60,11 @@ public class Category {
     @ApiModelProperty(value = "Update timestamp")
     private LocalDateTime updatedAt;
 
+    /** Incremented by every write to the row; set by the DAO's SQL, never by the entity itself. */
+    @Column(name = "version", insertable = false, updatable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    @JsonIgnore
+    private Long version;
+
     public Category() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
@@ -94,6 +100,9 @@ public class Category {
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 
     @PreUpdate
     protected void onUpdate() {
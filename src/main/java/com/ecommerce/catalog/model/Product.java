@@ -1,10 +1,12 @@
 package com.ecommerce.catalog.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Digits;
 import javax.validation.constraints.Size;
 
 import javax.persistence.*;
@@ -37,11 +39,12 @@ public class Product {
     @Column(nullable = false, precision = 10, scale = 2)
     @NotNull
     @DecimalMin(value = "0.01")
+    @Digits(integer = 8, fraction = 2)
     @JsonProperty
     @ApiModelProperty(value = "Product price", example = "999.99")
     private BigDecimal price;
     
-    @Column(nullable = false)
+    @Column(name = "stock_quantity", nullable = false)
     @NotNull
     @JsonProperty
     @ApiModelProperty(value = "Stock quantity", example = "100")
@@ -69,6 +72,11 @@ public class Product {
     @ApiModelProperty(value = "Update timestamp")
     private LocalDateTime updatedAt;
 
+    /** Incremented by every write to the row; set by the DAO's SQL, never by the entity itself. */
+    @Column(name = "version", insertable = false, updatable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    @JsonIgnore
+    private Long version;
+
     public Product() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
@@ -111,6 +119,9 @@ public class Product {
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 
     @PreUpdate
     protected void onUpdate() {
@@ -1,9 +1,18 @@
 package com.ecommerce.catalog.resources;
 
+import com.ecommerce.catalog.api.CategoryView;
+import com.ecommerce.catalog.api.MergePatch;
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.columnar.ProductColumnStore;
+import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
 import com.ecommerce.catalog.db.CategoryDAO;
+import com.ecommerce.catalog.db.InvalidCursorException;
+import com.ecommerce.catalog.db.ProductCursor;
 import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.StaleEntityException;
 import com.ecommerce.catalog.model.Category;
-import com.ecommerce.catalog.model.Product;
+import com.ecommerce.catalog.stats.ProductCounts;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.dropwizard.auth.Auth;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -12,11 +21,15 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
-import org.hibernate.SessionFactory;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.security.Principal;
@@ -31,26 +44,39 @@ public class CategoryResource {
     
     private final CategoryDAO categoryDAO;
     private final ProductDAO productDAO;
+    private final ProductCounts productCounts;
+    private final ProductColumnStore columnStore;
+    private final ResourceExecutor resourceExecutor;
+    private final CacheControl cacheControl;
+    private final int maxProductsPerPage;
     
-    public CategoryResource(SessionFactory sessionFactory) {
-        this.categoryDAO = new CategoryDAO(sessionFactory);
-        this.productDAO = new ProductDAO(sessionFactory);
+    public CategoryResource(CategoryDAO categoryDAO, ProductDAO productDAO, ProductCounts productCounts,
+                            ProductColumnStore columnStore, ResourceExecutor resourceExecutor,
+                            EcommerceCatalogConfiguration.CatalogSettings catalogSettings) {
+        this.categoryDAO = categoryDAO;
+        this.resourceExecutor = resourceExecutor;
+        this.productDAO = productDAO;
+        this.productCounts = productCounts;
+        this.columnStore = columnStore;
+        this.cacheControl = HttpCaching.cacheControl(catalogSettings);
+        this.maxProductsPerPage = catalogSettings.getMaxProductsPerPage();
     }
     
     @GET
     @ApiOperation(value = "Get all categories", notes = "Returns list of all categories")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Category.class, responseContainer = "List"),
+        @ApiResponse(code = 200, message = "Success", response = CategoryView.class, responseContainer = "List"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
     public Response getAllCategories(@Auth Principal user,
+                                   @Context Request request,
                                    @Context UriInfo uriInfo) {
         try {
-            List<Category> categories = categoryDAO.findAll();
+            List<CategoryView> categories = categoryDAO.findAll();
             long totalCount = categoryDAO.count();
             
-            return Response.ok(categories)
+            return HttpCaching.categories(request, cacheControl, categories)
                 .header("X-Total-Count", totalCount)
                 .build();
         } catch (Exception e) {
@@ -64,19 +90,20 @@ public class CategoryResource {
     @Path("/{id}")
     @ApiOperation(value = "Get category by ID", notes = "Returns a single category")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Category.class),
+        @ApiResponse(code = 200, message = "Success", response = CategoryView.class),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 404, message = "Category not found"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
     public Response getCategory(@Auth Principal user,
                               @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
+                              @Context Request request,
                               @Context UriInfo uriInfo) {
         try {
-            Optional<Category> category = categoryDAO.findById(id);
+            Optional<CategoryView> category = categoryDAO.findById(id);
             
             if (category.isPresent()) {
-                return Response.ok(category.get()).build();
+                return HttpCaching.category(request, cacheControl, category.get()).build();
             } else {
                 return Response.status(Response.Status.NOT_FOUND)
                     .entity("{\"error\": \"Category not found with id: " + id + "\"}")
@@ -92,58 +119,119 @@ public class CategoryResource {
     @POST
     @ApiOperation(value = "Create new category", notes = "Creates a new category")
     @ApiResponses(value = {
-        @ApiResponse(code = 201, message = "Category created", response = Category.class),
+        @ApiResponse(code = 201, message = "Category created", response = CategoryView.class),
         @ApiResponse(code = 400, message = "Invalid input"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response createCategory(@Auth Principal user,
-                                 @ApiParam(value = "Category data", required = true) @Valid @NotNull Category category,
-                                 @Context UriInfo uriInfo) {
-        try {
-            Category createdCategory = categoryDAO.save(category);
-            return Response.status(Response.Status.CREATED)
-                .entity(createdCategory)
-                .build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to create category: " + e.getMessage() + "\"}")
-                .build();
-        }
+    public void createCategory(@Auth Principal user,
+                             @ApiParam(value = "Category data", required = true) @Valid @NotNull Category category,
+                             @Context UriInfo uriInfo,
+                             @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                Category createdCategory = categoryDAO.save(category);
+                return Response.status(Response.Status.CREATED)
+                    .entity(CategoryView.of(createdCategory))
+                    .build();
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to create category: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
     }
     
     @PUT
     @Path("/{id}")
     @ApiOperation(value = "Update category", notes = "Updates an existing category")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Category updated", response = Category.class),
+        @ApiResponse(code = 200, message = "Category updated", response = CategoryView.class),
         @ApiResponse(code = 400, message = "Invalid input"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 404, message = "Category not found"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response updateCategory(@Auth Principal user,
-                                 @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
-                                 @ApiParam(value = "Category data", required = true) @Valid @NotNull Category category,
-                                 @Context UriInfo uriInfo) {
-        try {
-            Optional<Category> existingCategory = categoryDAO.findById(id);
-            
-            if (!existingCategory.isPresent()) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("{\"error\": \"Category not found with id: " + id + "\"}")
+    public void updateCategory(@Auth Principal user,
+                             @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
+                             @ApiParam(value = "Category data", required = true) @Valid @NotNull Category category,
+                             @Context UriInfo uriInfo,
+                             @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                Optional<CategoryView> existingCategory = categoryDAO.findById(id);
+                
+                if (!existingCategory.isPresent()) {
+                    return Response.status(Response.Status.NOT_FOUND)
+                        .entity("{\"error\": \"Category not found with id: " + id + "\"}")
+                        .build();
+                }
+                
+                category.setId(id);
+                Category updatedCategory = categoryDAO.save(category);
+                
+                return Response.ok(CategoryView.of(updatedCategory)).build();
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid category: " + e.getMessage() + "\"}")
+                    .build();
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to update category: " + e.getMessage() + "\"}")
                     .build();
             }
-            
-            category.setId(id);
-            Category updatedCategory = categoryDAO.save(category);
-            
-            return Response.ok(updatedCategory).build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to update category: " + e.getMessage() + "\"}")
-                .build();
-        }
+        });
+    }
+    
+    @PATCH
+    @Path("/{id}")
+    @Consumes(MergePatch.MEDIA_TYPE)
+    @ApiOperation(value = "Patch category", notes = "Applies a JSON Merge Patch (RFC 7396) to the category view, updating only the "
+        + "fields present. Send If-Match with the category's ETag to update only if it is unchanged")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Category updated", response = CategoryView.class),
+        @ApiResponse(code = 400, message = "Invalid patch"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Category not found"),
+        @ApiResponse(code = 412, message = "Category was modified since the If-Match version"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void patchCategory(@Auth Principal user,
+                            @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
+                            @ApiParam(value = "Merge patch", required = true) @NotNull JsonNode body,
+                            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                            @Context UriInfo uriInfo,
+                            @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                MergePatch patch = MergePatch.forCategory(body);
+                
+                List<Long> versions = HttpCaching.ifMatchVersions(ifMatch, HttpCaching.CATEGORY_TAG_PREFIX, id);
+                if (versions != null && versions.isEmpty()) {
+                    return Response.status(Response.Status.PRECONDITION_FAILED).build();
+                }
+                
+                Optional<CategoryView> category = categoryDAO.patch(id, patch, versions);
+                
+                if (category.isPresent()) {
+                    return Response.ok(category.get()).tag(HttpCaching.categoryTag(category.get())).build();
+                } else {
+                    return Response.status(Response.Status.NOT_FOUND)
+                        .entity("{\"error\": \"Category not found with id: " + id + "\"}")
+                        .build();
+                }
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid patch: " + e.getMessage() + "\"}")
+                    .build();
+            } catch (StaleEntityException e) {
+                return Response.status(Response.Status.PRECONDITION_FAILED).build();
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to update category: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
     }
     
     @DELETE
@@ -155,41 +243,45 @@ public class CategoryResource {
         @ApiResponse(code = 404, message = "Category not found"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response deleteCategory(@Auth Principal user,
-                                 @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
-                                 @Context UriInfo uriInfo) {
-        try {
-            Optional<Category> category = categoryDAO.findById(id);
-            
-            if (!category.isPresent()) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("{\"error\": \"Category not found with id: " + id + "\"}")
+    public void deleteCategory(@Auth Principal user,
+                             @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
+                             @Context UriInfo uriInfo,
+                             @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                Optional<CategoryView> category = categoryDAO.findById(id);
+                
+                if (!category.isPresent()) {
+                    return Response.status(Response.Status.NOT_FOUND)
+                        .entity("{\"error\": \"Category not found with id: " + id + "\"}")
+                        .build();
+                }
+                
+                categoryDAO.delete(id);
+                return Response.noContent().build();
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to delete category: " + e.getMessage() + "\"}")
                     .build();
             }
-            
-            categoryDAO.delete(id);
-            return Response.noContent().build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to delete category: " + e.getMessage() + "\"}")
-                .build();
-        }
+        });
     }
     
     @GET
     @Path("/root")
     @ApiOperation(value = "Get root categories", notes = "Returns categories without parent")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Category.class, responseContainer = "List"),
+        @ApiResponse(code = 200, message = "Success", response = CategoryView.class, responseContainer = "List"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
     public Response getRootCategories(@Auth Principal user,
+                                    @Context Request request,
                                     @Context UriInfo uriInfo) {
         try {
-            List<Category> rootCategories = categoryDAO.findRootCategories();
+            List<CategoryView> rootCategories = categoryDAO.findRootCategories();
             
-            return Response.ok(rootCategories).build();
+            return HttpCaching.categories(request, cacheControl, rootCategories).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity("{\"error\": \"Failed to retrieve root categories: " + e.getMessage() + "\"}")
@@ -201,16 +293,17 @@ public class CategoryResource {
     @Path("/{id}/children")
     @ApiOperation(value = "Get child categories", notes = "Returns subcategories of specified category")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Category.class, responseContainer = "List"),
+        @ApiResponse(code = 200, message = "Success", response = CategoryView.class, responseContainer = "List"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 404, message = "Category not found"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
     public Response getChildCategories(@Auth Principal user,
                                      @ApiParam(value = "Parent category ID", required = true) @PathParam("id") @NotNull Long id,
+                                     @Context Request request,
                                      @Context UriInfo uriInfo) {
         try {
-            Optional<Category> parentCategory = categoryDAO.findById(id);
+            Optional<CategoryView> parentCategory = categoryDAO.findById(id);
             
             if (!parentCategory.isPresent()) {
                 return Response.status(Response.Status.NOT_FOUND)
@@ -218,9 +311,9 @@ public class CategoryResource {
                     .build();
             }
             
-            List<Category> childCategories = categoryDAO.findByParentId(id);
+            List<CategoryView> childCategories = categoryDAO.findByParentId(id);
             
-            return Response.ok(childCategories).build();
+            return HttpCaching.categories(request, cacheControl, childCategories).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity("{\"error\": \"Failed to retrieve child categories: " + e.getMessage() + "\"}")
@@ -229,39 +322,128 @@ public class CategoryResource {
     }
     
     @GET
-    @Path("/{id}/products")
-    @ApiOperation(value = "Get products in category", notes = "Returns products belonging to specified category")
+    @Path("/{id}/subtree")
+    @ApiOperation(value = "Get category subtree", notes = "Returns all descendants of specified category, breadth-first")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Product.class, responseContainer = "List"),
+        @ApiResponse(code = 200, message = "Success", response = CategoryView.class, responseContainer = "List"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 404, message = "Category not found"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response getProductsInCategory(@Auth Principal user,
-                                        @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
-                                        @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
-                                        @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
-                                        @Context UriInfo uriInfo) {
+    public Response getCategorySubtree(@Auth Principal user,
+                                     @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
+                                     @Context Request request,
+                                     @Context UriInfo uriInfo) {
         try {
-            Optional<Category> category = categoryDAO.findById(id);
-            
-            if (!category.isPresent()) {
+            if (!categoryDAO.findById(id).isPresent()) {
                 return Response.status(Response.Status.NOT_FOUND)
                     .entity("{\"error\": \"Category not found with id: " + id + "\"}")
                     .build();
             }
             
-            List<Product> products = productDAO.findByCategoryId(id, offset, limit);
-            
-            return Response.ok(products)
-                .header("X-Category-Id", id)
-                .header("X-Offset", offset)
-                .header("X-Limit", limit)
+            return HttpCaching.categories(request, cacheControl, categoryDAO.findSubtree(id)).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity("{\"error\": \"Failed to retrieve category subtree: " + e.getMessage() + "\"}")
                 .build();
+        }
+    }
+    
+    @GET
+    @Path("/{id}/path")
+    @ApiOperation(value = "Get category path", notes = "Returns the ancestors of specified category from the root down, ending with the category itself")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Success", response = CategoryView.class, responseContainer = "List"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Category not found"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public Response getCategoryPath(@Auth Principal user,
+                                  @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
+                                  @Context Request request,
+                                  @Context UriInfo uriInfo) {
+        try {
+            List<CategoryView> path = categoryDAO.findPath(id);
+            
+            if (path.isEmpty()) {
+                return Response.status(Response.Status.NOT_FOUND)
+                    .entity("{\"error\": \"Category not found with id: " + id + "\"}")
+                    .build();
+            }
+            
+            return HttpCaching.categories(request, cacheControl, path).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to retrieve products in category: " + e.getMessage() + "\"}")
+                .entity("{\"error\": \"Failed to retrieve category path: " + e.getMessage() + "\"}")
                 .build();
         }
     }
+    
+    @GET
+    @Path("/{id}/products")
+    @ApiOperation(value = "Get products in category", notes = "Returns products belonging to specified category")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Success", response = ProductView.class, responseContainer = "List"),
+        @ApiResponse(code = 400, message = "Invalid offset, limit or cursor"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Category not found"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void getProductsInCategory(@Auth Principal user,
+                                    @ApiParam(value = "Category ID", required = true) @PathParam("id") @NotNull Long id,
+                                    @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
+                                    @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
+                                    @ApiParam(value = "Keyset cursor from X-Next-Cursor; send an empty value to start") @QueryParam("cursor") String cursor,
+                                    @Context Request request,
+                                    @Context UriInfo uriInfo,
+                                    @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        if (offset < 0 || limit < 1) {
+            asyncResponse.resume(CursorPages.invalidPage());
+            return;
+        }
+        int pageSize = Math.min(limit, maxProductsPerPage);
+        resourceExecutor.read(asyncResponse, () -> {
+            try {
+                Optional<CategoryView> category = categoryDAO.findById(id);
+                
+                if (!category.isPresent()) {
+                    return Response.status(Response.Status.NOT_FOUND)
+                        .entity("{\"error\": \"Category not found with id: " + id + "\"}")
+                        .build();
+                }
+                
+                if (cursor != null) {
+                    List<ProductView> products = columnStore.isReady()
+                        ? columnStore.findByCategoryId(id, CursorPages.parse(cursor), pageSize)
+                        : productDAO.findByCategoryId(id, CursorPages.parse(cursor), pageSize);
+                    
+                    Response.ResponseBuilder response = HttpCaching.products(request, cacheControl, products,
+                        "products", HttpCaching.categoryKey(id));
+                    
+                    return CursorPages.withNextCursor(response, products, pageSize, ProductCursor.SortKey.ID)
+                        .header("X-Total-Count", productCounts.countInCategory(id))
+                        .header("X-Category-Id", id)
+                        .header("X-Limit", pageSize)
+                        .build();
+                }
+                
+                List<ProductView> products = columnStore.isReady()
+                    ? columnStore.findByCategoryId(id, offset, pageSize)
+                    : productDAO.findByCategoryId(id, offset, pageSize);
+                
+                return HttpCaching.products(request, cacheControl, products, "products", HttpCaching.categoryKey(id))
+                    .header("X-Total-Count", productCounts.countInCategory(id))
+                    .header("X-Category-Id", id)
+                    .header("X-Offset", offset)
+                    .header("X-Limit", pageSize)
+                    .build();
+            } catch (InvalidCursorException e) {
+                return CursorPages.invalidCursor(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to retrieve products in category: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.ecommerce.catalog.resources;
+
+import com.ecommerce.catalog.api.ChangePage;
+import com.ecommerce.catalog.changes.ChangeFeed;
+import com.ecommerce.catalog.changes.ExpiredCursorException;
+import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import io.dropwizard.auth.Auth;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Path("/catalog/v2/changes")
+@Produces(MediaType.APPLICATION_JSON)
+@Api(value = "changes", description = "Incremental feed of product and category changes")
+public class ChangeResource {
+    
+    private final ChangeFeed changeFeed;
+    private final ResourceExecutor resourceExecutor;
+    private final EcommerceCatalogConfiguration.CatalogSettings catalogSettings;
+    
+    public ChangeResource(ChangeFeed changeFeed, ResourceExecutor resourceExecutor,
+                          EcommerceCatalogConfiguration.CatalogSettings catalogSettings) {
+        this.changeFeed = changeFeed;
+        this.resourceExecutor = resourceExecutor;
+        this.catalogSettings = catalogSettings;
+    }
+    
+    @GET
+    @ApiOperation(value = "Get catalog changes", notes = "Returns product and category upserts and deletes after the cursor "
+        + "in commit order, keeping the last change per entity. Entries carry no payload; fetch upserted entities by id. "
+        + "With wait, an empty page is held open until a change arrives or the wait elapses")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Success", response = ChangePage.class),
+        @ApiResponse(code = 400, message = "Invalid cursor, limit or wait"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 410, message = "Cursor is older than the retained changes; resync in full"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void getChanges(@Auth Principal user,
+                           @ApiParam(value = "Cursor from X-Next-Cursor or the previous page's next; 0 to start") @DefaultValue("0") @QueryParam("since") long since,
+                           @ApiParam(value = "Page limit", defaultValue = "100") @DefaultValue("100") @QueryParam("limit") int limit,
+                           @ApiParam(value = "Seconds to wait for a change when there is none", defaultValue = "0") @DefaultValue("0") @QueryParam("wait") int wait,
+                           @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        if (since < 0 || limit < 1 || wait < 0) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                .entity("{\"error\": \"since and wait must not be negative and limit must be positive\"}")
+                .build());
+            return;
+        }
+        int pageSize = Math.min(limit, catalogSettings.getChangeFeedMaxPageSize());
+        long waitSeconds = Math.min(wait, catalogSettings.getChangeFeedMaxWait().toSeconds());
+        if (waitSeconds == 0) {
+            resourceExecutor.read(asyncResponse, () -> page(since, pageSize));
+            return;
+        }
+        
+        // wait without a thread or a connection; only the final read takes a database permit
+        CompletableFuture<Void> change = changeFeed.awaitChange(since);
+        asyncResponse.setTimeout(waitSeconds, TimeUnit.SECONDS);
+        asyncResponse.setTimeoutHandler(response -> {
+            change.cancel(false);
+            response.resume(ok(new ChangePage(Collections.emptyList(), since)));
+        });
+        change.thenRun(() -> resourceExecutor.read(asyncResponse, () -> page(since, pageSize)));
+    }
+    
+    private Response page(long since, int limit) {
+        try {
+            return ok(changeFeed.page(since, limit));
+        } catch (ExpiredCursorException e) {
+            return Response.status(Response.Status.GONE)
+                .entity("{\"error\": \"" + e.getMessage() + "\"}")
+                .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity("{\"error\": \"Failed to retrieve changes: " + e.getMessage() + "\"}")
+                .build();
+        }
+    }
+    
+    private static Response ok(ChangePage page) {
+        return Response.ok(page)
+            .header("X-Next-Cursor", page.next())
+            .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.ecommerce.catalog.resources;
+
+import com.ecommerce.catalog.db.InvalidCursorException;
+import com.ecommerce.catalog.db.ProductCursor;
+import com.ecommerce.catalog.api.ProductView;
+
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+/**
+ * Helpers shared by the product listing endpoints for keyset (cursor) pagination.
+ * A request opts in by sending a {@code cursor} query parameter; an empty value starts
+ * from the first page and every full page carries the token for the next one. Offset pages
+ * and cursor pages alike are capped at {@code maxProductsPerPage}.
+ */
+final class CursorPages {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private CursorPages() {}
+
+    static ProductCursor parse(String cursor) {
+        return cursor.isEmpty() ? null : ProductCursor.decode(cursor);
+    }
+
+    static Response.ResponseBuilder withNextCursor(Response.ResponseBuilder response, List<ProductView> page,
+                                                   int limit, ProductCursor.SortKey sortKey) {
+        if (!page.isEmpty() && page.size() >= limit) {
+            ProductView last = page.get(page.size() - 1);
+            response.header(NEXT_CURSOR_HEADER, ProductCursor.after(last, sortKey).encode());
+        }
+        return response;
+    }
+
+    static Response invalidPage() {
+        return Response.status(Response.Status.BAD_REQUEST)
+            .entity("{\"error\": \"offset must not be negative and limit must be positive\"}")
+            .build();
+    }
+
+    static Response invalidCursor(InvalidCursorException e) {
+        return Response.status(Response.Status.BAD_REQUEST)
+            .entity("{\"error\": \"Invalid cursor: " + e.getMessage() + "\"}")
+            .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.ecommerce.catalog.resources;
+
+import com.ecommerce.catalog.api.CategoryView;
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * Conditional GET support for product and category reads. Single resources get a strong ETag
+ * built from id and row {@code version}, plus the category name a product embeds; list pages get
+ * one hashed over the tags of every row on the page. A matching {@code If-None-Match}, or for
+ * single resources {@code If-Modified-Since}, short-circuits to {@code 304 Not Modified}
+ * before the body is serialized. Lists send no {@code Last-Modified}: a row leaving the page
+ * does not move the newest {@code updatedAt}, so only the ETag can validate them. Every response also carries
+ * {@code Cache-Control} and a {@code Surrogate-Key} listing the products and categories it
+ * contains, so a CDN can purge exactly the pages a write affects.
+ */
+final class HttpCaching {
+
+    static final String SURROGATE_KEY_HEADER = "Surrogate-Key";
+    static final String PRODUCT_TAG_PREFIX = "p-";
+    static final String CATEGORY_TAG_PREFIX = "c-";
+
+    private HttpCaching() {}
+
+    static CacheControl cacheControl(EcommerceCatalogConfiguration.CatalogSettings settings) {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoTransform(false);
+        cacheControl.setMaxAge((int) settings.getHttpCacheMaxAge().toSeconds());
+        cacheControl.setSMaxAge((int) settings.getCdnCacheMaxAge().toSeconds());
+        return cacheControl;
+    }
+
+    static Response.ResponseBuilder product(Request request, CacheControl cacheControl, ProductView product) {
+        return respond(request, cacheControl, product, productTag(product), product.updatedAt(),
+            productKey(product.id()) + (product.categoryId() != null ? " " + categoryKey(product.categoryId()) : ""));
+    }
+
+    /**
+     * @param groupKeys surrogate keys naming the listing itself, purged when its membership changes
+     */
+    static Response.ResponseBuilder products(Request request, CacheControl cacheControl, List<ProductView> products,
+                                             String... groupKeys) {
+        StringJoiner keys = new StringJoiner(" ");
+        for (String groupKey : groupKeys) {
+            keys.add(groupKey);
+        }
+        for (ProductView product : products) {
+            keys.add(productKey(product.id()));
+        }
+        return list(request, cacheControl, products, "pl-", HttpCaching::productTag, keys.toString());
+    }
+
+    static Response.ResponseBuilder category(Request request, CacheControl cacheControl, CategoryView category) {
+        return respond(request, cacheControl, category, categoryTag(category), category.updatedAt(),
+            categoryKey(category.id()));
+    }
+
+    static Response.ResponseBuilder categories(Request request, CacheControl cacheControl, List<CategoryView> categories) {
+        StringJoiner keys = new StringJoiner(" ").add("categories");
+        for (CategoryView category : categories) {
+            keys.add(categoryKey(category.id()));
+        }
+        return list(request, cacheControl, categories, "cl-", HttpCaching::categoryTag, keys.toString());
+    }
+
+    /**
+     * The body carries {@code categoryName}, which a category rename changes without touching
+     * the product row, so its hash is part of the tag.
+     */
+    static EntityTag productTag(ProductView product) {
+        String categoryName = product.categoryName() != null ? product.categoryName() : "";
+        return new EntityTag(PRODUCT_TAG_PREFIX + product.id() + "-" + version(product.version())
+            + "-" + Integer.toHexString(categoryName.hashCode()));
+    }
+
+    static EntityTag categoryTag(CategoryView category) {
+        return new EntityTag(CATEGORY_TAG_PREFIX + category.id() + "-" + version(category.version()));
+    }
+
+    /**
+     * Reads the row versions named by an {@code If-Match} header for a conditional
+     * write. Returns {@code null} when the header is absent or {@code *}, meaning any version
+     * will do, and an empty list when no tag can belong to this row (the write must fail).
+     * Weak tags never match, as required for {@code If-Match}.
+     */
+    static List<Long> ifMatchVersions(String ifMatch, String tagPrefix, Long id) {
+        if (ifMatch == null || ifMatch.trim().isEmpty() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String expected = tagPrefix + id + "-";
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+            if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+                continue;
+            }
+            value = value.substring(1, value.length() - 1);
+            if (!value.startsWith(expected)) {
+                continue;
+            }
+            String version = value.substring(expected.length());
+            int end = version.indexOf('-');
+            try {
+                versions.add(Long.parseLong(end < 0 ? version : version.substring(0, end)));
+            } catch (NumberFormatException e) {
+                // not one of our tags; cannot match
+            }
+        }
+        return versions;
+    }
+
+    static String productKey(Long id) {
+        return "product-" + id;
+    }
+
+    static String categoryKey(Long id) {
+        return "category-" + id;
+    }
+
+    private static <T> Response.ResponseBuilder list(Request request, CacheControl cacheControl, List<T> rows, String prefix,
+                                                     Function<T, EntityTag> rowTag, String surrogateKeys) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (T row : rows) {
+            hasher.putString(rowTag.apply(row).getValue(), StandardCharsets.UTF_8);
+        }
+        EntityTag tag = new EntityTag(prefix + rows.size() + "-" + hasher.hash());
+        return respond(request, cacheControl, rows, tag, null, surrogateKeys);
+    }
+
+    private static Response.ResponseBuilder respond(Request request, CacheControl cacheControl, Object entity,
+                                                    EntityTag tag, LocalDateTime updatedAt, String surrogateKeys) {
+        Date lastModified = updatedAt == null ? null : Date.from(updatedAt.toInstant(ZoneOffset.UTC));
+        Response.ResponseBuilder notModified = lastModified == null
+            ? request.evaluatePreconditions(tag)
+            : request.evaluatePreconditions(lastModified, tag);
+        Response.ResponseBuilder response = notModified != null ? notModified : Response.ok(entity);
+        if (lastModified != null) {
+            response.lastModified(lastModified);
+        }
+        return response.tag(tag)
+            .cacheControl(cacheControl)
+            .header(SURROGATE_KEY_HEADER, surrogateKeys);
+    }
+
+    private static long version(Long value) {
+        return value == null ? 0L : value;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ecommerce.catalog.resources;
+
+import com.ecommerce.catalog.db.ReadReplicaRouter;
+import io.dropwizard.util.Duration;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+
+/**
+ * Pins database reads to the primary for writes and for read-your-writes requests. A
+ * successful write answers with {@code X-Read-Primary-Until}, an epoch-millisecond deadline;
+ * clients that echo it back on later requests read from the primary until then, so they
+ * never see a replica that has not caught up with their own write.
+ */
+@Priority(Priorities.USER)
+public class PrimaryReadFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String READ_PRIMARY_UNTIL_HEADER = "X-Read-Primary-Until";
+
+    private final Duration stickiness;
+
+    public PrimaryReadFilter(Duration stickiness) {
+        this.stickiness = stickiness;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        ReadReplicaRouter.pinToPrimary(isWrite(request) || isSticky(request));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (isWrite(request) && response.getStatus() < 400) {
+            response.getHeaders().putSingle(READ_PRIMARY_UNTIL_HEADER,
+                String.valueOf(System.currentTimeMillis() + stickiness.toMilliseconds()));
+        }
+        ReadReplicaRouter.pinToPrimary(false);
+    }
+
+    private static boolean isWrite(ContainerRequestContext request) {
+        String method = request.getMethod();
+        return !HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method) && !HttpMethod.OPTIONS.equals(method);
+    }
+
+    private static boolean isSticky(ContainerRequestContext request) {
+        String until = request.getHeaderString(READ_PRIMARY_UNTIL_HEADER);
+        if (until == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(until.trim()) > System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -1,7 +1,28 @@
 package com.ecommerce.catalog.resources;
 
+import com.ecommerce.catalog.api.BatchItemResult;
+import com.ecommerce.catalog.api.MergePatch;
+import com.ecommerce.catalog.api.ProductFacets;
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.api.StockAdjustment;
+import com.ecommerce.catalog.api.StockLevel;
+import com.ecommerce.catalog.columnar.ProductColumnStore;
+import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import com.ecommerce.catalog.db.HotStockException;
+import com.ecommerce.catalog.db.InvalidCursorException;
+import com.ecommerce.catalog.db.ProductCursor;
 import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.ProductQuery;
+import com.ecommerce.catalog.db.StaleEntityException;
+import com.ecommerce.catalog.db.StockReservationException;
+import com.ecommerce.catalog.export.ProductExporter;
+import com.ecommerce.catalog.ingest.ProductBatchIngester;
+import com.ecommerce.catalog.inventory.HotStockLedger;
+import com.ecommerce.catalog.inventory.StockReservations;
 import com.ecommerce.catalog.model.Product;
+import com.ecommerce.catalog.search.ProductSearchIndex;
+import com.ecommerce.catalog.stats.ProductCounts;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.dropwizard.auth.Auth;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -10,17 +31,30 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
-import org.hibernate.SessionFactory;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 @Path("/catalog/v2/products")
 @Produces(MediaType.APPLICATION_JSON)
@@ -28,123 +62,363 @@ import java.util.Optional;
 @Api(value = "products", description = "Operations for product management")
 public class ProductResource {
     
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+    
+    private static final Set<String> SEARCH_MODES = new HashSet<>(Arrays.asList("natural", "boolean", "like", "index"));
+    
     private final ProductDAO productDAO;
+    private final ProductCounts productCounts;
+    private final ProductSearchIndex searchIndex;
+    private final ProductColumnStore columnStore;
+    private final ProductBatchIngester batchIngester;
+    private final ProductExporter exporter;
+    private final StockReservations stockReservations;
+    private final HotStockLedger hotStockLedger;
+    private final ResourceExecutor resourceExecutor;
+    private final EcommerceCatalogConfiguration.CatalogSettings catalogSettings;
+    private final CacheControl cacheControl;
+    private final List<BigDecimal> facetPriceBands;
     
-    public ProductResource(SessionFactory sessionFactory) {
-        this.productDAO = new ProductDAO(sessionFactory);
+    public ProductResource(ProductDAO productDAO, ProductCounts productCounts, ProductSearchIndex searchIndex,
+                           ProductColumnStore columnStore, ProductBatchIngester batchIngester, ProductExporter exporter,
+                           StockReservations stockReservations, HotStockLedger hotStockLedger,
+                           ResourceExecutor resourceExecutor, EcommerceCatalogConfiguration.CatalogSettings catalogSettings) {
+        this.productDAO = productDAO;
+        this.resourceExecutor = resourceExecutor;
+        this.stockReservations = stockReservations;
+        this.hotStockLedger = hotStockLedger;
+        this.productCounts = productCounts;
+        this.searchIndex = searchIndex;
+        this.columnStore = columnStore;
+        this.batchIngester = batchIngester;
+        this.exporter = exporter;
+        this.catalogSettings = catalogSettings;
+        this.cacheControl = HttpCaching.cacheControl(catalogSettings);
+        this.facetPriceBands = new ArrayList<>(new TreeSet<>(catalogSettings.getFacetPriceBands()));
     }
     
     @GET
-    @ApiOperation(value = "Get all products", notes = "Returns paginated list of products")
+    @ApiOperation(value = "Get all products", notes = "Returns paginated list of products, or the products named by ids "
+        + "(comma-separated, in the order given); ids that do not exist are reported in X-Missing-Ids")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Product.class, responseContainer = "List"),
+        @ApiResponse(code = 200, message = "Success", response = ProductView.class, responseContainer = "List"),
+        @ApiResponse(code = 400, message = "Invalid offset, limit, ids or cursor"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response getAllProducts(@Auth Principal user,
-                                 @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
-                                 @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
-                                 @Context UriInfo uriInfo) {
-        try {
-            List<Product> products = productDAO.findAll(offset, limit);
-            long totalCount = productDAO.count();
-            
-            return Response.ok(products)
-                .header("X-Total-Count", totalCount)
-                .header("X-Offset", offset)
-                .header("X-Limit", limit)
+    public void getAllProducts(@Auth Principal user,
+                             @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
+                             @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
+                             @ApiParam(value = "Keyset cursor from X-Next-Cursor; send an empty value to start") @QueryParam("cursor") String cursor,
+                             @ApiParam(value = "Comma-separated product IDs to fetch in one call") @QueryParam("ids") String ids,
+                             @Context Request request,
+                             @Context UriInfo uriInfo,
+                             @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        if (offset < 0 || limit < 1) {
+            asyncResponse.resume(CursorPages.invalidPage());
+            return;
+        }
+        int pageSize = Math.min(limit, catalogSettings.getMaxProductsPerPage());
+        resourceExecutor.read(asyncResponse, () -> {
+            try {
+                if (ids != null) {
+                    List<Long> requestedIds = new ArrayList<>();
+                    for (String id : ids.split(",")) {
+                        if (!id.trim().isEmpty()) {
+                            requestedIds.add(Long.valueOf(id.trim()));
+                        }
+                    }
+                    return lookup(requestedIds, request);
+                }
+                
+                if (cursor != null) {
+                    List<ProductView> products = productDAO.findAll(CursorPages.parse(cursor), pageSize);
+                    long totalCount = productCounts.total();
+                    
+                    Response.ResponseBuilder response = HttpCaching.products(request, cacheControl, products, "products");
+                    
+                    return CursorPages.withNextCursor(response, products, pageSize, ProductCursor.SortKey.ID)
+                        .header("X-Total-Count", totalCount)
+                        .header("X-Limit", pageSize)
+                        .build();
+                }
+                
+                List<ProductView> products = productDAO.findAll(offset, pageSize);
+                long totalCount = productCounts.total();
+                
+                return HttpCaching.products(request, cacheControl, products, "products")
+                    .header("X-Total-Count", totalCount)
+                    .header("X-Offset", offset)
+                    .header("X-Limit", pageSize)
+                    .build();
+            } catch (NumberFormatException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid product ids: " + ids + "\"}")
+                    .build();
+            } catch (InvalidCursorException e) {
+                return CursorPages.invalidCursor(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to retrieve products: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @POST
+    @Path("/lookup")
+    @ApiOperation(value = "Get products by IDs", notes = "Returns the products named in the request body, in the order given; "
+        + "ids that do not exist are reported in X-Missing-Ids. Use instead of GET ?ids= for large sets")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Success", response = ProductView.class, responseContainer = "List"),
+        @ApiResponse(code = 400, message = "Too many or invalid ids"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void lookupProducts(@Auth Principal user,
+                             @ApiParam(value = "Product IDs", required = true) @NotNull List<Long> ids,
+                             @Context Request request,
+                             @Context UriInfo uriInfo,
+                             @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.read(asyncResponse, () -> {
+            try {
+                return lookup(ids, request);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to retrieve products: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    private Response lookup(List<Long> ids, Request request) {
+        if (ids.isEmpty() || ids.contains(null)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("{\"error\": \"Product ids must be a non-empty list of numbers\"}")
                 .build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to retrieve products: " + e.getMessage() + "\"}")
+        }
+        if (ids.size() > catalogSettings.getMaxLookupIds()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("{\"error\": \"At most " + catalogSettings.getMaxLookupIds() + " product ids per request\"}")
                 .build();
         }
+        
+        List<ProductView> products = productDAO.findByIds(ids);
+        Set<Long> missing = new LinkedHashSet<>(ids);
+        for (ProductView product : products) {
+            missing.remove(product.id());
+        }
+        
+        Response.ResponseBuilder response = HttpCaching.products(request, cacheControl, products, "products");
+        if (!missing.isEmpty()) {
+            response.header("X-Missing-Ids", missing.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        return response
+            .header("X-Total-Count", products.size())
+            .build();
+    }
+    
+    @GET
+    @Path("/export")
+    @Produces({NDJSON, CSV})
+    @ApiOperation(value = "Export products", notes = "Streams every product, optionally filtered by category or status, as NDJSON or CSV")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Success"),
+        @ApiResponse(code = 400, message = "Unsupported format"),
+        @ApiResponse(code = 401, message = "Unauthorized")
+    })
+    public Response exportProducts(@Auth Principal user,
+                                 @ApiParam(value = "Export format", allowableValues = "ndjson,csv", defaultValue = "ndjson") @DefaultValue("ndjson") @QueryParam("format") String format,
+                                 @ApiParam(value = "Category ID") @QueryParam("categoryId") Long categoryId,
+                                 @ApiParam(value = "Product status") @QueryParam("status") Product.ProductStatus status,
+                                 @Context UriInfo uriInfo) {
+        final ProductExporter.Format exportFormat;
+        if ("csv".equalsIgnoreCase(format)) {
+            exportFormat = ProductExporter.Format.CSV;
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            exportFormat = ProductExporter.Format.NDJSON;
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON)
+                .entity("{\"error\": \"Unsupported export format: " + format + "\"}")
+                .build();
+        }
+        
+        StreamingOutput output = out -> exporter.export(exportFormat, categoryId, status, out);
+        return Response.ok(output, exportFormat == ProductExporter.Format.CSV ? CSV : NDJSON)
+            .header("Content-Disposition", "attachment; filename=\"products." + exportFormat.name().toLowerCase() + "\"")
+            .build();
     }
     
     @GET
     @Path("/{id}")
     @ApiOperation(value = "Get product by ID", notes = "Returns a single product")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Product.class),
+        @ApiResponse(code = 200, message = "Success", response = ProductView.class),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 404, message = "Product not found"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response getProduct(@Auth Principal user,
-                             @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
-                             @Context UriInfo uriInfo) {
-        try {
-            Optional<Product> product = productDAO.findById(id);
-            
-            if (product.isPresent()) {
-                return Response.ok(product.get()).build();
-            } else {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("{\"error\": \"Product not found with id: " + id + "\"}")
+    public void getProduct(@Auth Principal user,
+                         @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
+                         @Context Request request,
+                         @Context UriInfo uriInfo,
+                         @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.read(asyncResponse, () -> {
+            try {
+                Optional<ProductView> product = productDAO.findById(id);
+                
+                if (product.isPresent()) {
+                    return HttpCaching.product(request, cacheControl, product.get()).build();
+                } else {
+                    return Response.status(Response.Status.NOT_FOUND)
+                        .entity("{\"error\": \"Product not found with id: " + id + "\"}")
+                        .build();
+                }
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to retrieve product: " + e.getMessage() + "\"}")
                     .build();
             }
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to retrieve product: " + e.getMessage() + "\"}")
-                .build();
-        }
+        });
     }
     
     @POST
     @ApiOperation(value = "Create new product", notes = "Creates a new product")
     @ApiResponses(value = {
-        @ApiResponse(code = 201, message = "Product created", response = Product.class),
+        @ApiResponse(code = 201, message = "Product created", response = ProductView.class),
         @ApiResponse(code = 400, message = "Invalid input"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response createProduct(@Auth Principal user,
-                                @ApiParam(value = "Product data", required = true) @Valid @NotNull Product product,
-                                @Context UriInfo uriInfo) {
-        try {
-            Product createdProduct = productDAO.save(product);
-            return Response.status(Response.Status.CREATED)
-                .entity(createdProduct)
-                .build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to create product: " + e.getMessage() + "\"}")
-                .build();
-        }
+    public void createProduct(@Auth Principal user,
+                            @ApiParam(value = "Product data", required = true) @Valid @NotNull Product product,
+                            @Context UriInfo uriInfo,
+                            @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                Product createdProduct = productDAO.save(product);
+                return Response.status(Response.Status.CREATED)
+                    .entity(productDAO.findById(createdProduct.getId()).orElse(null))
+                    .build();
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to create product: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @POST
+    @Path("/batch")
+    @Consumes(NDJSON)
+    @Produces(NDJSON)
+    @ApiOperation(value = "Bulk ingest products", notes = "Accepts one product per line (NDJSON). Products without an id are created, "
+        + "products with an id are upserted. Streams back one result line per input line")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Per-item results", response = BatchItemResult.class, responseContainer = "List"),
+        @ApiResponse(code = 401, message = "Unauthorized")
+    })
+    public Response ingestProducts(@Auth Principal user,
+                                 @ApiParam(value = "NDJSON product stream", required = true) InputStream body,
+                                 @Context UriInfo uriInfo) {
+        StreamingOutput results = output -> batchIngester.ingest(body, output);
+        return Response.ok(results).build();
     }
     
     @PUT
     @Path("/{id}")
     @ApiOperation(value = "Update product", notes = "Updates an existing product")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Product updated", response = Product.class),
+        @ApiResponse(code = 200, message = "Product updated", response = ProductView.class),
         @ApiResponse(code = 400, message = "Invalid input"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 404, message = "Product not found"),
+        @ApiResponse(code = 409, message = "Stock of a hot product must be changed through reservations"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response updateProduct(@Auth Principal user,
-                                @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
-                                @ApiParam(value = "Product data", required = true) @Valid @NotNull Product product,
-                                @Context UriInfo uriInfo) {
-        try {
-            Optional<Product> existingProduct = productDAO.findById(id);
-            
-            if (!existingProduct.isPresent()) {
-                return Response.status(Response.Status.NOT_FOUND)
-                    .entity("{\"error\": \"Product not found with id: " + id + "\"}")
+    public void updateProduct(@Auth Principal user,
+                            @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
+                            @ApiParam(value = "Product data", required = true) @Valid @NotNull Product product,
+                            @Context UriInfo uriInfo,
+                            @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                Optional<ProductView> existingProduct = productDAO.findById(id);
+                
+                if (!existingProduct.isPresent()) {
+                    return Response.status(Response.Status.NOT_FOUND)
+                        .entity("{\"error\": \"Product not found with id: " + id + "\"}")
+                        .build();
+                }
+                
+                product.setId(id);
+                productDAO.save(product);
+                
+                return Response.ok(productDAO.findById(id).orElse(null)).build();
+            } catch (HotStockException e) {
+                return hotStock(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to update product: " + e.getMessage() + "\"}")
                     .build();
             }
-            
-            product.setId(id);
-            Product updatedProduct = productDAO.save(product);
-            
-            return Response.ok(updatedProduct).build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to update product: " + e.getMessage() + "\"}")
-                .build();
-        }
+        });
+    }
+    
+    @PATCH
+    @Path("/{id}")
+    @Consumes(MergePatch.MEDIA_TYPE)
+    @ApiOperation(value = "Patch product", notes = "Applies a JSON Merge Patch (RFC 7396) to the product view, updating only the "
+        + "fields present. Send If-Match with the product's ETag to update only if it is unchanged")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Product updated", response = ProductView.class),
+        @ApiResponse(code = 400, message = "Invalid patch"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Product not found"),
+        @ApiResponse(code = 409, message = "Stock of a hot product must be changed through reservations"),
+        @ApiResponse(code = 412, message = "Product was modified since the If-Match version"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void patchProduct(@Auth Principal user,
+                           @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
+                           @ApiParam(value = "Merge patch", required = true) @NotNull JsonNode body,
+                           @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                           @Context UriInfo uriInfo,
+                           @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                MergePatch patch = MergePatch.forProduct(body);
+                
+                List<Long> versions = HttpCaching.ifMatchVersions(ifMatch, HttpCaching.PRODUCT_TAG_PREFIX, id);
+                if (versions != null && versions.isEmpty()) {
+                    return Response.status(Response.Status.PRECONDITION_FAILED).build();
+                }
+                
+                Optional<ProductView> product = productDAO.patch(id, patch, versions);
+                
+                if (product.isPresent()) {
+                    return Response.ok(product.get()).tag(HttpCaching.productTag(product.get())).build();
+                } else {
+                    return Response.status(Response.Status.NOT_FOUND)
+                        .entity("{\"error\": \"Product not found with id: " + id + "\"}")
+                        .build();
+                }
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid patch: " + e.getMessage() + "\"}")
+                    .build();
+            } catch (StaleEntityException e) {
+                return Response.status(Response.Status.PRECONDITION_FAILED).build();
+            } catch (HotStockException e) {
+                return hotStock(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to update product: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
     }
     
     @DELETE
@@ -156,82 +430,491 @@ public class ProductResource {
         @ApiResponse(code = 404, message = "Product not found"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response deleteProduct(@Auth Principal user,
-                                @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
-                                @Context UriInfo uriInfo) {
+    public void deleteProduct(@Auth Principal user,
+                            @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
+                            @Context UriInfo uriInfo,
+                            @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                Optional<ProductView> product = productDAO.findById(id);
+                
+                if (!product.isPresent()) {
+                    return Response.status(Response.Status.NOT_FOUND)
+                        .entity("{\"error\": \"Product not found with id: " + id + "\"}")
+                        .build();
+                }
+                
+                productDAO.delete(id);
+                return Response.noContent().build();
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to delete product: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @POST
+    @Path("/{id}/stock/reserve")
+    @ApiOperation(value = "Reserve stock", notes = "Atomically takes quantity units out of stock, failing if fewer are available")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Stock reserved", response = StockLevel.class),
+        @ApiResponse(code = 400, message = "Invalid input"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Product not found"),
+        @ApiResponse(code = 409, message = "Insufficient stock, or the stock is held by another instance's hot stock ledger"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void reserveStock(@Auth Principal user,
+                           @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
+                           @ApiParam(value = "Quantity to reserve", required = true) @Valid @NotNull StockAdjustment adjustment,
+                           @Context UriInfo uriInfo,
+                           @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                return Response.ok(stockReservations.reserve(id, adjustment.quantity())).build();
+            } catch (StockReservationException e) {
+                return stockUnavailable(e);
+            } catch (HotStockException e) {
+                return hotStock(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to reserve stock: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @POST
+    @Path("/{id}/stock/release")
+    @ApiOperation(value = "Release stock", notes = "Atomically returns quantity units to stock")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Stock released", response = StockLevel.class),
+        @ApiResponse(code = 400, message = "Invalid input"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Product not found"),
+        @ApiResponse(code = 409, message = "Stock is held by another instance's hot stock ledger"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void releaseStock(@Auth Principal user,
+                           @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
+                           @ApiParam(value = "Quantity to release", required = true) @Valid @NotNull StockAdjustment adjustment,
+                           @Context UriInfo uriInfo,
+                           @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                return Response.ok(stockReservations.release(id, adjustment.quantity())).build();
+            } catch (StockReservationException e) {
+                return stockUnavailable(e);
+            } catch (HotStockException e) {
+                return hotStock(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to release stock: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @POST
+    @Path("/stock/reserve")
+    @ApiOperation(value = "Reserve stock for a cart", notes = "Reserves every item in one transaction; if any item is short, nothing is reserved")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Stock reserved", response = StockLevel.class, responseContainer = "List"),
+        @ApiResponse(code = 400, message = "Invalid input"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Product not found"),
+        @ApiResponse(code = 409, message = "Insufficient stock, or the stock is held by another instance's hot stock ledger"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void reserveStockBatch(@Auth Principal user,
+                                @ApiParam(value = "Cart items", required = true) @Valid @NotNull List<StockAdjustment> items,
+                                @Context UriInfo uriInfo,
+                                @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                if (items.isEmpty() || items.stream().anyMatch(item -> item.productId() == null)) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("{\"error\": \"Every item needs a productId\"}")
+                        .build();
+                }
+                return Response.ok(stockReservations.reserve(items)).build();
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
+                    .build();
+            } catch (StockReservationException e) {
+                return stockUnavailable(e);
+            } catch (HotStockException e) {
+                return hotStock(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to reserve stock: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @POST
+    @Path("/stock/release")
+    @ApiOperation(value = "Release stock for a cart", notes = "Returns every item to stock in one transaction")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Stock released", response = StockLevel.class, responseContainer = "List"),
+        @ApiResponse(code = 400, message = "Invalid input"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Product not found"),
+        @ApiResponse(code = 409, message = "Stock is held by another instance's hot stock ledger"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void releaseStockBatch(@Auth Principal user,
+                                @ApiParam(value = "Cart items", required = true) @Valid @NotNull List<StockAdjustment> items,
+                                @Context UriInfo uriInfo,
+                                @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.write(asyncResponse, () -> {
+            try {
+                if (items.isEmpty() || items.stream().anyMatch(item -> item.productId() == null)) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("{\"error\": \"Every item needs a productId\"}")
+                        .build();
+                }
+                return Response.ok(stockReservations.release(items)).build();
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
+                    .build();
+            } catch (StockReservationException e) {
+                return stockUnavailable(e);
+            } catch (HotStockException e) {
+                return hotStock(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to release stock: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @PUT
+    @Path("/{id}/stock/hot")
+    @ApiOperation(value = "Flag product as hot", notes = "Serves the product's reservations from an in-memory ledger on this instance, "
+        + "writing stock back in batches. For flash sales; route all of the product's stock requests to the same instance")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Product flagged", response = StockLevel.class),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 404, message = "Product not found"),
+        @ApiResponse(code = 409, message = "Hot stock mode is disabled, or another instance holds the product"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public Response flagHotStock(@Auth Principal user,
+                               @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
+                               @Context UriInfo uriInfo) {
+        if (!catalogSettings.isHotStockEnabled()) {
+            return Response.status(Response.Status.CONFLICT)
+                .entity("{\"error\": \"Hot stock mode is disabled\"}")
+                .build();
+        }
         try {
-            Optional<Product> product = productDAO.findById(id);
+            Optional<StockLevel> level = hotStockLedger.flag(id);
             
-            if (!product.isPresent()) {
+            if (level.isPresent()) {
+                return Response.ok(level.get()).build();
+            } else {
                 return Response.status(Response.Status.NOT_FOUND)
                     .entity("{\"error\": \"Product not found with id: " + id + "\"}")
                     .build();
             }
-            
-            productDAO.delete(id);
-            return Response.noContent().build();
+        } catch (HotStockException e) {
+            return hotStock(e);
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to delete product: " + e.getMessage() + "\"}")
+                .entity("{\"error\": \"Failed to flag product: " + e.getMessage() + "\"}")
                 .build();
         }
     }
     
-    @GET
-    @Path("/search")
-    @ApiOperation(value = "Search products", notes = "Search products by name or description")
+    @DELETE
+    @Path("/{id}/stock/hot")
+    @ApiOperation(value = "Unflag hot product", notes = "Writes back pending stock changes and returns the product to database reservations")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Product.class, responseContainer = "List"),
+        @ApiResponse(code = 204, message = "Product unflagged"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response searchProducts(@Auth Principal user,
-                                 @ApiParam(value = "Search term", required = true) @QueryParam("q") @NotNull String searchTerm,
-                                 @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
-                                 @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
+    public Response unflagHotStock(@Auth Principal user,
+                                 @ApiParam(value = "Product ID", required = true) @PathParam("id") @NotNull Long id,
                                  @Context UriInfo uriInfo) {
         try {
-            List<Product> products = productDAO.search(searchTerm, offset, limit);
-            
-            return Response.ok(products)
-                .header("X-Search-Term", searchTerm)
-                .header("X-Offset", offset)
-                .header("X-Limit", limit)
-                .build();
+            if (catalogSettings.isHotStockEnabled()) {
+                hotStockLedger.unflag(id);
+            }
+            return Response.noContent().build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to search products: " + e.getMessage() + "\"}")
+                .entity("{\"error\": \"Failed to unflag product: " + e.getMessage() + "\"}")
                 .build();
         }
     }
     
+    private static Response stockUnavailable(StockReservationException e) {
+        return Response.status(e.isProductMissing() ? Response.Status.NOT_FOUND : Response.Status.CONFLICT)
+            .entity("{\"error\": \"" + e.getMessage() + "\"}")
+            .build();
+    }
+    
+    private static Response hotStock(HotStockException e) {
+        return Response.status(Response.Status.CONFLICT)
+            .entity("{\"error\": \"" + e.getMessage() + "\"}")
+            .build();
+    }
+    
+    @GET
+    @Path("/search")
+    @ApiOperation(value = "Search products", notes = "Search products by name or description. Full-text and index modes rank by relevance; "
+        + "terms shorter than the full-text minimum and cursor requests use a name-ordered substring match")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Success", response = ProductView.class, responseContainer = "List"),
+        @ApiResponse(code = 400, message = "Invalid offset, limit or cursor"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void searchProducts(@Auth Principal user,
+                             @ApiParam(value = "Search term", required = true) @QueryParam("q") @NotNull String searchTerm,
+                             @ApiParam(value = "Search mode", allowableValues = "natural,boolean,like,index", defaultValue = "natural") @DefaultValue("natural") @QueryParam("mode") String mode,
+                             @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
+                             @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
+                             @ApiParam(value = "Keyset cursor from X-Next-Cursor; send an empty value to start") @QueryParam("cursor") String cursor,
+                             @Context Request request,
+                             @Context UriInfo uriInfo,
+                             @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        if (offset < 0 || limit < 1) {
+            asyncResponse.resume(CursorPages.invalidPage());
+            return;
+        }
+        int pageSize = Math.min(limit, catalogSettings.getMaxProductsPerPage());
+        resourceExecutor.read(asyncResponse, () -> {
+            try {
+                if (cursor != null) {
+                    List<ProductView> products = productDAO.search(searchTerm, CursorPages.parse(cursor), pageSize);
+                    
+                    Response.ResponseBuilder response = HttpCaching.products(request, cacheControl, products, "products");
+                    
+                    return CursorPages.withNextCursor(response, products, pageSize, ProductCursor.SortKey.NAME)
+                        .header("X-Search-Term", searchTerm)
+                        .header("X-Limit", pageSize)
+                        .build();
+                }
+                
+                if (!SEARCH_MODES.contains(mode)) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("{\"error\": \"Unsupported search mode: " + mode + "\"}")
+                        .build();
+                }
+                
+                if ("index".equals(mode) && searchIndex.isReady()) {
+                    ProductSearchIndex.SearchHits hits = searchIndex.search(searchTerm, offset, pageSize);
+                    List<ProductView> products = productDAO.findByIds(hits.getProductIds());
+                    
+                    return HttpCaching.products(request, cacheControl, products, "products")
+                        .header("X-Total-Count", hits.getTotalHits())
+                        .header("X-Search-Term", searchTerm)
+                        .header("X-Search-Mode", "index")
+                        .header("X-Offset", offset)
+                        .header("X-Limit", pageSize)
+                        .build();
+                }
+                
+                if (!"like".equals(mode) && searchTerm.trim().length() >= catalogSettings.getFullTextMinTermLength()) {
+                    ProductDAO.SearchMode searchMode = "boolean".equals(mode)
+                        ? ProductDAO.SearchMode.BOOLEAN
+                        : ProductDAO.SearchMode.NATURAL_LANGUAGE;
+                    List<ProductView> products = productDAO.fullTextSearch(searchTerm, searchMode, offset, pageSize);
+                    long totalCount = productDAO.countFullTextMatches(searchTerm, searchMode);
+                    
+                    return HttpCaching.products(request, cacheControl, products, "products")
+                        .header("X-Total-Count", totalCount)
+                        .header("X-Search-Term", searchTerm)
+                        .header("X-Search-Mode", searchMode == ProductDAO.SearchMode.BOOLEAN ? "boolean" : "natural")
+                        .header("X-Offset", offset)
+                        .header("X-Limit", pageSize)
+                        .build();
+                }
+                
+                List<ProductView> products = productDAO.search(searchTerm, offset, pageSize);
+                
+                return HttpCaching.products(request, cacheControl, products, "products")
+                    .header("X-Search-Term", searchTerm)
+                    .header("X-Search-Mode", "like")
+                    .header("X-Offset", offset)
+                    .header("X-Limit", pageSize)
+                    .build();
+            } catch (InvalidCursorException e) {
+                return CursorPages.invalidCursor(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to search products: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @GET
+    @Path("/query")
+    @ApiOperation(value = "Query products", notes = "Returns products matching every given filter, sorted by id, price or name, "
+        + "from one query over the composite filter indexes")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Success", response = ProductView.class, responseContainer = "List"),
+        @ApiResponse(code = 400, message = "Invalid sort key, offset, limit or cursor"),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void queryProducts(@Auth Principal user,
+                            @ApiParam(value = "Category ID") @QueryParam("categoryId") Long categoryId,
+                            @ApiParam(value = "Product status") @QueryParam("status") Product.ProductStatus status,
+                            @ApiParam(value = "Minimum price") @QueryParam("minPrice") BigDecimal minPrice,
+                            @ApiParam(value = "Maximum price") @QueryParam("maxPrice") BigDecimal maxPrice,
+                            @ApiParam(value = "Minimum stock quantity") @QueryParam("minStock") Integer minStock,
+                            @ApiParam(value = "Sort key", allowableValues = "id,price,name", defaultValue = "id") @DefaultValue("id") @QueryParam("sort") String sort,
+                            @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
+                            @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
+                            @ApiParam(value = "Keyset cursor from X-Next-Cursor; send an empty value to start") @QueryParam("cursor") String cursor,
+                            @Context Request request,
+                            @Context UriInfo uriInfo,
+                            @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        if (offset < 0 || limit < 1) {
+            asyncResponse.resume(CursorPages.invalidPage());
+            return;
+        }
+        int pageSize = Math.min(limit, catalogSettings.getMaxProductsPerPage());
+        resourceExecutor.read(asyncResponse, () -> {
+            try {
+                final ProductCursor.SortKey sortKey;
+                try {
+                    sortKey = ProductCursor.SortKey.valueOf(sort.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("{\"error\": \"Unsupported sort key: " + sort + "\"}")
+                        .build();
+                }
+                ProductQuery query = new ProductQuery(categoryId, status, minPrice, maxPrice, minStock, sortKey);
+                
+                if (cursor != null) {
+                    List<ProductView> products = productDAO.query(query, CursorPages.parse(cursor), 0, pageSize);
+                    
+                    Response.ResponseBuilder response = HttpCaching.products(request, cacheControl, products, "products");
+                    
+                    return CursorPages.withNextCursor(response, products, pageSize, sortKey)
+                        .header("X-Limit", pageSize)
+                        .build();
+                }
+                
+                List<ProductView> products = productDAO.query(query, null, offset, pageSize);
+                
+                return HttpCaching.products(request, cacheControl, products, "products")
+                    .header("X-Offset", offset)
+                    .header("X-Limit", pageSize)
+                    .build();
+            } catch (InvalidCursorException e) {
+                return CursorPages.invalidCursor(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to query products: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
+    @GET
+    @Path("/facets")
+    @ApiOperation(value = "Get product facets", notes = "Returns per-category, per-price-band and per-status counts for the "
+        + "products matching the filters, from one grouped query. The category and status facets ignore their own filter")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Success", response = ProductFacets.class),
+        @ApiResponse(code = 401, message = "Unauthorized"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    public void getProductFacets(@Auth Principal user,
+                               @ApiParam(value = "Search term") @QueryParam("q") String searchTerm,
+                               @ApiParam(value = "Category ID") @QueryParam("categoryId") Long categoryId,
+                               @ApiParam(value = "Product status") @QueryParam("status") Product.ProductStatus status,
+                               @ApiParam(value = "Minimum price") @QueryParam("minPrice") BigDecimal minPrice,
+                               @ApiParam(value = "Maximum price") @QueryParam("maxPrice") BigDecimal maxPrice,
+                               @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        resourceExecutor.read(asyncResponse, () -> {
+            try {
+                String term = searchTerm == null || searchTerm.trim().isEmpty() ? null : searchTerm;
+                ProductDAO.SearchMode mode = term != null && term.trim().length() >= catalogSettings.getFullTextMinTermLength()
+                    ? ProductDAO.SearchMode.NATURAL_LANGUAGE
+                    : null;
+                List<ProductFacets.Bucket> buckets = productDAO.countFacets(term, mode, minPrice, maxPrice, facetPriceBands);
+                
+                return Response.ok(ProductFacets.rollUp(buckets, facetPriceBands, categoryId, status))
+                    .cacheControl(cacheControl)
+                    .header(HttpCaching.SURROGATE_KEY_HEADER, "products")
+                    .build();
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to compute product facets: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
+    }
+    
     @GET
     @Path("/by-price")
     @ApiOperation(value = "Get products by price range", notes = "Returns products within specified price range")
     @ApiResponses(value = {
-        @ApiResponse(code = 200, message = "Success", response = Product.class, responseContainer = "List"),
+        @ApiResponse(code = 200, message = "Success", response = ProductView.class, responseContainer = "List"),
+        @ApiResponse(code = 400, message = "Invalid offset, limit or cursor"),
         @ApiResponse(code = 401, message = "Unauthorized"),
         @ApiResponse(code = 500, message = "Internal server error")
     })
-    public Response getProductsByPriceRange(@Auth Principal user,
-                                          @ApiParam(value = "Minimum price") @QueryParam("minPrice") BigDecimal minPrice,
-                                          @ApiParam(value = "Maximum price") @QueryParam("maxPrice") BigDecimal maxPrice,
-                                          @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
-                                          @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
-                                          @Context UriInfo uriInfo) {
-        try {
-            List<Product> products = productDAO.findByPriceRange(minPrice, maxPrice, offset, limit);
-            
-            return Response.ok(products)
-                .header("X-Min-Price", minPrice != null ? minPrice.toString() : "null")
-                .header("X-Max-Price", maxPrice != null ? maxPrice.toString() : "null")
-                .header("X-Offset", offset)
-                .header("X-Limit", limit)
-                .build();
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity("{\"error\": \"Failed to retrieve products by price range: " + e.getMessage() + "\"}")
-                .build();
+    public void getProductsByPriceRange(@Auth Principal user,
+                                      @ApiParam(value = "Minimum price") @QueryParam("minPrice") BigDecimal minPrice,
+                                      @ApiParam(value = "Maximum price") @QueryParam("maxPrice") BigDecimal maxPrice,
+                                      @ApiParam(value = "Page offset", defaultValue = "0") @DefaultValue("0") @QueryParam("offset") int offset,
+                                      @ApiParam(value = "Page limit", defaultValue = "20") @DefaultValue("20") @QueryParam("limit") int limit,
+                                      @ApiParam(value = "Keyset cursor from X-Next-Cursor; send an empty value to start") @QueryParam("cursor") String cursor,
+                                      @Context Request request,
+                                      @Context UriInfo uriInfo,
+                                      @ApiParam(hidden = true) @Suspended AsyncResponse asyncResponse) {
+        if (offset < 0 || limit < 1) {
+            asyncResponse.resume(CursorPages.invalidPage());
+            return;
         }
+        int pageSize = Math.min(limit, catalogSettings.getMaxProductsPerPage());
+        resourceExecutor.read(asyncResponse, () -> {
+            try {
+                if (cursor != null) {
+                    List<ProductView> products = columnStore.isReady()
+                        ? columnStore.findByPriceRange(minPrice, maxPrice, CursorPages.parse(cursor), pageSize)
+                        : productDAO.findByPriceRange(minPrice, maxPrice, CursorPages.parse(cursor), pageSize);
+                    
+                    Response.ResponseBuilder response = HttpCaching.products(request, cacheControl, products, "products");
+                    
+                    return CursorPages.withNextCursor(response, products, pageSize, ProductCursor.SortKey.PRICE)
+                        .header("X-Min-Price", minPrice != null ? minPrice.toString() : "null")
+                        .header("X-Max-Price", maxPrice != null ? maxPrice.toString() : "null")
+                        .header("X-Limit", pageSize)
+                        .build();
+                }
+                
+                List<ProductView> products = columnStore.isReady()
+                    ? columnStore.findByPriceRange(minPrice, maxPrice, offset, pageSize)
+                    : productDAO.findByPriceRange(minPrice, maxPrice, offset, pageSize);
+                
+                return HttpCaching.products(request, cacheControl, products, "products")
+                    .header("X-Min-Price", minPrice != null ? minPrice.toString() : "null")
+                    .header("X-Max-Price", maxPrice != null ? maxPrice.toString() : "null")
+                    .header("X-Offset", offset)
+                    .header("X-Limit", pageSize)
+                    .build();
+            } catch (InvalidCursorException e) {
+                return CursorPages.invalidCursor(e);
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{\"error\": \"Failed to retrieve products by price range: " + e.getMessage() + "\"}")
+                    .build();
+            }
+        });
     }
 }
\ No newline at end of file
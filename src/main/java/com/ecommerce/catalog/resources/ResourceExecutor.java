@@ -0,0 +1,161 @@
+package com.ecommerce.catalog.resources;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ecommerce.catalog.db.ReadReplicaRouter;
+import com.ecommerce.catalog.db.UnitOfWork;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the database-bound part of a resource method and resumes its {@link AsyncResponse}.
+ * In async mode every call gets its own virtual thread, so a request waiting on MySQL parks
+ * without holding a Jetty worker, and a semaphore sized to the connection pool caps how many
+ * run JDBC at once; the rest wait cheaply for a permit and get {@code 503} if none frees up
+ * within {@code permitTimeout}. In inline mode the work runs on the calling thread as before.
+ *
+ * <p>Connector/J 8.0 guards its socket I/O with {@code synchronized}, and on JDK 21 a virtual
+ * thread blocked inside a {@code synchronized} block pins its carrier. Permits are therefore
+ * also capped at the number of carrier threads: with more, pinned queries would occupy every
+ * carrier and the remaining virtual threads, including ones that only need to resume a
+ * response, could not be scheduled at all. Raise the cap with
+ * {@code -Djdk.virtualThreadScheduler.parallelism} once the driver no longer pins.
+ *
+ * <p>Either way the work runs in one {@link UnitOfWork}: every DAO call it makes shares one
+ * session and transaction per database, committed when the work returns.
+ */
+public class ResourceExecutor implements Managed {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Duration permitTimeout;
+    private final Timer permitWait = new Timer();
+    private final Counter rejected = new Counter();
+
+    private ResourceExecutor(ExecutorService executor, int permits, Duration permitTimeout) {
+        this.executor = executor;
+        this.permits = new Semaphore(permits, true);
+        this.permitTimeout = permitTimeout;
+    }
+
+    public static ResourceExecutor inline() {
+        return new ResourceExecutor(null, Integer.MAX_VALUE, Duration.seconds(0));
+    }
+
+    /**
+     * @param permits how many calls may use the database at once; normally the pool's {@code maxSize}.
+     *                Capped at {@link #carrierThreads()} so pinned JDBC calls cannot starve the scheduler
+     */
+    public static ResourceExecutor virtualThreads(int permits, Duration permitTimeout) {
+        return new ResourceExecutor(
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("catalog-request-", 0).factory()),
+            Math.min(permits, carrierThreads()), permitTimeout);
+    }
+
+    /**
+     * The number of platform threads the JDK schedules virtual threads on.
+     */
+    static int carrierThreads() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+            Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(permitTimeout.toMilliseconds() + 30_000, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs {@code work} in a read-only unit of work.
+     */
+    public void read(AsyncResponse asyncResponse, Callable<Response> work) {
+        submit(asyncResponse, () -> UnitOfWork.call(true, work));
+    }
+
+    /**
+     * Runs {@code work} in a read-write unit of work. It is rolled back if a DAO call in it
+     * failed or the work answered with a server error.
+     */
+    public void write(AsyncResponse asyncResponse, Callable<Response> work) {
+        submit(asyncResponse, () -> UnitOfWork.call(false, () -> {
+            Response response = work.call();
+            if (response.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR) {
+                UnitOfWork.setRollbackOnly();
+            }
+            return response;
+        }));
+    }
+
+    private void submit(AsyncResponse asyncResponse, Callable<Response> work) {
+        if (executor == null) {
+            resume(asyncResponse, work);
+            return;
+        }
+        
+        // the replica pin is thread-local; carry the request thread's choice over
+        boolean pinnedToPrimary = ReadReplicaRouter.isPinnedToPrimary();
+        executor.execute(() -> {
+            ReadReplicaRouter.pinToPrimary(pinnedToPrimary);
+            try {
+                if (!acquire()) {
+                    rejected.inc();
+                    asyncResponse.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                        .header("Retry-After", 1)
+                        .entity("{\"error\": \"Too many requests waiting for the database, retry shortly\"}")
+                        .build());
+                    return;
+                }
+                try {
+                    resume(asyncResponse, work);
+                } finally {
+                    permits.release();
+                }
+            } finally {
+                ReadReplicaRouter.pinToPrimary(false);
+            }
+        });
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(ResourceExecutor.class, "permitWait"), permitWait);
+        metrics.register(MetricRegistry.name(ResourceExecutor.class, "rejected"), rejected);
+        metrics.register(MetricRegistry.name(ResourceExecutor.class, "available"),
+            (Gauge<Integer>) permits::availablePermits);
+        metrics.register(MetricRegistry.name(ResourceExecutor.class, "waiting"),
+            (Gauge<Integer>) permits::getQueueLength);
+    }
+
+    private boolean acquire() {
+        try (Timer.Context ignored = permitWait.time()) {
+            return permits.tryAcquire(permitTimeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void resume(AsyncResponse asyncResponse, Callable<Response> work) {
+        try {
+            asyncResponse.resume(work.call());
+        } catch (Exception e) {
+            asyncResponse.resume(e);
+        }
+    }
+}
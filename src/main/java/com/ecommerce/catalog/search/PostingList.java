@@ -0,0 +1,96 @@
+package com.ecommerce.catalog.search;
+
+import java.util.Arrays;
+
+/**
+ * Append-only posting list for a single term. Entries are (docId, termFrequency) pairs in
+ * increasing docId order, stored as variable-byte encoded docId deltas in a byte array.
+ */
+final class PostingList {
+    private byte[] data = new byte[8];
+    private int length;
+    private int docCount;
+    private int lastDocId = -1;
+
+    void add(int docId, int termFrequency) {
+        if (docId <= lastDocId) {
+            throw new IllegalArgumentException("Doc ids must be appended in increasing order");
+        }
+        writeVInt(docId - lastDocId);
+        writeVInt(termFrequency);
+        lastDocId = docId;
+        docCount++;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    Cursor cursor() {
+        return new Cursor(data, length);
+    }
+
+    void trim() {
+        if (data.length > length) {
+            data = Arrays.copyOf(data, length);
+        }
+    }
+
+    private void writeVInt(int value) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Forward-only reader over a snapshot of the list. Positioned on the first entry when
+     * created; {@link #docId()} is {@link Integer#MAX_VALUE} once exhausted.
+     */
+    static final class Cursor {
+        private final byte[] data;
+        private final int length;
+        private int position;
+        private int docId = -1;
+        private int termFrequency;
+
+        private Cursor(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+            next();
+        }
+
+        int docId() {
+            return docId;
+        }
+
+        int termFrequency() {
+            return termFrequency;
+        }
+
+        void next() {
+            if (position >= length) {
+                docId = Integer.MAX_VALUE;
+                return;
+            }
+            docId += readVInt();
+            termFrequency = readVInt();
+        }
+
+        private int readVInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.ecommerce.catalog.search;
+
+import com.ecommerce.catalog.db.ProductChangeListener;
+import com.ecommerce.catalog.db.ProductCursor;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.invalidation.InvalidationListener;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over product name and description, scored with BM25.
+ * <p>
+ * Each indexed product gets an internal doc id assigned in increasing order, so posting lists
+ * only ever grow at the tail. Re-indexing a product tombstones its old doc and appends a new
+ * one; tombstoned docs are squeezed out once they make up a quarter of the index, and until
+ * then still count towards document frequencies. The index
+ * is loaded from {@link ProductDAO} in the background on start and kept current through
+ * {@link ProductChangeListener} callbacks for local writes and {@link InvalidationListener}
+ * callbacks for writes made by other instances.
+ */
+public class ProductSearchIndex implements Managed, ProductChangeListener, InvalidationListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int NAME_WEIGHT = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 16;
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+
+    private final ProductDAO productDAO;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private NavigableMap<String, PostingList> postings = new TreeMap<>();
+    private Map<Long, Integer> docsByProductId = new HashMap<>();
+    private long[] productIds = new long[1024];
+    private int[] docLengths = new int[1024];
+    private BitSet deleted = new BitSet();
+    private int docCount;
+    private int deletedCount;
+    private long totalLiveLength;
+
+    private volatile boolean ready;
+    private Thread loader;
+
+    public ProductSearchIndex(ProductDAO productDAO) {
+        this.productDAO = productDAO;
+    }
+
+    @Override
+    public void start() {
+        loader = new Thread(this::load, "product-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (loader != null) {
+            loader.interrupt();
+            loader.join(5000);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void productSaved(Product product, boolean created) {
+        index(product);
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        remove(product.getId());
+    }
+
+    /**
+     * Re-reads the products another instance wrote: rows that still exist are indexed afresh
+     * and the rest removed.
+     */
+    @Override
+    public void invalidate(CatalogChange.Entity entity, Collection<Long> ids) {
+        if (entity != CatalogChange.Entity.PRODUCT) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(ids);
+        for (ProductView product : productDAO.findByIds(ids)) {
+            index(product.id(), product.name(), product.description());
+            missing.remove(product.id());
+        }
+        for (Long id : missing) {
+            remove(id);
+        }
+    }
+
+    public void index(Product product) {
+        index(product.getId(), product.getName(), product.getDescription());
+    }
+
+    private void index(Long productId, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(productId);
+            addDoc(productId, name, description);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the best matching products for {@code offset}/{@code limit} together
+     * with the number of live documents matching any query term. The last query term also
+     * matches as a prefix so results track a query as it is being typed.
+     *
+     * @throws IllegalArgumentException if {@code offset} is negative
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative: " + offset);
+        }
+        List<String> terms = Tokenizer.tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new SearchHits(Collections.emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = docCount - deletedCount;
+            if (liveDocs == 0) {
+                return new SearchHits(Collections.emptyList(), 0);
+            }
+            float averageLength = (float) totalLiveLength / liveDocs;
+
+            Map<String, PostingList> matched = matchTerms(terms);
+            PostingList.Cursor[] cursors = new PostingList.Cursor[matched.size()];
+            float[] idfs = new float[matched.size()];
+            int c = 0;
+            for (PostingList list : matched.values()) {
+                int df = list.docCount();
+                cursors[c] = list.cursor();
+                idfs[c] = (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+                c++;
+            }
+
+            // no page can reach past the live documents, so neither can the heap
+            TopKCollector collector = new TopKCollector((int) Math.min((long) offset + limit, liveDocs));
+            int totalHits = 0;
+            while (true) {
+                int doc = Integer.MAX_VALUE;
+                for (PostingList.Cursor cursor : cursors) {
+                    doc = Math.min(doc, cursor.docId());
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+
+                float lengthNorm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                float score = 0;
+                for (int i = 0; i < cursors.length; i++) {
+                    if (cursors[i].docId() == doc) {
+                        int tf = cursors[i].termFrequency();
+                        score += idfs[i] * tf * (K1 + 1) / (tf + lengthNorm);
+                        cursors[i].next();
+                    }
+                }
+
+                if (!deleted.get(doc)) {
+                    totalHits++;
+                    collector.offer(doc, score);
+                }
+            }
+
+            int[] ranked = collector.drainDescending();
+            List<Long> page = new ArrayList<>(Math.max(0, ranked.length - offset));
+            for (int i = offset; i < ranked.length; i++) {
+                page.add(productIds[ranked[i]]);
+            }
+            return new SearchHits(page, totalHits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, PostingList> matchTerms(List<String> terms) {
+        Map<String, PostingList> matched = new LinkedHashMap<>();
+        for (int i = 0; i < terms.size() - 1; i++) {
+            PostingList list = postings.get(terms.get(i));
+            if (list != null) {
+                matched.put(terms.get(i), list);
+            }
+        }
+
+        String last = terms.get(terms.size() - 1);
+        int expansions = 0;
+        for (Map.Entry<String, PostingList> entry : postings.tailMap(last, true).entrySet()) {
+            if (!entry.getKey().startsWith(last) || expansions++ == MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            matched.put(entry.getKey(), entry.getValue());
+        }
+        return matched;
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        int loaded = 0;
+        ProductCursor cursor = null;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<ProductView> page = productDAO.findAll(cursor, LOAD_PAGE_SIZE);
+                for (ProductView product : page) {
+                    indexIfAbsent(product);
+                }
+                loaded += page.size();
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    ready = true;
+                    LOGGER.info("Product search index loaded {} products in {} ms",
+                        loaded, (System.nanoTime() - started) / 1_000_000);
+                    return;
+                }
+                cursor = ProductCursor.after(page.get(page.size() - 1), ProductCursor.SortKey.ID);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to load product search index after {} products", loaded, e);
+        }
+    }
+
+    /**
+     * Used by the initial load so a row read before a concurrent write never replaces the
+     * fresher version indexed by the write callback.
+     */
+    private void indexIfAbsent(ProductView product) {
+        lock.writeLock().lock();
+        try {
+            if (!docsByProductId.containsKey(product.id())) {
+                addDoc(product.id(), product.name(), product.description());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addDoc(Long productId, String name, String description) {
+        Map<String, int[]> frequencies = new HashMap<>();
+        int length = 0;
+        for (String token : Tokenizer.tokenize(name)) {
+            frequencies.computeIfAbsent(token, t -> new int[1])[0] += NAME_WEIGHT;
+            length += NAME_WEIGHT;
+        }
+        for (String token : Tokenizer.tokenize(description)) {
+            frequencies.computeIfAbsent(token, t -> new int[1])[0]++;
+            length++;
+        }
+
+        int doc = docCount++;
+        if (doc == productIds.length) {
+            productIds = Arrays.copyOf(productIds, doc * 2);
+            docLengths = Arrays.copyOf(docLengths, doc * 2);
+        }
+        productIds[doc] = productId;
+        docLengths[doc] = length;
+        totalLiveLength += length;
+        docsByProductId.put(productId, doc);
+
+        for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), t -> new PostingList()).add(doc, entry.getValue()[0]);
+        }
+    }
+
+    private void removeDoc(Long productId) {
+        Integer doc = docsByProductId.remove(productId);
+        if (doc != null) {
+            deleted.set(doc);
+            deletedCount++;
+            totalLiveLength -= docLengths[doc];
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (deletedCount < MIN_DELETED_FOR_COMPACTION || deletedCount * 4 < docCount) {
+            return;
+        }
+
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            remap[doc] = deleted.get(doc) ? -1 : live++;
+        }
+
+        NavigableMap<String, PostingList> compacted = new TreeMap<>();
+        for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+            PostingList list = new PostingList();
+            PostingList.Cursor cursor = entry.getValue().cursor();
+            for (; cursor.docId() != Integer.MAX_VALUE; cursor.next()) {
+                int target = remap[cursor.docId()];
+                if (target >= 0) {
+                    list.add(target, cursor.termFrequency());
+                }
+            }
+            if (list.docCount() > 0) {
+                list.trim();
+                compacted.put(entry.getKey(), list);
+            }
+        }
+
+        long[] compactedIds = new long[Math.max(1024, live * 2)];
+        int[] compactedLengths = new int[compactedIds.length];
+        Map<Long, Integer> compactedDocs = new HashMap<>(live * 2);
+        for (int doc = 0; doc < docCount; doc++) {
+            if (remap[doc] >= 0) {
+                compactedIds[remap[doc]] = productIds[doc];
+                compactedLengths[remap[doc]] = docLengths[doc];
+                compactedDocs.put(productIds[doc], remap[doc]);
+            }
+        }
+
+        postings = compacted;
+        productIds = compactedIds;
+        docLengths = compactedLengths;
+        docsByProductId = compactedDocs;
+        deleted = new BitSet();
+        docCount = live;
+        deletedCount = 0;
+    }
+
+    public static final class SearchHits {
+        private final List<Long> productIds;
+        private final int totalHits;
+
+        SearchHits(List<Long> productIds, int totalHits) {
+            this.productIds = productIds;
+            this.totalHits = totalHits;
+        }
+
+        public List<Long> getProductIds() { return productIds; }
+
+        public int getTotalHits() { return totalHits; }
+    }
+}
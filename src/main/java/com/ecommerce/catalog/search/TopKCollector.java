@@ -0,0 +1,90 @@
+package com.ecommerce.catalog.search;
+
+/**
+ * Keeps the {@code k} highest scoring documents seen so far in a bounded min-heap backed by
+ * primitive arrays, so collecting a result page allocates nothing per candidate.
+ */
+final class TopKCollector {
+    private final int[] docIds;
+    private final float[] scores;
+    private int size;
+
+    TopKCollector(int k) {
+        this.docIds = new int[k];
+        this.scores = new float[k];
+    }
+
+    void offer(int docId, float score) {
+        if (docIds.length == 0) {
+            return;
+        }
+        if (size < docIds.length) {
+            docIds[size] = docId;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            docIds[0] = docId;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Drains the heap and returns the collected doc ids ordered by descending score.
+     */
+    int[] drainDescending() {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = docIds[0];
+            size--;
+            docIds[0] = docIds[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!lessThan(index, parent)) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && lessThan(right, left)) {
+                smallest = right;
+            }
+            if (!lessThan(smallest, index)) {
+                break;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    // Lower score is "smaller"; on equal scores the later doc sorts first so older docs win ties
+    private boolean lessThan(int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && docIds[a] > docIds[b]);
+    }
+
+    private void swap(int a, int b) {
+        int doc = docIds[a];
+        docIds[a] = docIds[b];
+        docIds[b] = doc;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
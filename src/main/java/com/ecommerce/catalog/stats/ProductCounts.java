@@ -0,0 +1,171 @@
+package com.ecommerce.catalog.stats;
+
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.db.ProductChangeListener;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.invalidation.InvalidationListener;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps total, per-category and per-status product counts in memory so list endpoints can
+ * report totals without a {@code COUNT(*)} per request.
+ * <p>
+ * Inserts and deletes adjust the counters directly. An update may move a product between
+ * categories or statuses without the previous values being known, so it schedules a
+ * reconciliation instead, as does any write another instance announces on the
+ * {@link com.ecommerce.catalog.invalidation.InvalidationBus}. A full reconciliation with a
+ * single grouped query also runs periodically to correct any remaining drift.
+ * <p>
+ * Reconciliation counts on the primary, and inserts and deletes made while its query runs are
+ * recorded into the new counters as well as the live ones. Those the query already saw were
+ * committed before it started and notified before recording began, so none is lost when the
+ * new counters replace the live ones and none is counted twice, barring a write notified in
+ * the instant between recording starting and the query taking its snapshot.
+ */
+public class ProductCounts implements Managed, ProductChangeListener, InvalidationListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductCounts.class);
+
+    private final ProductDAO productDAO;
+    private final ScheduledExecutorService executor;
+    private final Duration reconcileInterval;
+    private final AtomicBoolean reconcileScheduled = new AtomicBoolean();
+
+    private volatile Counts counts = new Counts();
+    /** The counters being rebuilt by a running reconciliation, or {@code null}. */
+    private volatile Counts recording;
+
+    public ProductCounts(ProductDAO productDAO, ScheduledExecutorService executor, Duration reconcileInterval) {
+        this.productDAO = productDAO;
+        this.executor = executor;
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    @Override
+    public void start() {
+        reconcile();
+        long intervalMillis = reconcileInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::reconcileQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    public long total() {
+        return counts.total.sum();
+    }
+
+    public long countInCategory(Long categoryId) {
+        LongAdder count = counts.byCategory.get(categoryId);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long countWithStatus(Product.ProductStatus status) {
+        return counts.byStatus.get(status).sum();
+    }
+
+    @Override
+    public void productSaved(Product product, boolean created) {
+        if (created) {
+            adjust(product, 1);
+        } else {
+            reconcileSoon();
+        }
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        adjust(product, -1);
+    }
+
+    /**
+     * The ids do not say whether a product was inserted, moved or deleted, and deleting a
+     * category uncategorizes its products, so any remote write reconciles.
+     */
+    @Override
+    public void invalidate(CatalogChange.Entity entity, Collection<Long> ids) {
+        reconcileSoon();
+    }
+
+    public synchronized void reconcile() {
+        Counts fresh = new Counts();
+        recording = fresh;
+        try {
+            for (Map.Entry<Long, Map<Product.ProductStatus, Long>> category : productDAO.countByCategoryAndStatus().entrySet()) {
+                for (Map.Entry<Product.ProductStatus, Long> status : category.getValue().entrySet()) {
+                    long count = status.getValue();
+                    fresh.total.add(count);
+                    fresh.byStatus.get(status.getKey()).add(count);
+                    if (category.getKey() != null) {
+                        fresh.byCategory.computeIfAbsent(category.getKey(), id -> new LongAdder()).add(count);
+                    }
+                }
+            }
+            counts = fresh;
+        } finally {
+            recording = null;
+        }
+    }
+
+    private void reconcileSoon() {
+        if (reconcileScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                reconcileScheduled.set(false);
+                reconcileQuietly();
+            });
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to reconcile product counts", e);
+        }
+    }
+
+    private void adjust(Product product, int delta) {
+        // Read recording first: once it is seen unset, counts is the set the change must reach
+        Counts rebuilding = recording;
+        Counts current = counts;
+        adjust(current, product, delta);
+        if (rebuilding != null && rebuilding != current) {
+            adjust(rebuilding, product, delta);
+        }
+    }
+
+    private static void adjust(Counts counts, Product product, int delta) {
+        counts.total.add(delta);
+        if (product.getStatus() != null) {
+            counts.byStatus.get(product.getStatus()).add(delta);
+        }
+        if (product.getCategory() != null && product.getCategory().getId() != null) {
+            counts.byCategory.computeIfAbsent(product.getCategory().getId(), id -> new LongAdder()).add(delta);
+        }
+    }
+
+    private static final class Counts {
+        final LongAdder total = new LongAdder();
+        final Map<Long, LongAdder> byCategory = new ConcurrentHashMap<>();
+        final Map<Product.ProductStatus, LongAdder> byStatus = new EnumMap<>(Product.ProductStatus.class);
+
+        Counts() {
+            for (Product.ProductStatus status : Product.ProductStatus.values()) {
+                byStatus.put(status, new LongAdder());
+            }
+        }
+    }
+}
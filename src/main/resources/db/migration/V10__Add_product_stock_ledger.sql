@@ -0,0 +1 @@
+ALTER TABLE products ADD COLUMN stock_ledger VARCHAR(128) NULL;
@@ -0,0 +1,6 @@
+ALTER TABLE products
+    ADD INDEX idx_product_category (category_id),
+    ADD INDEX idx_product_category_status_price_id (category_id, status, price, id),
+    ADD INDEX idx_product_status_price_id (status, price, id),
+    DROP INDEX idx_product_category_status_price,
+    DROP INDEX idx_product_status_price;
@@ -0,0 +1,2 @@
+ALTER TABLE products ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE categories ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
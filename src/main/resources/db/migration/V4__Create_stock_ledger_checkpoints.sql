@@ -0,0 +1,5 @@
+CREATE TABLE stock_ledger_checkpoints (
+    ledger VARCHAR(128) PRIMARY KEY,
+    last_segment BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
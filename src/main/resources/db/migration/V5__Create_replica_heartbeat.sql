@@ -0,0 +1,6 @@
+CREATE TABLE replica_heartbeat (
+    id INT PRIMARY KEY,
+    beat_at BIGINT NOT NULL
+);
+
+INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, 0);
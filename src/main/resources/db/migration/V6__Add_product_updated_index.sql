@@ -0,0 +1 @@
+CREATE INDEX idx_product_updated ON products (updated_at);
@@ -0,0 +1,6 @@
+ALTER TABLE products
+    ADD INDEX idx_product_category_status_price (category_id, status, price, stock_quantity),
+    ADD INDEX idx_product_category_status_stock (category_id, status, stock_quantity),
+    ADD INDEX idx_product_status_price (status, price, stock_quantity),
+    DROP INDEX idx_product_category,
+    DROP INDEX idx_product_status;
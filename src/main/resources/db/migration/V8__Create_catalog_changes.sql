@@ -0,0 +1,9 @@
+CREATE TABLE catalog_changes (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    operation VARCHAR(8) NOT NULL,
+    changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    
+    INDEX idx_change_time (changed_at)
+);
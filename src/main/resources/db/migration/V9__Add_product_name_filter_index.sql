@@ -0,0 +1,2 @@
+ALTER TABLE products
+    ADD INDEX idx_product_category_status_name (category_id, status, name, id);
@@ -0,0 +1,80 @@
+package com.ecommerce.catalog.api;
+
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MergePatchTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testForProduct_KeepsOnlyPresentMembers() throws Exception {
+        // When
+        MergePatch patch = MergePatch.forProduct(mapper.readTree(
+            "{\"price\": 1099.99, \"status\": \"INACTIVE\", \"description\": null, \"categoryId\": 3}"));
+
+        // Then
+        assertEquals(Arrays.asList("price", "status", "description", "category"),
+            new ArrayList<>(patch.changes().keySet()));
+        assertEquals(new BigDecimal("1099.99"), patch.changes().get("price"));
+        assertEquals(Product.ProductStatus.INACTIVE, patch.changes().get("status"));
+        assertNull(patch.changes().get("description"));
+        assertEquals(3L, patch.changes().get("category"));
+        assertTrue(patch.touches("description"));
+        assertFalse(patch.touches("name"));
+    }
+
+    @Test
+    public void testForCategory_ClearsParent_WhenNull() throws Exception {
+        // When
+        MergePatch patch = MergePatch.forCategory(mapper.readTree("{\"parentId\": null}"));
+
+        // Then
+        assertTrue(patch.touches("parent"));
+        assertNull(patch.changes().get("parent"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForProduct_Throws_WhenRequiredFieldIsCleared() throws Exception {
+        MergePatch.forProduct(mapper.readTree("{\"name\": null}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForProduct_Throws_WhenFieldIsReadOnly() throws Exception {
+        MergePatch.forProduct(mapper.readTree("{\"updatedAt\": \"2024-01-01T00:00:00\"}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForProduct_Throws_WhenPriceIsBelowMinimum() throws Exception {
+        MergePatch.forProduct(mapper.readTree("{\"price\": 0}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForProduct_Throws_WhenPriceHasMoreThanTwoDecimals() throws Exception {
+        MergePatch.forProduct(mapper.readTree("{\"price\": 19.999}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForProduct_Throws_WhenPriceExceedsColumnPrecision() throws Exception {
+        MergePatch.forProduct(mapper.readTree("{\"price\": 100000000}"));
+    }
+
+    @Test
+    public void testForProduct_AcceptsPriceWithTrailingZeros() throws Exception {
+        // When
+        MergePatch patch = MergePatch.forProduct(mapper.readTree("{\"price\": 99999999.990}"));
+
+        // Then
+        assertEquals(0, new BigDecimal("99999999.99").compareTo((BigDecimal) patch.changes().get("price")));
+    }
+}
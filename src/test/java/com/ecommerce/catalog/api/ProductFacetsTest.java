@@ -0,0 +1,64 @@
+package com.ecommerce.catalog.api;
+
+import com.ecommerce.catalog.model.Product;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ProductFacetsTest {
+
+    private static final List<BigDecimal> BANDS = Arrays.asList(new BigDecimal("100"), new BigDecimal("500"));
+
+    private static final List<ProductFacets.Bucket> BUCKETS = Arrays.asList(
+        new ProductFacets.Bucket(1L, "Laptops", 2, Product.ProductStatus.ACTIVE, 4),
+        new ProductFacets.Bucket(1L, "Laptops", 1, Product.ProductStatus.INACTIVE, 1),
+        new ProductFacets.Bucket(2L, "Tablets", 1, Product.ProductStatus.ACTIVE, 3),
+        new ProductFacets.Bucket(null, null, 0, Product.ProductStatus.ACTIVE, 2));
+
+    @Test
+    public void testRollUp_CountsEveryFacet_WhenUnfiltered() {
+        // When
+        ProductFacets facets = ProductFacets.rollUp(BUCKETS, BANDS, null, null);
+
+        // Then
+        assertEquals(10, facets.total());
+        assertEquals(3, facets.categories().size());
+        assertEquals(Long.valueOf(1L), facets.categories().get(0).categoryId());
+        assertEquals(5, facets.categories().get(0).count());
+        assertEquals(2, facets.priceBands().get(0).count());
+        assertEquals(4, facets.priceBands().get(1).count());
+        assertEquals(4, facets.priceBands().get(2).count());
+        assertNull(facets.priceBands().get(2).to());
+        assertEquals(Long.valueOf(9), facets.statuses().get(Product.ProductStatus.ACTIVE));
+    }
+
+    @Test
+    public void testRollUp_CategoryFacetIgnoresCategoryFilter() {
+        // When
+        ProductFacets facets = ProductFacets.rollUp(BUCKETS, BANDS, 2L, null);
+
+        // Then
+        assertEquals(3, facets.total());
+        assertEquals(3, facets.categories().size());
+        assertEquals(3, facets.priceBands().get(1).count());
+        assertEquals(Long.valueOf(3), facets.statuses().get(Product.ProductStatus.ACTIVE));
+        assertEquals(Long.valueOf(0), facets.statuses().get(Product.ProductStatus.INACTIVE));
+    }
+
+    @Test
+    public void testRollUp_StatusFacetIgnoresStatusFilter() {
+        // When
+        ProductFacets facets = ProductFacets.rollUp(BUCKETS, BANDS, 1L, Product.ProductStatus.INACTIVE);
+
+        // Then
+        assertEquals(1, facets.total());
+        assertEquals(1, facets.categories().size());
+        assertEquals(Long.valueOf(4), facets.statuses().get(Product.ProductStatus.ACTIVE));
+        assertEquals(Long.valueOf(1), facets.statuses().get(Product.ProductStatus.INACTIVE));
+    }
+}
@@ -1,27 +1,43 @@
 package com.ecommerce.catalog.auth;
 
+import com.codahale.metrics.MetricRegistry;
 import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.util.Date;
 import java.util.Optional;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class OAuth2AuthenticatorTest {
 
+    // HS256 needs a key of at least 256 bits
+    private static final String SECRET = "test-secret-0123456789abcdefghij";
+
     private OAuth2Authenticator oauth2Authenticator;
     private EcommerceCatalogConfiguration.OAuth2Config oauth2Config;
+    private MetricRegistry metrics;
 
     @Before
     public void setUp() {
         oauth2Config = new EcommerceCatalogConfiguration.OAuth2Config();
         oauth2Config.setClientId("test-client");
-        oauth2Config.setClientSecret("test-secret");
+        oauth2Config.setClientSecret(SECRET);
         oauth2Config.setScope("catalog:read catalog:write");
         
-        oauth2Authenticator = new OAuth2Authenticator(oauth2Config);
+        metrics = new MetricRegistry();
+        oauth2Authenticator = new OAuth2Authenticator(oauth2Config, metrics);
     }
 
     @Test
@@ -71,4 +87,69 @@ public class OAuth2AuthenticatorTest {
         // Then
         assertFalse("Should return empty for malformed token", result.isPresent());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAuthenticate_ReturnsPrincipal_WhenTokenIsValid() throws Exception {
+        // Given
+        String token = sign("alice", "catalog:read", 3_600_000L);
+
+        // When
+        Optional<Principal> result = oauth2Authenticator.authenticate(token);
+
+        // Then
+        assertTrue("Should authenticate a valid token", result.isPresent());
+        assertEquals("alice", result.get().getName());
+        assertTrue(((OAuth2Principal) result.get()).hasScope("catalog:read"));
+    }
+
+    @Test
+    public void testAuthenticate_VerifiesOnce_WhenTokenIsReused() throws Exception {
+        // Given
+        String token = sign("alice", "catalog:read catalog:write", 3_600_000L);
+
+        // When
+        Principal first = oauth2Authenticator.authenticate(token).get();
+        Principal second = oauth2Authenticator.authenticate(token).get();
+
+        // Then
+        assertSame("Should serve the second call from the cache", first, second);
+        assertEquals(1, metrics.timer(MetricRegistry.name(OAuth2Authenticator.class, "verification")).getCount());
+    }
+
+    @Test
+    public void testAuthenticate_ReturnsEmpty_WhenScopeOnlyContainsAcceptedScopeAsSubstring() throws Exception {
+        // Given
+        String token = sign("alice", "catalog:readonly", 3_600_000L);
+
+        // When
+        Optional<Principal> result = oauth2Authenticator.authenticate(token);
+
+        // Then
+        assertFalse("Should match scopes exactly", result.isPresent());
+    }
+
+    @Test
+    public void testAuthenticate_CachesRejection_WhenTokenIsInvalid() {
+        // Given
+        String invalidToken = "invalid.token.here";
+
+        // When
+        oauth2Authenticator.authenticate(invalidToken);
+        Optional<Principal> result = oauth2Authenticator.authenticate(invalidToken);
+
+        // Then
+        assertFalse(result.isPresent());
+        assertEquals(1, metrics.timer(MetricRegistry.name(OAuth2Authenticator.class, "verification")).getCount());
+    }
+
+    private static String sign(String subject, String scope, long ttlMillis) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+            .subject(subject)
+            .claim("scope", scope)
+            .expirationTime(new Date(System.currentTimeMillis() + ttlMillis))
+            .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(SECRET.getBytes(StandardCharsets.UTF_8)));
+        return jwt.serialize();
+    }
+}
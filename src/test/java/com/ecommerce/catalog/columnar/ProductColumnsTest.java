@@ -0,0 +1,96 @@
+package com.ecommerce.catalog.columnar;
+
+import com.ecommerce.catalog.model.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProductColumnsTest {
+
+    private ProductColumns columns;
+
+    @Before
+    public void setUp() {
+        ProductColumns.Builder builder = new ProductColumns.Builder();
+        builder.add(1L, new BigDecimal("999.99"), 5, Product.ProductStatus.ACTIVE, 10L);
+        builder.add(2L, new BigDecimal("19.99"), 0, Product.ProductStatus.ACTIVE, 20L);
+        builder.add(3L, new BigDecimal("599.99"), 3, Product.ProductStatus.INACTIVE, 10L);
+        builder.add(4L, new BigDecimal("19.99"), 8, Product.ProductStatus.ACTIVE, null);
+        builder.add(5L, new BigDecimal("1299.99"), 1, Product.ProductStatus.ACTIVE, 10L);
+        columns = builder.build();
+    }
+
+    @Test
+    public void testPageByPrice_OrdersByPriceThenId() {
+        // When
+        long[] page = columns.pageByPrice(Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, 0, 10);
+
+        // Then
+        assertArrayEquals(new long[] {2L, 4L, 3L, 1L, 5L}, page);
+    }
+
+    @Test
+    public void testPageByPrice_AppliesRangeOffsetAndLimit() {
+        // When
+        long[] page = columns.pageByPrice(1999, 99999, 0, -1, 1, 2);
+
+        // Then
+        assertArrayEquals(new long[] {4L, 3L}, page);
+    }
+
+    @Test
+    public void testPageByPrice_SeeksPastCursor() {
+        // When
+        long[] page = columns.pageByPrice(Long.MIN_VALUE, Long.MAX_VALUE, 1999, 2L, 0, 2);
+
+        // Then
+        assertArrayEquals(new long[] {4L, 3L}, page);
+    }
+
+    @Test
+    public void testPageByCategory_SkipsOffsetAndSeeksPastCursor() {
+        // Given
+        int laptops = columns.categoryIndex(10L);
+
+        // When
+        long[] offsetPage = columns.pageByCategory(laptops, -1, 1, 10);
+        long[] cursorPage = columns.pageByCategory(laptops, 1L, 0, 1);
+
+        // Then
+        assertArrayEquals(new long[] {3L, 5L}, offsetPage);
+        assertArrayEquals(new long[] {3L}, cursorPage);
+        assertEquals(0, columns.pageByCategory(columns.categoryIndex(99L), -1, 0, 10).length);
+    }
+
+    @Test
+    public void testMerge_UpsertsAndDeletesWithoutDisturbingPriceOrder() {
+        // Given
+        ProductColumns.Builder changes = new ProductColumns.Builder();
+        changes.add(1L, new BigDecimal("9.99"), 5, Product.ProductStatus.ACTIVE, 30L);
+        changes.add(6L, new BigDecimal("599.99"), 2, Product.ProductStatus.ACTIVE, 10L);
+
+        // When
+        ProductColumns merged = columns.merge(changes, Collections.singleton(3L));
+
+        // Then
+        assertEquals(5, merged.size());
+        assertArrayEquals(new long[] {1L, 2L, 4L, 6L, 5L},
+            merged.pageByPrice(Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, 0, 10));
+        assertArrayEquals(new long[] {5L, 6L}, merged.pageByCategory(merged.categoryIndex(10L), -1, 0, 10));
+        assertTrue(merged.contains(1L, 999, 5, Product.ProductStatus.ACTIVE, 30L));
+        assertEquals(5, columns.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilder_RejectsRowsOutOfIdOrder() {
+        ProductColumns.Builder builder = new ProductColumns.Builder();
+        builder.add(2L, new BigDecimal("1.00"), 1, Product.ProductStatus.ACTIVE, null);
+        builder.add(1L, new BigDecimal("1.00"), 1, Product.ProductStatus.ACTIVE, null);
+    }
+}
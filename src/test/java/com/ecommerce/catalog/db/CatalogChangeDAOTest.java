@@ -0,0 +1,136 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.api.ChangePage;
+import com.ecommerce.catalog.model.Category;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.util.Duration;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CatalogChangeDAOTest {
+
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private CategoryDAO categoryDAO;
+    private CatalogChangeDAO changeDAO;
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("catalog-changes");
+        productDAO = new ProductDAO(sessionFactory);
+        categoryDAO = new CategoryDAO(sessionFactory);
+        changeDAO = new CatalogChangeDAO(sessionFactory, Duration.seconds(0));
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testFindSince_KeepsLastChangePerEntity_InCommitOrder() {
+        // Given
+        Product kept = productDAO.save(product("iPad Air", null));
+        Product deleted = productDAO.save(product("iPad Mini", null));
+        productDAO.delete(deleted.getId());
+
+        // When
+        ChangePage page = changeDAO.findSince(0, 10);
+
+        // Then
+        assertEquals(List.of(kept.getId() + " UPSERT", deleted.getId() + " DELETE"), describe(page.changes()));
+        assertEquals(changeDAO.latestSequence(), page.next());
+    }
+
+    @Test
+    public void testFindSince_ResumesFromCursor() {
+        // Given
+        productDAO.save(product("iPad Air", null));
+        ChangePage first = changeDAO.findSince(0, 10);
+        Product later = productDAO.save(product("iPad Mini", null));
+
+        // When
+        ChangePage next = changeDAO.findSince(first.next(), 10);
+        ChangePage empty = changeDAO.findSince(next.next(), 10);
+
+        // Then
+        assertEquals(List.of(later.getId() + " UPSERT"), describe(next.changes()));
+        assertTrue(empty.changes().isEmpty());
+        assertEquals(next.next(), empty.next());
+    }
+
+    @Test
+    public void testDelete_RecordsWholeSubtreeOfDeletedCategory() {
+        // Given
+        Category electronics = categoryDAO.save(new Category("Electronics", "Devices"));
+        Category tablets = new Category("Tablets", "Touch devices");
+        tablets.setParent(electronics);
+        categoryDAO.save(tablets);
+        Product product = productDAO.save(product("iPad Air", tablets));
+        long since = changeDAO.latestSequence();
+
+        // When
+        categoryDAO.delete(electronics.getId());
+
+        // Then
+        assertEquals(List.of(electronics.getId() + " DELETE", tablets.getId() + " DELETE", product.getId() + " DELETE"),
+            describe(changeDAO.findSince(since, 10).changes()));
+    }
+
+    @Test
+    public void testFindSince_DoesNotSkipChangesOfLongTransactions() {
+        // Given
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        CatalogChangeDAO.record(session, CatalogChange.Entity.PRODUCT, List.of(42L), CatalogChange.Operation.UPSERT);
+        productDAO.save(product("iPad Air", null));
+        long since = changeDAO.findSince(0, 10).next();
+
+        // When
+        transaction.commit();
+        session.close();
+
+        // Then
+        assertEquals(List.of("42 UPSERT"), describe(changeDAO.findSince(since, 10).changes()));
+    }
+
+    @Test
+    public void testRecord_IsRolledBack_WithTheWrite() throws Exception {
+        // When
+        try {
+            UnitOfWork.call(false, () -> {
+                productDAO.save(product("iPad Air", null));
+                throw new IllegalStateException("boom");
+            });
+            fail("expected the failure to propagate");
+        } catch (IllegalStateException expected) {
+            // rolled back
+        }
+
+        // Then
+        assertEquals(0, changeDAO.latestSequence());
+    }
+
+    private static List<String> describe(List<CatalogChange> changes) {
+        return changes.stream()
+            .map(change -> change.id() + " " + change.operation())
+            .collect(Collectors.toList());
+    }
+
+    private static Product product(String name, Category category) {
+        return new Product(name, "Apple tablet", new BigDecimal("599.99"), 5, category);
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.MergePatch;
+import com.ecommerce.catalog.cache.ProductCache;
+import com.ecommerce.catalog.model.Category;
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class CategoryDAOTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<Long> deleted = new ArrayList<>();
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private CategoryDAO categoryDAO;
+    private Category electronics;
+    private Category tablets;
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("category-dao");
+        productDAO = new ProductDAO(sessionFactory, new ProductCache(1_000_000, Duration.minutes(5)));
+        productDAO.addListener(new ProductChangeListener() {
+            @Override
+            public void productSaved(Product product, boolean created) {
+            }
+
+            @Override
+            public void productDeleted(Product product) {
+                deleted.add(product.getId());
+            }
+        });
+        categoryDAO = new CategoryDAO(sessionFactory, productDAO, null);
+        electronics = categoryDAO.save(new Category("Electronics", "Devices"));
+        tablets = new Category("Tablets", "Touch devices");
+        tablets.setParent(electronics);
+        categoryDAO.save(tablets);
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testPatch_RejectsParentThatIsTheCategoryItself() throws Exception {
+        // When
+        try {
+            categoryDAO.patch(electronics.getId(), parentPatch(electronics.getId()), null);
+            fail("expected the cycle to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // rejected
+        }
+
+        // Then
+        assertNull(categoryDAO.findById(electronics.getId()).get().parentId());
+    }
+
+    @Test
+    public void testPatch_RejectsParentThatIsADescendant() throws Exception {
+        // When
+        try {
+            categoryDAO.patch(electronics.getId(), parentPatch(tablets.getId()), null);
+            fail("expected the cycle to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // rejected
+        }
+
+        // Then
+        assertNull(categoryDAO.findById(electronics.getId()).get().parentId());
+        assertEquals(1, categoryDAO.findSubtree(electronics.getId()).size());
+    }
+
+    @Test
+    public void testSave_RejectsParentThatIsADescendant() {
+        // Given
+        Category update = new Category("Electronics", "Devices");
+        update.setId(electronics.getId());
+        update.setParent(tablets);
+
+        // When
+        try {
+            categoryDAO.save(update);
+            fail("expected the cycle to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // rejected
+        }
+
+        // Then
+        assertNull(categoryDAO.findById(electronics.getId()).get().parentId());
+    }
+
+    @Test
+    public void testDelete_EvictsAndNotifiesCascadedProducts() {
+        // Given
+        Product ipad = productDAO.save(new Product("iPad", "Apple tablet", new BigDecimal("599.99"), 5, tablets));
+        assertEquals("iPad", productDAO.findById(ipad.getId()).get().name());
+
+        // When
+        categoryDAO.delete(electronics.getId());
+
+        // Then
+        assertFalse(productDAO.findById(ipad.getId()).isPresent());
+        assertEquals(List.of(ipad.getId()), deleted);
+    }
+
+    private MergePatch parentPatch(Long parentId) throws Exception {
+        return MergePatch.forCategory(mapper.readTree("{\"parentId\": " + parentId + "}"));
+    }
+}
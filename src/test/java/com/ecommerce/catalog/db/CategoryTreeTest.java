@@ -0,0 +1,49 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.CategoryView;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class CategoryTreeTest {
+
+    @Test
+    public void testSubtree_VisitsEachCategoryOnce_WhenParentsFormACycle() {
+        // Given
+        CategoryTree tree = CategoryTree.build(List.of(
+            category(1L, "Electronics", 2L),
+            category(2L, "Tablets", 1L)));
+
+        // When
+        List<CategoryView> subtree = tree.subtree(1L);
+
+        // Then
+        assertEquals(List.of("Tablets"), names(subtree));
+    }
+
+    @Test
+    public void testChildren_KeepTheLoadOrder() {
+        // Given rows as the database collates them, case-insensitively
+        CategoryTree tree = CategoryTree.build(List.of(
+            category(1L, "Electronics", null),
+            category(3L, "audio", 1L),
+            category(2L, "Tablets", 1L)));
+
+        // When
+        List<CategoryView> children = tree.children(1L);
+
+        // Then
+        assertEquals(List.of("audio", "Tablets"), names(children));
+    }
+
+    private static CategoryView category(Long id, String name, Long parentId) {
+        return new CategoryView(id, name, null, parentId, null, null, 0L);
+    }
+
+    private static List<String> names(List<CategoryView> categories) {
+        return categories.stream().map(CategoryView::name).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,141 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.StockAdjustment;
+import com.ecommerce.catalog.model.Product;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HotStockGuardTest {
+
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private Product ipad;
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("hot-stock-guard");
+        productDAO = new ProductDAO(sessionFactory);
+        ipad = productDAO.save(product("iPad Air", 5));
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testFlagHotStock_ReturnsStockAndMarksRow() {
+        // When
+        Optional<Integer> stock = productDAO.flagHotStock(ipad.getId(), "pod-a");
+
+        // Then
+        assertEquals(Optional.of(5), stock);
+        try {
+            productDAO.reserveStock(ipad.getId(), 1);
+            fail("expected the reservation to be rejected");
+        } catch (HotStockException expected) {
+            assertEquals("pod-a", expected.getLedger());
+        }
+    }
+
+    @Test
+    public void testFlagHotStock_RejectsProductHeldByAnotherLedger() {
+        // Given
+        productDAO.flagHotStock(ipad.getId(), "pod-a");
+
+        // When
+        try {
+            productDAO.flagHotStock(ipad.getId(), "pod-b");
+            fail("expected the flag to be rejected");
+        } catch (HotStockException expected) {
+            // Then
+            assertEquals("pod-a", expected.getLedger());
+        }
+    }
+
+    @Test
+    public void testUnflagHotStock_OnlyReleasesOwnFlag() {
+        // Given
+        productDAO.flagHotStock(ipad.getId(), "pod-a");
+
+        // When
+        productDAO.unflagHotStock(ipad.getId(), "pod-b");
+        int afterOther = productDAO.clearHotStock("pod-b");
+        productDAO.unflagHotStock(ipad.getId(), "pod-a");
+
+        // Then
+        assertEquals(0, afterOther);
+        assertEquals(Integer.valueOf(4), productDAO.reserveStock(ipad.getId(), 1).stockQuantity());
+    }
+
+    @Test
+    public void testSave_RejectsFullUpdateOfHotProduct() {
+        // Given
+        productDAO.flagHotStock(ipad.getId(), "pod-a");
+        Product update = product("iPad Air", 500);
+        update.setId(ipad.getId());
+
+        // When
+        try {
+            productDAO.save(update);
+            fail("expected the stock write to be rejected");
+        } catch (HotStockException expected) {
+            // rejected
+        }
+
+        // Then
+        assertEquals(Integer.valueOf(5), productDAO.findById(ipad.getId()).get().stockQuantity());
+    }
+
+    @Test
+    public void testReserveStock_RejectsHotProductWithoutWriting() {
+        // Given
+        productDAO.flagHotStock(ipad.getId(), "pod-a");
+
+        // When
+        try {
+            productDAO.reserveStock(ipad.getId(), 1);
+            fail("expected the reservation to be rejected");
+        } catch (HotStockException expected) {
+            // rejected
+        }
+
+        // Then
+        assertEquals(Integer.valueOf(5), productDAO.findById(ipad.getId()).get().stockQuantity());
+    }
+
+    @Test
+    public void testReserveStock_LeavesUnitOfWorkUsableAfterHotRejection() throws Exception {
+        // Given
+        Product iphone = productDAO.save(product("iPhone 15", 3));
+        productDAO.flagHotStock(ipad.getId(), "pod-a");
+
+        // When
+        UnitOfWork.call(false, () -> {
+            try {
+                productDAO.reserveStock(Arrays.asList(new StockAdjustment(ipad.getId(), 1),
+                    new StockAdjustment(iphone.getId(), 1)));
+                fail("expected the reservation to be rejected");
+            } catch (HotStockException expected) {
+                // rejected before anything was written
+            }
+            return productDAO.reserveStock(iphone.getId(), 2);
+        });
+
+        // Then
+        assertEquals(Integer.valueOf(1), productDAO.findById(iphone.getId()).get().stockQuantity());
+    }
+
+    private static Product product(String name, int stock) {
+        return new Product(name, "Apple tablet", new BigDecimal("599.99"), stock, null);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.model.Product;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProductCursorTest {
+
+    @Test
+    public void testEncode_RoundTrips_PriceCursor() {
+        // Given
+        ProductView product = view(42L, "Dell XPS 13", "999.99");
+
+        // When
+        ProductCursor cursor = ProductCursor.decode(ProductCursor.after(product, ProductCursor.SortKey.PRICE).encode());
+
+        // Then
+        assertEquals(ProductCursor.SortKey.PRICE, cursor.getSortKey());
+        assertEquals(42L, cursor.getLastId());
+        assertEquals(new BigDecimal("999.99"), cursor.getLastPrice());
+    }
+
+    @Test
+    public void testEncode_RoundTrips_NameContainingSeparator() {
+        // Given
+        ProductView product = view(7L, "MacBook Pro 13\" | M1", "1299.99");
+
+        // When
+        ProductCursor cursor = ProductCursor.decode(ProductCursor.after(product, ProductCursor.SortKey.NAME).encode());
+
+        // Then
+        assertEquals("MacBook Pro 13\" | M1", cursor.getLastName());
+        assertEquals(7L, cursor.getLastId());
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void testDecode_Throws_WhenCursorIsMalformed() {
+        ProductCursor.decode("not-a-cursor");
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void testRequireSortKey_Throws_WhenCursorIsFromAnotherListing() {
+        // Given
+        ProductView product = view(6L, "iPad Air", "599.99");
+        ProductCursor cursor = ProductCursor.after(product, ProductCursor.SortKey.ID);
+
+        // When
+        cursor.requireSortKey(ProductCursor.SortKey.PRICE);
+    }
+
+    private static ProductView view(Long id, String name, String price) {
+        return new ProductView(id, name, null, new BigDecimal(price), 1, Product.ProductStatus.ACTIVE,
+            null, null, null, null, 0L);
+    }
+}
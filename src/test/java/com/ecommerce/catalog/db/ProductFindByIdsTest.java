@@ -0,0 +1,88 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.ProductView;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProductFindByIdsTest {
+
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private List<Long> ids;
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("product-find-by-ids");
+        productDAO = new ProductDAO(sessionFactory);
+        TestDatabases.execute(sessionFactory, "INSERT INTO products (name, price, stock_quantity, status, created_at, updated_at) "
+            + "SELECT CONCAT('Product ', x), 9.99, 1, 'ACTIVE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, 1500)");
+        ids = ids(productDAO.findAll(0, 1500));
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testFindByIds_ReturnsRequestedOrder() {
+        // Given
+        List<Long> requested = Arrays.asList(ids.get(42), ids.get(3), ids.get(999), ids.get(0));
+
+        // When
+        List<ProductView> products = productDAO.findByIds(requested);
+
+        // Then
+        assertEquals(requested, ids(products));
+    }
+
+    @Test
+    public void testFindByIds_SkipsMissingIds_AndDuplicates() {
+        // Given
+        List<Long> requested = Arrays.asList(ids.get(7), -1L, ids.get(2), ids.get(7), 999_999L);
+
+        // When
+        List<ProductView> products = productDAO.findByIds(requested);
+
+        // Then
+        assertEquals(Arrays.asList(ids.get(7), ids.get(2)), ids(products));
+    }
+
+    @Test
+    public void testFindByIds_ReturnsEmpty_ForNoIds() {
+        assertTrue(productDAO.findByIds(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testFindByIds_SplitsLargeRequestsIntoChunks() {
+        // Given
+        List<Long> requested = new ArrayList<>(ids);
+        Collections.reverse(requested);
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        // When
+        List<ProductView> products = productDAO.findByIds(requested);
+
+        // Then
+        assertEquals(requested, ids(products));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private static List<Long> ids(List<ProductView> products) {
+        return products.stream().map(ProductView::id).collect(Collectors.toList());
+    }
+}
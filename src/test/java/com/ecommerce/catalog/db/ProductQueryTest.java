@@ -0,0 +1,103 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.model.Category;
+import com.ecommerce.catalog.model.Product;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProductQueryTest {
+
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private Category laptops;
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("product-query");
+        productDAO = new ProductDAO(sessionFactory);
+        laptops = new CategoryDAO(sessionFactory).save(new Category("Laptops", "Portable computers"));
+        Category tablets = new CategoryDAO(sessionFactory).save(new Category("Tablets", "Touch devices"));
+
+        save("MacBook Air", "999.99", 10, laptops, Product.ProductStatus.ACTIVE);
+        save("Dell XPS 13", "899.99", 0, laptops, Product.ProductStatus.ACTIVE);
+        save("ThinkPad X1", "1299.99", 4, laptops, Product.ProductStatus.ACTIVE);
+        save("Chromebook", "299.99", 7, laptops, Product.ProductStatus.DISCONTINUED);
+        save("Surface Pro", "599.99", 12, tablets, Product.ProductStatus.ACTIVE);
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testQuery_CombinesEveryFilter_SortedByPrice() {
+        // Given
+        ProductQuery query = new ProductQuery(laptops.getId(), Product.ProductStatus.ACTIVE,
+            new BigDecimal("500"), new BigDecimal("1500"), 1, ProductCursor.SortKey.PRICE);
+
+        // When
+        List<ProductView> products = productDAO.query(query, null, 0, 10);
+
+        // Then
+        assertEquals(List.of("MacBook Air", "ThinkPad X1"), names(products));
+    }
+
+    @Test
+    public void testQuery_ContinuesFromCursor() {
+        // Given
+        ProductQuery query = new ProductQuery(null, Product.ProductStatus.ACTIVE, null, null, null,
+            ProductCursor.SortKey.NAME);
+        List<ProductView> first = productDAO.query(query, null, 0, 2);
+
+        // When
+        List<ProductView> next = productDAO.query(query,
+            ProductCursor.after(first.get(first.size() - 1), ProductCursor.SortKey.NAME), 0, 2);
+
+        // Then
+        assertEquals(List.of("Dell XPS 13", "MacBook Air"), names(first));
+        assertEquals(List.of("Surface Pro", "ThinkPad X1"), names(next));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuery_RejectsCursorFromAnotherSortKey() {
+        // Given
+        ProductQuery query = new ProductQuery(null, null, null, null, null, ProductCursor.SortKey.PRICE);
+        ProductView any = productDAO.query(query, null, 0, 1).get(0);
+
+        // When
+        productDAO.query(query, ProductCursor.after(any, ProductCursor.SortKey.ID), 0, 1);
+    }
+
+    @Test
+    public void testScrollViews_StreamsMatchingProductsInIdOrder() throws Exception {
+        // Given
+        List<ProductView> streamed = new ArrayList<>();
+
+        // When
+        productDAO.scrollViews(laptops.getId(), Product.ProductStatus.ACTIVE, streamed::add);
+
+        // Then
+        assertEquals(List.of("MacBook Air", "Dell XPS 13", "ThinkPad X1"), names(streamed));
+    }
+
+    private void save(String name, String price, int stock, Category category, Product.ProductStatus status) {
+        Product product = new Product(name, null, new BigDecimal(price), stock, category);
+        product.setStatus(status);
+        productDAO.save(product);
+    }
+
+    private static List<String> names(List<ProductView> products) {
+        return products.stream().map(ProductView::name).collect(Collectors.toList());
+    }
+}
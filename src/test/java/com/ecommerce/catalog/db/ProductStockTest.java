@@ -0,0 +1,132 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.StockAdjustment;
+import com.ecommerce.catalog.api.StockLevel;
+import com.ecommerce.catalog.model.Product;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProductStockTest {
+
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private Product ipad;
+    private Product iphone;
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("product-stock");
+        productDAO = new ProductDAO(sessionFactory);
+        ipad = productDAO.save(product("iPad Air", 5));
+        iphone = productDAO.save(product("iPhone 15", 3));
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testReserveStock_TakesEveryLine() {
+        // When
+        List<StockLevel> levels = productDAO.reserveStock(Arrays.asList(
+            new StockAdjustment(iphone.getId(), 1), new StockAdjustment(ipad.getId(), 2)));
+
+        // Then
+        assertEquals(Arrays.asList(new StockLevel(ipad.getId(), 3), new StockLevel(iphone.getId(), 2)), levels);
+        assertEquals(Integer.valueOf(3), stockOf(ipad));
+        assertEquals(Integer.valueOf(2), stockOf(iphone));
+    }
+
+    @Test
+    public void testReserveStock_WritesNothing_WhenOneLineIsShort() {
+        // When
+        try {
+            productDAO.reserveStock(Arrays.asList(
+                new StockAdjustment(ipad.getId(), 2), new StockAdjustment(iphone.getId(), 4)));
+            fail("expected the cart to be rejected");
+        } catch (StockReservationException expected) {
+            // Then
+            assertEquals(iphone.getId(), expected.getProductId());
+            assertFalse(expected.isProductMissing());
+        }
+        assertEquals(Integer.valueOf(5), stockOf(ipad));
+        assertEquals(Integer.valueOf(3), stockOf(iphone));
+    }
+
+    @Test
+    public void testReserveStock_SumsDuplicateLines() {
+        // When
+        List<StockLevel> levels = productDAO.reserveStock(Arrays.asList(
+            new StockAdjustment(ipad.getId(), 2), new StockAdjustment(ipad.getId(), 3)));
+
+        // Then
+        assertEquals(Arrays.asList(new StockLevel(ipad.getId(), 0)), levels);
+    }
+
+    @Test
+    public void testReserveStock_Rejects_WhenDuplicateLinesTogetherAreShort() {
+        // When
+        try {
+            productDAO.reserveStock(Arrays.asList(
+                new StockAdjustment(ipad.getId(), 3), new StockAdjustment(ipad.getId(), 3)));
+            fail("expected the cart to be rejected");
+        } catch (StockReservationException expected) {
+            // Then
+            assertFalse(expected.isProductMissing());
+        }
+        assertEquals(Integer.valueOf(5), stockOf(ipad));
+    }
+
+    @Test
+    public void testReserveStock_ReportsMissingProduct_AndWritesNothing() {
+        // When
+        try {
+            productDAO.reserveStock(Arrays.asList(
+                new StockAdjustment(ipad.getId(), 1), new StockAdjustment(999L, 1)));
+            fail("expected the cart to be rejected");
+        } catch (StockReservationException expected) {
+            // Then
+            assertEquals(Long.valueOf(999L), expected.getProductId());
+            assertTrue(expected.isProductMissing());
+        }
+        assertEquals(Integer.valueOf(5), stockOf(ipad));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseStock_Rejects_WhenDuplicateLinesOverflow() {
+        productDAO.releaseStock(Arrays.asList(
+            new StockAdjustment(ipad.getId(), Integer.MAX_VALUE), new StockAdjustment(ipad.getId(), 1)));
+    }
+
+    @Test
+    public void testReleaseStock_ReportsMissingProduct() {
+        // When
+        try {
+            productDAO.releaseStock(999L, 1);
+            fail("expected the release to be rejected");
+        } catch (StockReservationException expected) {
+            // Then
+            assertTrue(expected.isProductMissing());
+        }
+    }
+
+    private Integer stockOf(Product product) {
+        return productDAO.findById(product.getId()).get().stockQuantity();
+    }
+
+    private static Product product(String name, int stock) {
+        return new Product(name, "Apple device", new BigDecimal("599.99"), stock, null);
+    }
+}
@@ -0,0 +1,137 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.util.Duration;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the router against two embedded H2 databases standing in for a primary and a replica.
+ * There is no replication between them; tests copy the heartbeat across by hand to simulate
+ * a replica that has caught up.
+ */
+public class ReadReplicaRouterTest {
+
+    private SessionFactory primary;
+    private SessionFactory replica;
+    private ReadReplicaRouter router;
+
+    @Before
+    public void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        router = new ReadReplicaRouter(primary, replica, null, Duration.seconds(2), Duration.milliseconds(500));
+    }
+
+    @After
+    public void tearDown() {
+        ReadReplicaRouter.pinToPrimary(false);
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    public void testForRead_UsesPrimary_WhenReplicaMissedHeartbeats() {
+        // Given
+        router.checkLag();
+        TestDatabases.execute(replica, "UPDATE replica_heartbeat SET beat_at = " + (System.currentTimeMillis() - 60_000) + " WHERE id = 1");
+
+        // When
+        router.checkLag();
+
+        // Then
+        assertFalse(router.isReplicaCurrent());
+        assertSame(primary, router.forRead());
+    }
+
+    @Test
+    public void testForRead_UsesReplica_WhenHeartbeatHasReplicated() {
+        // Given
+        router.checkLag();
+        replicateHeartbeat();
+
+        // When
+        router.checkLag();
+
+        // Then
+        assertTrue(router.isReplicaCurrent());
+        assertEquals(0L, router.getLagMillis());
+        assertSame(replica, router.forRead());
+    }
+
+    @Test
+    public void testForRead_UsesPrimary_WhenThreadIsPinned() {
+        // Given
+        router.checkLag();
+        replicateHeartbeat();
+        router.checkLag();
+
+        // When
+        ReadReplicaRouter.pinToPrimary(true);
+
+        // Then
+        assertSame(primary, router.forRead());
+    }
+
+    @Test
+    public void testCheckLag_TreatsFailedProbeAsUnboundedLag() {
+        // Given
+        router.checkLag();
+        replicateHeartbeat();
+        router.checkLag();
+        TestDatabases.execute(replica, "DROP TABLE replica_heartbeat");
+
+        // When
+        router.checkLag();
+
+        // Then
+        assertEquals(Long.MAX_VALUE, router.getLagMillis());
+        assertSame(primary, router.forRead());
+    }
+
+    @Test
+    public void testProductDAO_ListsFromReplica_AndLooksUpByIdOnPrimary() {
+        // Given
+        ProductDAO replicaWrites = new ProductDAO(replica);
+        Product product = replicaWrites.save(new Product("iPad Air", "Apple tablet", new BigDecimal("599.99"), 5, null));
+        router.checkLag();
+        replicateHeartbeat();
+        router.checkLag();
+        ProductDAO productDAO = new ProductDAO(primary, null, router);
+
+        // When
+        List<ProductView> listed = productDAO.findAll(0, 10);
+
+        // Then
+        assertEquals(1, listed.size());
+        assertEquals("iPad Air", listed.get(0).name());
+        assertFalse(productDAO.findById(product.getId()).isPresent());
+    }
+
+    private void replicateHeartbeat() {
+        try (Session session = primary.openSession()) {
+            Object beat = session.createNativeQuery("SELECT beat_at FROM replica_heartbeat WHERE id = 1").uniqueResult();
+            TestDatabases.execute(replica, "UPDATE replica_heartbeat SET beat_at = " + beat + " WHERE id = 1");
+        }
+    }
+
+    private static SessionFactory database(String name) {
+        SessionFactory sessionFactory = TestDatabases.h2(name);
+        TestDatabases.execute(sessionFactory, "DROP TABLE IF EXISTS replica_heartbeat");
+        TestDatabases.execute(sessionFactory, "CREATE TABLE replica_heartbeat (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)");
+        TestDatabases.execute(sessionFactory, "INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, 0)");
+        return sessionFactory;
+    }
+}
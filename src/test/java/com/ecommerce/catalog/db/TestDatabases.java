@@ -0,0 +1,49 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.model.Category;
+import com.ecommerce.catalog.model.Product;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+
+/**
+ * In-memory H2 databases in MySQL mode with the mapped tables plus the ones only the
+ * migrations create.
+ */
+public final class TestDatabases {
+
+    private TestDatabases() {
+    }
+
+    public static SessionFactory h2(String name) {
+        SessionFactory sessionFactory = new Configuration()
+            .addAnnotatedClass(Category.class)
+            .addAnnotatedClass(Product.class)
+            .setProperty("hibernate.connection.driver_class", "org.h2.Driver")
+            .setProperty("hibernate.connection.url", "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("hibernate.jdbc.time_zone", "UTC")
+            .buildSessionFactory();
+        execute(sessionFactory, "DROP TABLE IF EXISTS catalog_changes");
+        execute(sessionFactory, "CREATE TABLE catalog_changes (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "entity VARCHAR(16) NOT NULL, entity_id BIGINT NOT NULL, operation VARCHAR(8) NOT NULL, "
+            + "changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))");
+        execute(sessionFactory, "DROP TABLE IF EXISTS stock_ledger_checkpoints");
+        execute(sessionFactory, "CREATE TABLE stock_ledger_checkpoints (ledger VARCHAR(128) PRIMARY KEY, "
+            + "last_segment BIGINT NOT NULL, updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        execute(sessionFactory, "ALTER TABLE products ADD COLUMN stock_ledger VARCHAR(128)");
+        return sessionFactory;
+    }
+
+    public static void execute(SessionFactory sessionFactory, String sql) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.createNativeQuery(sql).executeUpdate();
+            transaction.commit();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecommerce.catalog.db;
+
+import com.ecommerce.catalog.model.Product;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UnitOfWorkTest {
+
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private final List<String> saved = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("unit-of-work");
+        productDAO = new ProductDAO(sessionFactory);
+        productDAO.addListener(new ProductChangeListener() {
+            @Override
+            public void productSaved(Product product, boolean created) {
+                saved.add(product.getName());
+            }
+
+            @Override
+            public void productDeleted(Product product) {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testCall_CommitsAllWritesTogether_AndNotifiesAfterCommit() throws Exception {
+        // When
+        int notifiedInside = UnitOfWork.call(false, () -> {
+            productDAO.save(product("iPad Air"));
+            productDAO.save(product("iPad Pro"));
+            assertEquals(2, productDAO.findAll(0, 10).size());
+            return saved.size();
+        });
+
+        // Then
+        assertEquals(0, notifiedInside);
+        assertEquals(2, saved.size());
+        assertEquals(2, productDAO.count());
+    }
+
+    @Test
+    public void testCall_RollsBackEveryWrite_WhenWorkFails() throws Exception {
+        // When
+        try {
+            UnitOfWork.call(false, () -> {
+                productDAO.save(product("iPad Air"));
+                throw new IllegalStateException("boom");
+            });
+            fail("expected the failure to propagate");
+        } catch (IllegalStateException expected) {
+            // rolled back
+        }
+
+        // Then
+        assertEquals(0, productDAO.count());
+        assertTrue(saved.isEmpty());
+    }
+
+    @Test
+    public void testCall_RejectsWrites_WhenReadOnly() throws Exception {
+        // When
+        boolean rejected = UnitOfWork.call(true, () -> {
+            try {
+                productDAO.save(product("iPad Air"));
+                return false;
+            } catch (IllegalStateException e) {
+                return true;
+            }
+        });
+
+        // Then
+        assertTrue(rejected);
+        assertEquals(0, productDAO.count());
+    }
+
+    @Test
+    public void testOpenSession_OpensOwnSession_OutsideUnit() {
+        // When
+        Product product = productDAO.save(product("iPad Air"));
+
+        // Then
+        assertFalse(UnitOfWork.hasUncommittedWrites());
+        assertTrue(productDAO.findById(product.getId()).isPresent());
+        assertEquals(1, saved.size());
+    }
+
+    private static Product product(String name) {
+        return new Product(name, "Apple tablet", new BigDecimal("599.99"), 5, null);
+    }
+}
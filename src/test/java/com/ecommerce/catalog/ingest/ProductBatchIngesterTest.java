@@ -0,0 +1,137 @@
+package com.ecommerce.catalog.ingest;
+
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.model.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class ProductBatchIngesterTest {
+
+    private final ObjectMapper mapper = Jackson.newObjectMapper();
+    private final ProductDAO productDAO = mock(ProductDAO.class);
+    private final List<List<String>> savedChunks = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong(100);
+    private ProductBatchIngester ingester;
+
+    @Before
+    public void setUp() {
+        // Records each saveBatch call and fails any chunk holding a product named "Broken"
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            List<String> names = new ArrayList<>();
+            for (Product product : products) {
+                names.add(product.getName());
+            }
+            savedChunks.add(names);
+            if (names.contains("Broken")) {
+                throw new IllegalStateException("Duplicate entry");
+            }
+            for (Product product : products) {
+                if (product.getId() == null) {
+                    product.setId(nextId.getAndIncrement());
+                }
+            }
+            return products;
+        }).when(productDAO).saveBatch(anyList());
+        ingester = new ProductBatchIngester(productDAO, mapper, Validators.newValidator(), 2);
+    }
+
+    @Test
+    public void testIngest_WritesInChunksOfChunkSize() throws Exception {
+        // When
+        List<JsonNode> results = ingest(product("A"), product("B"), product("C"), product("D"), product("E"));
+
+        // Then
+        assertEquals(Arrays.asList(Arrays.asList("A", "B"), Arrays.asList("C", "D"), Arrays.asList("E")), savedChunks);
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i + 1, results.get(i).get("line").asInt());
+            assertEquals("CREATED", results.get(i).get("status").asText());
+            assertEquals(100 + i, results.get(i).get("id").asLong());
+        }
+    }
+
+    @Test
+    public void testIngest_ReportsUpsert_WhenLineCarriesId() throws Exception {
+        // When
+        List<JsonNode> results = ingest("{\"id\": 7, \"name\": \"A\", \"price\": 9.99, \"stockQuantity\": 1}");
+
+        // Then
+        assertEquals("UPSERTED", results.get(0).get("status").asText());
+        assertEquals(7L, results.get(0).get("id").asLong());
+    }
+
+    @Test
+    public void testIngest_RejectsMalformedAndInvalidLines_WithoutSavingThem() throws Exception {
+        // When
+        List<JsonNode> results = ingest(product("A"), "{\"name\": ", "", "[1, 2]",
+            "{\"name\": \"B\", \"price\": 0, \"stockQuantity\": 1}", product("C"));
+
+        // Then
+        assertEquals(Arrays.asList(Arrays.asList("A", "C")), savedChunks);
+        assertEquals(5, results.size());
+        assertEquals(2, results.get(0).get("line").asInt());
+        assertEquals("INVALID", results.get(0).get("status").asText());
+        assertTrue(results.get(0).get("errors").get(0).asText().startsWith("Malformed JSON"));
+        assertEquals(4, results.get(1).get("line").asInt());
+        assertEquals("INVALID", results.get(1).get("status").asText());
+        assertEquals(5, results.get(2).get("line").asInt());
+        assertTrue(results.get(2).get("errors").get(0).asText().startsWith("price "));
+        assertEquals(1, results.get(3).get("line").asInt());
+        assertEquals(6, results.get(4).get("line").asInt());
+        assertEquals("CREATED", results.get(4).get("status").asText());
+    }
+
+    @Test
+    public void testIngest_RetriesFailedChunkRowByRow() throws Exception {
+        // When
+        List<JsonNode> results = ingest(product("A"), product("Broken"), product("C"));
+
+        // Then
+        assertEquals(Arrays.asList(Arrays.asList("A", "Broken"), Arrays.asList("A"), Arrays.asList("Broken"),
+            Arrays.asList("C")), savedChunks);
+        assertEquals("CREATED", results.get(0).get("status").asText());
+        assertEquals(1, results.get(0).get("line").asInt());
+        assertEquals("FAILED", results.get(1).get("status").asText());
+        assertEquals(2, results.get(1).get("line").asInt());
+        assertEquals("Duplicate entry", results.get(1).get("errors").get(0).asText());
+        assertFalse(results.get(1).has("id"));
+        assertEquals("CREATED", results.get(2).get("status").asText());
+        assertEquals(3, results.get(2).get("line").asInt());
+    }
+
+    private List<JsonNode> ingest(String... lines) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ingester.ingest(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)), output);
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8.name()).split("\n")) {
+            if (!line.isEmpty()) {
+                results.add(mapper.readTree(line));
+            }
+        }
+        return results;
+    }
+
+    private static String product(String name) {
+        return "{\"name\": \"" + name + "\", \"price\": 9.99, \"stockQuantity\": 1}";
+    }
+}
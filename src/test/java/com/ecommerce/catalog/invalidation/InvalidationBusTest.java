@@ -0,0 +1,151 @@
+package com.ecommerce.catalog.invalidation;
+
+import com.ecommerce.catalog.api.CatalogChange;
+import com.ecommerce.catalog.cache.ProductCache;
+import com.ecommerce.catalog.db.CatalogChangeDAO;
+import com.ecommerce.catalog.db.CategoryDAO;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.TestDatabases;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InvalidationBusTest {
+
+    private SessionFactory sessionFactory;
+    private final List<String> received = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("invalidation-bus");
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testInMemory_EvictsProductCachedOnOtherReplica() {
+        // Given
+        InMemoryInvalidationBus busA = new InMemoryInvalidationBus();
+        InMemoryInvalidationBus busB = busA.peer();
+        ProductDAO replicaA = replica(busA);
+        ProductDAO replicaB = replica(busB);
+        Product product = replicaA.save(product("iPad Air"));
+        replicaB.findById(product.getId());
+
+        // When
+        product.setPrice(new BigDecimal("499.99"));
+        replicaA.save(product);
+
+        // Then
+        assertEquals(0, new BigDecimal("499.99").compareTo(replicaB.findById(product.getId()).get().price()));
+    }
+
+    @Test
+    public void testDatabase_DeliversCommittedWritesOnce() {
+        // Given
+        DatabaseInvalidationBus bus = new DatabaseInvalidationBus(
+            new CatalogChangeDAO(sessionFactory, Duration.seconds(0)), null, Duration.milliseconds(100));
+        bus.subscribe(this::record);
+        Product product = new ProductDAO(sessionFactory).save(product("iPad Air"));
+
+        // When
+        bus.poll();
+        bus.poll();
+
+        // Then
+        assertEquals(List.of("PRODUCT " + List.of(product.getId())), received);
+    }
+
+    @Test
+    public void testDatabase_SkipsUnsettledChangesAlreadyDelivered() {
+        // Given
+        DatabaseInvalidationBus bus = new DatabaseInvalidationBus(
+            new CatalogChangeDAO(sessionFactory, Duration.hours(1)), null, Duration.milliseconds(100));
+        bus.subscribe(this::record);
+        Product first = new ProductDAO(sessionFactory).save(product("iPad Air"));
+        bus.poll();
+
+        // When
+        Product second = new ProductDAO(sessionFactory).save(product("iPad Mini"));
+        bus.poll();
+
+        // Then
+        assertEquals(List.of("PRODUCT " + List.of(first.getId()), "PRODUCT " + List.of(second.getId())), received);
+    }
+
+    @Test
+    public void testDatabase_PagesThroughUnsettledBurstLongerThanAPage() {
+        // Given
+        DatabaseInvalidationBus bus = new DatabaseInvalidationBus(
+            new CatalogChangeDAO(sessionFactory, Duration.hours(1)), null, Duration.milliseconds(100));
+        bus.subscribe(this::record);
+        List<Product> burst = new ArrayList<>();
+        for (int i = 0; i <= DatabaseInvalidationBus.PAGE_SIZE; i++) {
+            burst.add(product("iPad " + i));
+        }
+        new ProductDAO(sessionFactory).saveBatch(burst);
+        bus.poll();
+
+        // When
+        Product later = new ProductDAO(sessionFactory).save(product("iPad Mini"));
+        bus.poll();
+
+        // Then
+        assertEquals(3, received.size());
+        assertEquals("PRODUCT " + List.of(later.getId()), received.get(2));
+    }
+
+    @Test
+    public void testMulticast_SplitsIdsAcrossDatagrams() throws Exception {
+        // Given
+        MulticastInvalidationBus bus = new MulticastInvalidationBus("239.255.42.99", 45700, null, 1, null);
+        bus.subscribe(this::record);
+        List<Long> ids = LongStream.rangeClosed(1, MulticastInvalidationBus.IDS_PER_PACKET + 3)
+            .boxed()
+            .collect(Collectors.toList());
+
+        // When
+        List<byte[]> datagrams = MulticastInvalidationBus.encode(42L, System.currentTimeMillis(),
+            CatalogChange.Entity.PRODUCT, ids);
+        for (byte[] datagram : datagrams) {
+            bus.deliver(ByteBuffer.wrap(datagram));
+        }
+
+        // Then
+        assertEquals(2, datagrams.size());
+        assertEquals(2, received.size());
+        assertTrue(received.get(1).endsWith(ids.subList(MulticastInvalidationBus.IDS_PER_PACKET, ids.size()).toString()));
+    }
+
+    private void record(CatalogChange.Entity entity, Collection<Long> ids) {
+        received.add(entity + " " + ids);
+    }
+
+    private ProductDAO replica(InvalidationBus bus) {
+        ProductCache cache = new ProductCache(1_000_000, Duration.minutes(5));
+        ProductDAO productDAO = new ProductDAO(sessionFactory, cache, null, bus);
+        bus.subscribe(new CatalogInvalidator(cache, new CategoryDAO(sessionFactory, null, bus)));
+        return productDAO;
+    }
+
+    private static Product product(String name) {
+        return new Product(name, "Apple tablet", new BigDecimal("599.99"), 5, null);
+    }
+}
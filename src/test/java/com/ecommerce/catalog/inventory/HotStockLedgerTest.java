@@ -0,0 +1,129 @@
+package com.ecommerce.catalog.inventory;
+
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.TestDatabases;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+
+public class HotStockLedgerTest {
+
+    @Rule
+    public final TemporaryFolder journalDir = new TemporaryFolder();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private Product ipad;
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("hot-stock-ledger");
+        productDAO = new ProductDAO(sessionFactory);
+        ipad = productDAO.save(new Product("iPad Air", "Apple tablet", new BigDecimal("599.99"), 10, null));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testStart_ReplaysUnflushedJournalExactlyOnce() throws Exception {
+        // Given
+        // reservations are journaled, then the process dies before a flush
+        HotStockLedger crashed = ledger();
+        crashed.start();
+        crashed.flag(ipad.getId());
+        crashed.reserve(ipad.getId(), 3);
+        crashed.reserve(ipad.getId(), 1);
+
+        // When
+        ledger().start();
+        ledger().start();
+
+        // Then
+        assertEquals(Integer.valueOf(6), stockOf(ipad));
+        assertEquals(Integer.valueOf(5), productDAO.reserveStock(ipad.getId(), 1).stockQuantity());
+    }
+
+    @Test
+    public void testStart_SkipsSegmentsCoveredByCheckpoint() throws Exception {
+        // Given
+        // a flush commits, then the process dies before deleting its segment
+        HotStockLedger ledger = ledger();
+        ledger.start();
+        ledger.flag(ipad.getId());
+        ledger.reserve(ipad.getId(), 4);
+        Map<Path, byte[]> segments = readSegments();
+        ledger.flush();
+        for (Map.Entry<Path, byte[]> segment : segments.entrySet()) {
+            Files.write(segment.getKey(), segment.getValue());
+        }
+
+        // When
+        ledger().start();
+
+        // Then
+        assertEquals(Integer.valueOf(6), stockOf(ipad));
+    }
+
+    @Test
+    public void testStart_IgnoresTornRecordAtTail() throws Exception {
+        // Given
+        HotStockLedger crashed = ledger();
+        crashed.start();
+        crashed.flag(ipad.getId());
+        crashed.reserve(ipad.getId(), 2);
+        for (Path segment : readSegments().keySet()) {
+            Files.write(segment, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16},
+                StandardOpenOption.APPEND);
+        }
+
+        // When
+        ledger().start();
+
+        // Then
+        assertEquals(Integer.valueOf(8), stockOf(ipad));
+    }
+
+    private HotStockLedger ledger() {
+        return new HotStockLedger(productDAO, executor, journalDir.getRoot().toPath(), "pod-a",
+            Duration.hours(1), Duration.hours(1));
+    }
+
+    private Map<Path, byte[]> readSegments() throws IOException {
+        Map<Path, byte[]> segments = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDir.getRoot().toPath())) {
+            for (Path file : files) {
+                if (Files.size(file) > 0) {
+                    segments.put(file, Files.readAllBytes(file));
+                }
+            }
+        }
+        return segments;
+    }
+
+    private Integer stockOf(Product product) {
+        return productDAO.findById(product.getId()).get().stockQuantity();
+    }
+}
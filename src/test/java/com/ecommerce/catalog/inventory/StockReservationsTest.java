@@ -0,0 +1,182 @@
+package com.ecommerce.catalog.inventory;
+
+import com.ecommerce.catalog.api.StockAdjustment;
+import com.ecommerce.catalog.api.StockLevel;
+import com.ecommerce.catalog.db.HotStockException;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.StockReservationException;
+import com.ecommerce.catalog.db.TestDatabases;
+import com.ecommerce.catalog.db.UnitOfWork;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class StockReservationsTest {
+
+    @Rule
+    public final TemporaryFolder journalDir = new TemporaryFolder();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean flagOnNextCheck = new AtomicBoolean();
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private HotStockLedger ledger;
+    private StockReservations reservations;
+    private Product ipad;
+    private Product iphone;
+
+    @Before
+    public void setUp() throws Exception {
+        sessionFactory = TestDatabases.h2("stock-reservations");
+        productDAO = new ProductDAO(sessionFactory);
+        ipad = productDAO.save(product("iPad Air", 5));
+        iphone = productDAO.save(product("iPhone 15", 3));
+        // Answers one hotness check with the stale "cold" while another request flags the product
+        ledger = new HotStockLedger(productDAO, executor, journalDir.getRoot().toPath(), "pod-a",
+                Duration.hours(1), Duration.hours(1)) {
+            @Override
+            public boolean isHot(Long productId) {
+                boolean wasHot = super.isHot(productId);
+                if (productId.equals(ipad.getId()) && flagOnNextCheck.compareAndSet(true, false)) {
+                    try {
+                        executor.submit(() -> flag(productId)).get();
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                return wasHot;
+            }
+        };
+        ledger.start();
+        reservations = new StockReservations(productDAO, ledger);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ledger.stop();
+        executor.shutdownNow();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testReserve_RoutesAgain_WhenFlaggedMidFlight() throws Exception {
+        // Given
+        flagOnNextCheck.set(true);
+        List<StockAdjustment> cart = Arrays.asList(
+            new StockAdjustment(ipad.getId(), 2), new StockAdjustment(iphone.getId(), 1));
+
+        // When
+        List<StockLevel> levels = UnitOfWork.call(false, () -> reservations.reserve(cart));
+
+        // Then
+        assertEquals(Integer.valueOf(2), stockOf(iphone));
+        assertEquals(Integer.valueOf(3), ledger.flag(ipad.getId()).get().stockQuantity());
+        assertEquals(2, levels.size());
+        ledger.flush();
+        assertEquals(Integer.valueOf(3), stockOf(ipad));
+    }
+
+    @Test
+    public void testReserve_FailsAfterOneRetry_WhenAnotherLedgerHoldsProduct() throws Exception {
+        // Given
+        productDAO.flagHotStock(ipad.getId(), "pod-b");
+        List<StockAdjustment> cart = Arrays.asList(
+            new StockAdjustment(ipad.getId(), 2), new StockAdjustment(iphone.getId(), 1));
+
+        // When
+        try {
+            UnitOfWork.call(false, () -> reservations.reserve(cart));
+            fail("expected the reservation to be rejected");
+        } catch (HotStockException expected) {
+            // Then
+            assertEquals("pod-b", expected.getLedger());
+        }
+        assertEquals(Integer.valueOf(3), stockOf(iphone));
+        assertEquals(Integer.valueOf(5), stockOf(ipad));
+    }
+
+    @Test
+    public void testUnflag_WritesBackBeforeColdReservations() throws Exception {
+        // Given
+        ledger.flag(ipad.getId());
+        reservations.reserve(ipad.getId(), 4);
+
+        // When
+        ledger.unflag(ipad.getId());
+
+        // Then
+        assertEquals(Integer.valueOf(1), stockOf(ipad));
+        assertEquals(Integer.valueOf(0), reservations.reserve(ipad.getId(), 1).stockQuantity());
+    }
+
+    @Test
+    public void testReserve_GivesHotUnitsBack_WhenColdLineIsShort() throws Exception {
+        // Given
+        ledger.flag(ipad.getId());
+        List<StockAdjustment> cart = Arrays.asList(
+            new StockAdjustment(ipad.getId(), 2), new StockAdjustment(iphone.getId(), 4));
+
+        // When
+        try {
+            UnitOfWork.call(false, () -> reservations.reserve(cart));
+            fail("expected the cart to be rejected");
+        } catch (StockReservationException expected) {
+            // Then
+            assertEquals(iphone.getId(), expected.getProductId());
+        }
+        assertEquals(Integer.valueOf(3), stockOf(iphone));
+        assertEquals(Integer.valueOf(5), ledger.flag(ipad.getId()).get().stockQuantity());
+    }
+
+    @Test
+    public void testReserve_ReturnsLevelsInRequestOrder() throws Exception {
+        // Given
+        ledger.flag(ipad.getId());
+        List<StockAdjustment> cart = Arrays.asList(new StockAdjustment(iphone.getId(), 1),
+            new StockAdjustment(ipad.getId(), 1), new StockAdjustment(iphone.getId(), 1),
+            new StockAdjustment(ipad.getId(), 2));
+
+        // When
+        List<StockLevel> levels = UnitOfWork.call(false, () -> reservations.reserve(cart));
+
+        // Then
+        assertEquals(Arrays.asList(new StockLevel(iphone.getId(), 1), new StockLevel(ipad.getId(), 2)), levels);
+    }
+
+    @Test
+    public void testRelease_ReturnsLevelsInRequestOrder() throws Exception {
+        // Given
+        ledger.flag(iphone.getId());
+        List<StockAdjustment> cart = Arrays.asList(
+            new StockAdjustment(iphone.getId(), 1), new StockAdjustment(ipad.getId(), 1));
+
+        // When
+        List<StockLevel> levels = UnitOfWork.call(false, () -> reservations.release(cart));
+
+        // Then
+        assertEquals(Arrays.asList(new StockLevel(iphone.getId(), 4), new StockLevel(ipad.getId(), 6)), levels);
+    }
+
+    private Integer stockOf(Product product) {
+        return productDAO.findById(product.getId()).get().stockQuantity();
+    }
+
+    private static Product product(String name, int stock) {
+        return new Product(name, "Apple device", new BigDecimal("599.99"), stock, null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.ecommerce.catalog.inventory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedCounterTest {
+
+    @Test
+    public void testTryTake_PoolsStripes_WhenNoSingleStripeCovers() {
+        // Given
+        StripedCounter counter = new StripedCounter(4, 10);
+
+        // When
+        boolean taken = counter.tryTake(9);
+
+        // Then
+        assertTrue(taken);
+        assertEquals(1, counter.sum());
+        assertFalse(counter.tryTake(2));
+        assertEquals(1, counter.sum());
+    }
+
+    @Test
+    public void testTryTake_NeverOversells_UnderContention() throws InterruptedException {
+        // Given
+        StripedCounter counter = new StripedCounter(8, 1_000);
+        AtomicLong sold = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 500; i++) {
+                    int amount = 1 + (i % 3);
+                    if (counter.tryTake(amount)) {
+                        sold.addAndGet(amount);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // When
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertEquals(1_000, sold.get() + counter.sum());
+        assertTrue(counter.sum() >= 0 && counter.sum() < 3);
+    }
+
+    @Test
+    public void testAdd_ReturnsUnitsToCounter() {
+        // Given
+        StripedCounter counter = new StripedCounter(4, 3);
+        counter.tryTake(3);
+
+        // When
+        counter.add(2);
+
+        // Then
+        assertEquals(2, counter.sum());
+        assertTrue(counter.tryTake(2));
+    }
+}
@@ -0,0 +1,152 @@
+package com.ecommerce.catalog.resources;
+
+import com.ecommerce.catalog.api.ProductView;
+import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import com.ecommerce.catalog.model.Product;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.junit.Test;
+
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HttpCachingTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 1, 1, 10, 0, 0);
+
+    private final CacheControl cacheControl =
+        HttpCaching.cacheControl(new EcommerceCatalogConfiguration.CatalogSettings());
+
+    @Test
+    public void testIfMatchVersions_AnyVersion_WhenAbsentOrWildcard() {
+        assertNull(HttpCaching.ifMatchVersions(null, HttpCaching.PRODUCT_TAG_PREFIX, 1L));
+        assertNull(HttpCaching.ifMatchVersions(" ", HttpCaching.PRODUCT_TAG_PREFIX, 1L));
+        assertNull(HttpCaching.ifMatchVersions("*", HttpCaching.PRODUCT_TAG_PREFIX, 1L));
+    }
+
+    @Test
+    public void testIfMatchVersions_ReadsEveryStrongTagForTheRow() {
+        // When
+        List<Long> versions = HttpCaching.ifMatchVersions("\"p-1-3-4a1c2f\", \"p-1-7-0\", \"p-12-9-0\"",
+            HttpCaching.PRODUCT_TAG_PREFIX, 1L);
+
+        // Then
+        assertEquals(Arrays.asList(3L, 7L), versions);
+    }
+
+    @Test
+    public void testIfMatchVersions_MatchesNothing_ForWeakForeignOrMalformedTags() {
+        // When
+        List<Long> versions = HttpCaching.ifMatchVersions("W/\"p-1-3-0\", \"c-1-3\", \"p-1-abc-0\", p-1-3-0",
+            HttpCaching.PRODUCT_TAG_PREFIX, 1L);
+
+        // Then
+        assertTrue(versions.isEmpty());
+    }
+
+    @Test
+    public void testIfMatchVersions_RoundTripsProductTag() {
+        // Given
+        ProductView product = view(5L, "Laptops", 42L);
+
+        // When
+        List<Long> versions = HttpCaching.ifMatchVersions(HttpCaching.productTag(product).toString(),
+            HttpCaching.PRODUCT_TAG_PREFIX, 5L);
+
+        // Then
+        assertEquals(Collections.singletonList(42L), versions);
+    }
+
+    @Test
+    public void testProductTag_Changes_ForWritesInTheSameSecond() {
+        // Given
+        ProductView first = view(1L, "Laptops", 1L);
+        ProductView second = view(1L, "Laptops", 2L);
+
+        // Then
+        assertEquals(first.updatedAt(), second.updatedAt());
+        assertNotEquals(HttpCaching.productTag(first), HttpCaching.productTag(second));
+    }
+
+    @Test
+    public void testProductTag_Changes_WhenCategoryIsRenamed() {
+        assertNotEquals(HttpCaching.productTag(view(1L, "Laptops", 1L)),
+            HttpCaching.productTag(view(1L, "Notebooks", 1L)));
+    }
+
+    @Test
+    public void testProduct_Returns304_WhenIfNoneMatchHasCurrentTag() {
+        // Given
+        ProductView product = view(1L, "Laptops", 4L);
+        ContainerRequest request = get(HttpHeaders.IF_NONE_MATCH, HttpCaching.productTag(product).toString());
+
+        // When
+        Response response = HttpCaching.product(request, cacheControl, product).build();
+
+        // Then
+        assertEquals(304, response.getStatus());
+        assertEquals(HttpCaching.productTag(product), response.getEntityTag());
+        assertNull(response.getEntity());
+    }
+
+    @Test
+    public void testProduct_Returns200_WhenRowChangedWithinTheSecond() {
+        // Given
+        ContainerRequest request = get(HttpHeaders.IF_NONE_MATCH,
+            HttpCaching.productTag(view(1L, "Laptops", 4L)).toString());
+        ProductView changed = view(1L, "Laptops", 5L);
+
+        // When
+        Response response = HttpCaching.product(request, cacheControl, changed).build();
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals(changed, response.getEntity());
+        assertEquals("product-1 category-9", response.getHeaderString(HttpCaching.SURROGATE_KEY_HEADER));
+    }
+
+    @Test
+    public void testProducts_Returns304_OnlyWhileEveryRowIsUnchanged() {
+        // Given
+        List<ProductView> page = Arrays.asList(view(1L, "Laptops", 1L), view(2L, "Laptops", 1L));
+        Response first = HttpCaching.products(get(null, null), cacheControl, page, "products").build();
+        String tag = first.getEntityTag().toString();
+
+        // When
+        Response unchanged = HttpCaching.products(get(HttpHeaders.IF_NONE_MATCH, tag), cacheControl,
+            page, "products").build();
+        Response changed = HttpCaching.products(get(HttpHeaders.IF_NONE_MATCH, tag), cacheControl,
+            Arrays.asList(view(1L, "Laptops", 1L), view(2L, "Laptops", 2L)), "products").build();
+
+        // Then
+        assertEquals(304, unchanged.getStatus());
+        assertEquals(200, changed.getStatus());
+        assertNull(first.getLastModified());
+    }
+
+    private static ContainerRequest get(String header, String value) {
+        ContainerRequest request = new ContainerRequest(URI.create("http://localhost/"),
+            URI.create("http://localhost/catalog/v2/products/1"), "GET", null, new MapPropertiesDelegate(), null);
+        if (header != null) {
+            request.header(header, value);
+        }
+        return request;
+    }
+
+    private static ProductView view(Long id, String categoryName, Long version) {
+        return new ProductView(id, "MacBook Pro", null, new BigDecimal("1299.99"), 50, Product.ProductStatus.ACTIVE,
+            9L, categoryName, UPDATED, UPDATED, version);
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.catalog.resources;
+
+import com.ecommerce.catalog.api.StockAdjustment;
+import com.ecommerce.catalog.api.StockLevel;
+import com.ecommerce.catalog.config.EcommerceCatalogConfiguration;
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.db.TestDatabases;
+import com.ecommerce.catalog.inventory.HotStockLedger;
+import com.ecommerce.catalog.inventory.StockReservations;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ProductStockResourceTest {
+
+    @Rule
+    public final TemporaryFolder journalDir = new TemporaryFolder();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private SessionFactory sessionFactory;
+    private ProductDAO productDAO;
+    private ProductResource resource;
+    private Product ipad;
+    private Product iphone;
+
+    @Before
+    public void setUp() {
+        sessionFactory = TestDatabases.h2("product-stock-resource");
+        productDAO = new ProductDAO(sessionFactory);
+        ipad = productDAO.save(product("iPad Air", 5));
+        iphone = productDAO.save(product("iPhone 15", 3));
+        HotStockLedger ledger = new HotStockLedger(productDAO, executor, journalDir.getRoot().toPath(), "pod-a",
+            Duration.hours(1), Duration.hours(1));
+        resource = new ProductResource(productDAO, null, null, null, null, null,
+            new StockReservations(productDAO, ledger), ledger, ResourceExecutor.inline(),
+            new EcommerceCatalogConfiguration.CatalogSettings());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testReserveStockBatch_Returns200WithLevelsInRequestOrder() {
+        // When
+        Response response = reserve(new StockAdjustment(iphone.getId(), 1), new StockAdjustment(ipad.getId(), 2));
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals(Arrays.asList(new StockLevel(iphone.getId(), 2), new StockLevel(ipad.getId(), 3)),
+            response.getEntity());
+    }
+
+    @Test
+    public void testReserveStockBatch_Returns409_WhenOneLineIsShort() {
+        // When
+        Response response = reserve(new StockAdjustment(ipad.getId(), 2), new StockAdjustment(iphone.getId(), 4));
+
+        // Then
+        assertEquals(409, response.getStatus());
+        assertEquals(Integer.valueOf(5), productDAO.findById(ipad.getId()).get().stockQuantity());
+    }
+
+    @Test
+    public void testReserveStockBatch_Returns404_WhenProductIsMissing() {
+        // When
+        Response response = reserve(new StockAdjustment(ipad.getId(), 1), new StockAdjustment(999L, 1));
+
+        // Then
+        assertEquals(404, response.getStatus());
+        assertEquals(Integer.valueOf(5), productDAO.findById(ipad.getId()).get().stockQuantity());
+    }
+
+    @Test
+    public void testReleaseStockBatch_Returns400_WhenDuplicateLinesOverflow() {
+        // Given
+        List<StockAdjustment> items = Arrays.asList(
+            new StockAdjustment(ipad.getId(), Integer.MAX_VALUE), new StockAdjustment(ipad.getId(), 1));
+        AsyncResponse asyncResponse = mock(AsyncResponse.class);
+
+        // When
+        resource.releaseStockBatch(null, items, null, asyncResponse);
+
+        // Then
+        assertEquals(400, resumed(asyncResponse).getStatus());
+    }
+
+    private Response reserve(StockAdjustment... items) {
+        AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        resource.reserveStockBatch(null, Arrays.asList(items), null, asyncResponse);
+        return resumed(asyncResponse);
+    }
+
+    private static Response resumed(AsyncResponse asyncResponse) {
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(response.capture());
+        return response.getValue();
+    }
+
+    private static Product product(String name, int stock) {
+        return new Product(name, "Apple device", new BigDecimal("599.99"), stock, null);
+    }
+}
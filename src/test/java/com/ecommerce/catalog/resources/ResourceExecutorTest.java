@@ -0,0 +1,86 @@
+package com.ecommerce.catalog.resources;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class ResourceExecutorTest {
+
+    private ResourceExecutor executor;
+
+    @After
+    public void tearDown() throws Exception {
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testRead_ResumesOnCallingThread_WhenInline() {
+        // Given
+        executor = ResourceExecutor.inline();
+        AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        Response ok = Response.ok().build();
+
+        // When
+        executor.read(asyncResponse, () -> ok);
+
+        // Then
+        verify(asyncResponse).resume(ok);
+    }
+
+    @Test
+    public void testRead_RejectsWith503_WhenNoPermitFreesUp() throws Exception {
+        // Given
+        executor = ResourceExecutor.virtualThreads(1, Duration.milliseconds(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncResponse holder = mock(AsyncResponse.class);
+        executor.read(holder, () -> {
+            started.countDown();
+            release.await();
+            return Response.ok().build();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        AsyncResponse waiter = mock(AsyncResponse.class);
+        executor.read(waiter, () -> Response.ok().build());
+
+        // Then
+        ArgumentCaptor<Response> rejected = ArgumentCaptor.forClass(Response.class);
+        verify(waiter, timeout(5_000)).resume(rejected.capture());
+        assertEquals(503, rejected.getValue().getStatus());
+        release.countDown();
+        verify(holder, timeout(5_000)).resume(any(Response.class));
+    }
+
+    @Test
+    public void testVirtualThreads_CapsPermitsAtCarrierThreads() {
+        // Given
+        MetricRegistry metrics = new MetricRegistry();
+
+        // When
+        executor = ResourceExecutor.virtualThreads(ResourceExecutor.carrierThreads() + 16, Duration.seconds(1));
+        executor.registerMetrics(metrics);
+
+        // Then
+        Gauge<?> available = metrics.getGauges().get(MetricRegistry.name(ResourceExecutor.class, "available"));
+        assertEquals(ResourceExecutor.carrierThreads(), available.getValue());
+    }
+}
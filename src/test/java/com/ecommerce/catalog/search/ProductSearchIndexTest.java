@@ -0,0 +1,89 @@
+package com.ecommerce.catalog.search;
+
+import com.ecommerce.catalog.model.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProductSearchIndexTest {
+
+    private ProductSearchIndex searchIndex;
+
+    @Before
+    public void setUp() {
+        searchIndex = new ProductSearchIndex(null);
+        searchIndex.index(product(1L, "MacBook Pro 13\"", "Apple laptop with M1 chip"));
+        searchIndex.index(product(2L, "Dell XPS 13", "Ultra-thin laptop with Intel Core i7"));
+        searchIndex.index(product(3L, "iPad Air", "Apple tablet with M1 chip"));
+        searchIndex.index(product(4L, "Sapiens", "A Brief History of Humankind"));
+    }
+
+    @Test
+    public void testSearch_RanksNameMatchesFirst() {
+        // When
+        ProductSearchIndex.SearchHits hits = searchIndex.search("apple macbook", 0, 10);
+
+        // Then
+        assertEquals(Arrays.asList(1L, 3L), hits.getProductIds());
+        assertEquals(2, hits.getTotalHits());
+    }
+
+    @Test
+    public void testSearch_MatchesLastTermAsPrefix() {
+        // When
+        ProductSearchIndex.SearchHits hits = searchIndex.search("hum", 0, 10);
+
+        // Then
+        assertEquals(Collections.singletonList(4L), hits.getProductIds());
+    }
+
+    @Test
+    public void testSearch_PagesThroughRankedHits() {
+        // When
+        ProductSearchIndex.SearchHits hits = searchIndex.search("laptop", 1, 10);
+
+        // Then
+        assertEquals(1, hits.getProductIds().size());
+        assertEquals(2, hits.getTotalHits());
+    }
+
+    @Test
+    public void testSearch_DeepOffsetReturnsEmptyPage() {
+        // When
+        ProductSearchIndex.SearchHits hits = searchIndex.search("laptop", Integer.MAX_VALUE, 10);
+
+        // Then
+        assertEquals(Collections.emptyList(), hits.getProductIds());
+        assertEquals(2, hits.getTotalHits());
+    }
+
+    @Test
+    public void testIndex_ReplacesPreviousVersion() {
+        // When
+        searchIndex.index(product(4L, "Sapiens (Paperback)", "Yuval Noah Harari"));
+
+        // Then
+        assertEquals(0, searchIndex.search("humankind", 0, 10).getTotalHits());
+        assertEquals(Collections.singletonList(4L), searchIndex.search("harari", 0, 10).getProductIds());
+    }
+
+    @Test
+    public void testRemove_HidesProductFromResults() {
+        // When
+        searchIndex.remove(3L);
+
+        // Then
+        assertEquals(Collections.singletonList(1L), searchIndex.search("apple", 0, 10).getProductIds());
+    }
+
+    private static Product product(Long id, String name, String description) {
+        Product product = new Product(name, description, new BigDecimal("9.99"), 1, null);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecommerce.catalog.stats;
+
+import com.ecommerce.catalog.db.ProductDAO;
+import com.ecommerce.catalog.model.Category;
+import com.ecommerce.catalog.model.Product;
+import io.dropwizard.util.Duration;
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProductCountsTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final ProductDAO productDAO = mock(ProductDAO.class);
+    private final ProductCounts counts = new ProductCounts(productDAO, executor, Duration.hours(1));
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReconcile_KeepsInsertsMadeWhileCounting() {
+        // Given
+        Category laptops = new Category("Laptops", "Portable computers");
+        laptops.setId(1L);
+        Product inserted = new Product("MacBook Air", null, new BigDecimal("999.99"), 1, laptops);
+        // the insert commits after the grouped query took its snapshot
+        when(productDAO.countByCategoryAndStatus()).thenAnswer(invocation -> {
+            counts.productSaved(inserted, true);
+            return activeIn(1L, 3L);
+        });
+
+        // When
+        counts.reconcile();
+
+        // Then
+        assertEquals(4, counts.total());
+        assertEquals(4, counts.countInCategory(1L));
+        assertEquals(4, counts.countWithStatus(Product.ProductStatus.ACTIVE));
+    }
+
+    @Test
+    public void testProductDeleted_AdjustsLiveCounts_AfterReconcile() {
+        // Given
+        Category laptops = new Category("Laptops", "Portable computers");
+        laptops.setId(1L);
+        when(productDAO.countByCategoryAndStatus()).thenReturn(activeIn(1L, 3L));
+        counts.reconcile();
+
+        // When
+        counts.productDeleted(new Product("MacBook Air", null, new BigDecimal("999.99"), 1, laptops));
+
+        // Then
+        assertEquals(2, counts.total());
+        assertEquals(2, counts.countInCategory(1L));
+    }
+
+    private static Map<Long, Map<Product.ProductStatus, Long>> activeIn(Long categoryId, long count) {
+        Map<Product.ProductStatus, Long> byStatus = new EnumMap<>(Product.ProductStatus.class);
+        byStatus.put(Product.ProductStatus.ACTIVE, count);
+        return Collections.singletonMap(categoryId, byStatus);
+    }
+}